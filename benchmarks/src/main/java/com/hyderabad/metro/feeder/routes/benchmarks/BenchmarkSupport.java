@@ -0,0 +1,24 @@
+package com.hyderabad.metro.feeder.routes.benchmarks;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+public final class BenchmarkSupport {
+
+	//Keeps the per call info logs of the services out of the measurements
+	private static final Logger ROUTES_LOGGER = Logger.getLogger("com.hyderabad.metro.feeder.routes");
+
+	private BenchmarkSupport() {
+	}
+
+	//Wires the services and utilities without starting the web application
+	public static AnnotationConfigApplicationContext createContext() {
+		ROUTES_LOGGER.setLevel(Level.WARNING);
+		return new AnnotationConfigApplicationContext(
+				"com.hyderabad.metro.feeder.routes.services",
+				"com.hyderabad.metro.feeder.routes.utils");
+	}
+
+}
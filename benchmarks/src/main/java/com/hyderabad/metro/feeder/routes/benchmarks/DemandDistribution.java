@@ -0,0 +1,35 @@
+package com.hyderabad.metro.feeder.routes.benchmarks;
+
+import java.util.Random;
+
+//Shapes of the demand at each node of a synthetic network
+public enum DemandDistribution {
+
+	//Every value up to the maximum is equally likely
+	UNIFORM {
+		@Override
+		int sample(Random random, int maximum) {
+			return random.nextInt(maximum + 1);
+		}
+	},
+
+	//Heavy tailed, most stations see little demand and a few see a lot
+	SKEWED {
+		@Override
+		int sample(Random random, int maximum) {
+			double pareto = 1.0 / Math.pow(1.0 - random.nextDouble(), 1.0 / 1.5) - 1.0;
+			return (int) Math.min(maximum, Math.floor(pareto * maximum / 10.0));
+		}
+	},
+
+	//Half of the stations have no demand at all, the rest are uniform
+	SPARSE {
+		@Override
+		int sample(Random random, int maximum) {
+			return random.nextBoolean() ? 0 : 1 + random.nextInt(maximum);
+		}
+	};
+
+	abstract int sample(Random random, int maximum);
+
+}
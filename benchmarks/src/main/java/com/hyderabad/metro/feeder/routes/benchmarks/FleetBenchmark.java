@@ -0,0 +1,80 @@
+package com.hyderabad.metro.feeder.routes.benchmarks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jgrapht.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.hyderabad.metro.feeder.routes.beans.Edge;
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.Route;
+import com.hyderabad.metro.feeder.routes.beans.StationRegistry;
+import com.hyderabad.metro.feeder.routes.services.FleetAdjustmentService;
+import com.hyderabad.metro.feeder.routes.services.RouteGenerationService;
+
+//Fleet sizing for all generated routes of synthetic networks of increasing size
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FleetBenchmark {
+
+	@Param({"100", "500", "2000"})
+	public int stations;
+
+	private AnnotationConfigApplicationContext context;
+
+	private FleetAdjustmentService fleetAdjustmentService;
+
+	private NetworkSnapshot network;
+
+	private Map<Node, Route> routes;
+
+	private Map<Node, Graph<Node, Edge>> routeGraphs;
+
+	@Setup
+	public void setUp() {
+		this.context = BenchmarkSupport.createContext();
+		this.fleetAdjustmentService = this.context.getBean(FleetAdjustmentService.class);
+		this.network = SyntheticNetwork.generate(this.stations, 42L);
+		NeighbourIndex neighbourIndex = NeighbourIndex.of(this.network, new StationRegistry(this.network));
+		this.routes = this.context.getBean(RouteGenerationService.class).generateRoutes(neighbourIndex, 1);
+		this.routeGraphs = new LinkedHashMap<>();
+		this.routes.forEach((origin, route) -> this.routeGraphs.put(origin, route.toGraph()));
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public Map<Node, Integer> computeFromRouteGraphs() {
+		return this.fleetAdjustmentService.compute(this.network, this.routeGraphs);
+	}
+
+	@Benchmark
+	public Map<Node, Integer> computeFromRoutes() {
+		return this.fleetAdjustmentService.computeFromMetrics(
+				this.fleetAdjustmentService.routeMetricsOfRoutes(this.network, this.routes));
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.hyderabad.metro.feeder.routes.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jgrapht.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.hyderabad.metro.feeder.routes.beans.Edge;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.services.CreateGraph;
+import com.hyderabad.metro.feeder.routes.services.RouteGenerationService;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+
+//Compares the JGraphT multigraph with the DenseGraph backend, run with -prof gc for the allocated bytes per build
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphBackendBenchmark {
+
+	@Param({"multigraph", "dense"})
+	public String backend;
+
+	private AnnotationConfigApplicationContext context;
+
+	private CreateGraph createGraph;
+
+	private RouteGenerationService routeGenerationService;
+
+	private NetworkSnapshot network;
+
+	private Graph<Node, Edge> graph;
+
+	@Setup
+	public void setUp() {
+		this.context = BenchmarkSupport.createContext();
+		this.createGraph = this.context.getBean(CreateGraph.class);
+		this.routeGenerationService = this.context.getBean(RouteGenerationService.class);
+		this.network = this.context.getBean(NetworkSnapshotLoader.class).getSnapshot();
+		this.graph = this.buildGraph();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	private Graph<Node, Edge> buildGraph() {
+		if("dense".equals(this.backend)) {
+			return this.createGraph.createDenseGraph(this.network);
+		}
+		return this.createGraph.createGraph(this.network);
+	}
+
+	@Benchmark
+	public Graph<Node, Edge> build() {
+		return this.buildGraph();
+	}
+
+	@Benchmark
+	public Map<Node, Graph<Node, Edge>> routeGeneration() {
+		return this.routeGenerationService.routeGenerationAlgorithm(this.graph);
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.hyderabad.metro.feeder.routes.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DirectedWeightedMultigraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.hyderabad.metro.feeder.routes.beans.Edge;
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.Route;
+import com.hyderabad.metro.feeder.routes.services.CreateGraph;
+import com.hyderabad.metro.feeder.routes.services.RouteGenerationService;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+
+//Graph build and route generation over the sample Matrix.xlsx network
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphBenchmark {
+
+	private AnnotationConfigApplicationContext context;
+
+	private CreateGraph createGraph;
+
+	private RouteGenerationService routeGenerationService;
+
+	private NetworkSnapshot network;
+
+	private DirectedWeightedMultigraph<Node, Edge> graph;
+
+	private NeighbourIndex neighbourIndex;
+
+	@Setup
+	public void setUp() {
+		this.context = BenchmarkSupport.createContext();
+		this.createGraph = this.context.getBean(CreateGraph.class);
+		this.routeGenerationService = this.context.getBean(RouteGenerationService.class);
+		this.network = this.context.getBean(NetworkSnapshotLoader.class).getSnapshot();
+		this.graph = this.createGraph.createGraph(this.network);
+		this.neighbourIndex = NeighbourIndex.of(this.graph);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public DirectedWeightedMultigraph<Node, Edge> createGraph() {
+		return this.createGraph.createGraph(this.network);
+	}
+
+	@Benchmark
+	public Map<Node, Graph<Node, Edge>> routeGeneration() {
+		return this.routeGenerationService.routeGenerationAlgorithm(this.graph);
+	}
+
+	@Benchmark
+	public NeighbourIndex neighbourIndex() {
+		return NeighbourIndex.of(this.graph);
+	}
+
+	//Route stitching alone, over an index that is built once and shared
+	@Benchmark
+	public Map<Node, Route> indexedRouteGeneration() {
+		return this.routeGenerationService.generateRoutes(this.neighbourIndex, 1);
+	}
+
+	@Benchmark
+	public Map<Node, Graph<Node, Edge>> parallelRouteGeneration() {
+		return this.routeGenerationService.routeGenerationAlgorithm(this.graph, 
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	@Benchmark
+	public Map<Node, Graph<Node, Edge>> createGraphAndRouteGeneration() {
+		return this.routeGenerationService.routeGenerationAlgorithm(this.createGraph.createGraph(this.network));
+	}
+
+}
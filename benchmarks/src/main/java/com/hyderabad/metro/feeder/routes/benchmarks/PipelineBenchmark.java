@@ -0,0 +1,138 @@
+package com.hyderabad.metro.feeder.routes.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jgrapht.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.hyderabad.metro.feeder.routes.beans.DenseGraph;
+import com.hyderabad.metro.feeder.routes.beans.Edge;
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.Route;
+import com.hyderabad.metro.feeder.routes.beans.RouteMetrics;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.config.PlanningProfile;
+import com.hyderabad.metro.feeder.routes.services.CreateGraph;
+import com.hyderabad.metro.feeder.routes.services.FleetAdjustmentService;
+import com.hyderabad.metro.feeder.routes.services.RouteGenerationService;
+import com.hyderabad.metro.feeder.routes.services.RouteImprovementService;
+
+//Every pipeline stage on synthetic networks, run with -prof gc for the allocation rate of each stage
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class PipelineBenchmark {
+
+	@Param({"140", "500", "2000"})
+	public int stations;
+
+	@Param({"0.1"})
+	public double metroRatio;
+
+	@Param({"UNIFORM", "SKEWED"})
+	public DemandDistribution demand;
+
+	private AnnotationConfigApplicationContext context;
+
+	private CreateGraph createGraph;
+
+	private RouteGenerationService routeGenerationService;
+
+	private FleetAdjustmentService fleetAdjustmentService;
+
+	private RouteImprovementService routeImprovementService;
+
+	private PlanningParameters improvement;
+
+	private NetworkSnapshot network;
+
+	private DenseGraph denseGraph;
+
+	private NeighbourIndex neighbourIndex;
+
+	private Map<Node, Route> routes;
+
+	@Setup
+	public void setUp() {
+		this.context = BenchmarkSupport.createContext();
+		this.createGraph = this.context.getBean(CreateGraph.class);
+		this.routeGenerationService = this.context.getBean(RouteGenerationService.class);
+		this.fleetAdjustmentService = this.context.getBean(FleetAdjustmentService.class);
+		this.routeImprovementService = this.context.getBean(RouteImprovementService.class);
+		PlanningProfile profile = PlanningParameters.defaults().toProfile();
+		profile.setRouteImprovement(true);
+		this.improvement = PlanningParameters.of(profile);
+		this.network = SyntheticNetwork.generate(this.stations, this.metroRatio, this.demand, 42L);
+		this.denseGraph = this.createGraph.createDenseGraph(this.network);
+		this.neighbourIndex = NeighbourIndex.of(this.denseGraph);
+		this.routes = this.routeGenerationService.generateRoutes(this.neighbourIndex, 1);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public Graph<Node, Edge> createGraph() {
+		return this.createGraph.createGraph(this.network);
+	}
+
+	@Benchmark
+	public Graph<Node, Edge> createDenseGraph() {
+		return this.createGraph.createDenseGraph(this.network);
+	}
+
+	@Benchmark
+	public NeighbourIndex neighbourIndex() {
+		return NeighbourIndex.of(this.denseGraph);
+	}
+
+	@Benchmark
+	public Map<Node, Route> routeGeneration() {
+		return this.routeGenerationService.generateRoutes(this.neighbourIndex, 1);
+	}
+
+	@Benchmark
+	public Map<Node, Route> routeImprovement() {
+		return this.routeImprovementService.improveRoutes(this.network, this.routes, this.improvement, 1);
+	}
+
+	@Benchmark
+	public Map<Node, RouteMetrics> routeMetrics() {
+		return this.fleetAdjustmentService.routeMetricsOfRoutes(this.network, this.routes);
+	}
+
+	@Benchmark
+	public Map<Node, Integer> fleetSizing() {
+		return this.fleetAdjustmentService.computeFromMetrics(
+				this.fleetAdjustmentService.routeMetricsOfRoutes(this.network, this.routes));
+	}
+
+	@Benchmark
+	public Map<Node, Integer> endToEnd() {
+		DenseGraph graph = this.createGraph.createDenseGraph(this.network);
+		Map<Node, Route> generatedRoutes = this.routeGenerationService.generateRoutes(NeighbourIndex.of(graph), 1);
+		return this.fleetAdjustmentService.computeFromMetrics(
+				this.fleetAdjustmentService.routeMetricsOfRoutes(this.network, generatedRoutes));
+	}
+
+}
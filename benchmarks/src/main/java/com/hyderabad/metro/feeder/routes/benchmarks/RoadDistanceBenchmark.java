@@ -0,0 +1,126 @@
+package com.hyderabad.metro.feeder.routes.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultDirectedWeightedGraph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.hyderabad.metro.feeder.routes.beans.RoadNetwork;
+import com.hyderabad.metro.feeder.routes.services.DistanceMatrixService;
+
+//Full stop to stop distance matrix on a synthetic street grid against adding one stop to a cached matrix
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class RoadDistanceBenchmark {
+
+	//Streets per side, the grid has grid^2 road nodes
+	@Param({"60"})
+	public int grid;
+
+	@Param({"200"})
+	public int stops;
+
+	@Param({"dijkstra", "ch"})
+	public String algorithm;
+
+	private AnnotationConfigApplicationContext context;
+
+	private DistanceMatrixService distanceMatrixService;
+
+	private Graph<Long, DefaultWeightedEdge> graph;
+
+	private List<Long> stopNodes;
+
+	//Road network with the stops cached, addStop adds another random node on every call
+	private RoadNetwork cachedRoad;
+
+	private Random random;
+
+	@Setup
+	public void setUp() {
+		this.context = BenchmarkSupport.createContext();
+		this.distanceMatrixService = this.context.getBean(DistanceMatrixService.class);
+
+		Random random = new Random(42);
+		this.graph = new DefaultDirectedWeightedGraph<Long, DefaultWeightedEdge>(DefaultWeightedEdge.class);
+		for(long node = 0; node < this.grid * this.grid; node++) {
+			this.graph.addVertex(node);
+		}
+		for(int row = 0; row < this.grid; row++) {
+			for(int column = 0; column < this.grid; column++) {
+				long node = row * this.grid + column;
+				if(column + 1 < this.grid) {
+					this.addStreet(node, node + 1, 0.05 + 0.2 * random.nextDouble());
+				}
+				if(row + 1 < this.grid) {
+					this.addStreet(node, node + this.grid, 0.05 + 0.2 * random.nextDouble());
+				}
+			}
+		}
+		Set<Long> nodes = new LinkedHashSet<>();
+		while(nodes.size() < this.stops) {
+			nodes.add((long) random.nextInt(this.grid * this.grid));
+		}
+		this.stopNodes = new ArrayList<>(nodes);
+	}
+
+	private void addStreet(long from, long to, double length) {
+		this.graph.setEdgeWeight(this.graph.addEdge(from, to), length);
+		this.graph.setEdgeWeight(this.graph.addEdge(to, from), length);
+	}
+
+	@Setup(Level.Iteration)
+	public void cacheStops() {
+		this.cachedRoad = this.road();
+		this.distanceMatrixService.distances(this.cachedRoad, this.stopNodes, this.algorithm);
+		this.random = new Random(7);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	//The contraction hierarchy is cached with the road network, so full includes contracting it
+	private RoadNetwork road() {
+		return new RoadNetwork(this.graph, "grid");
+	}
+
+	@Benchmark
+	public double[] full() {
+		return this.distanceMatrixService.distances(this.road(), this.stopNodes, this.algorithm);
+	}
+
+	//The cached matrix grows by one stop per call, which stays small against the stops of the setup
+	@Benchmark
+	public double[] addStop() {
+		Long stop = (long) this.random.nextInt(this.grid * this.grid);
+		return this.distanceMatrixService.distances(this.cachedRoad, Collections.singletonList(stop), this.algorithm);
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.hyderabad.metro.feeder.routes.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.Scenario;
+import com.hyderabad.metro.feeder.routes.beans.ScenarioResult;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.config.PlanningProfile;
+import com.hyderabad.metro.feeder.routes.services.ScenarioService;
+
+//A 500 point sensitivity sweep against a single scenario, the cost of one run as it is done without the engine
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ScenarioBenchmark {
+
+	@Param({"140", "500"})
+	public int stations;
+
+	@Param({"1", "4"})
+	public int parallelism;
+
+	private AnnotationConfigApplicationContext context;
+
+	private ScenarioService scenarioService;
+
+	private NetworkSnapshot network;
+
+	private List<Scenario> sweep;
+
+	private List<Scenario> single;
+
+	@Setup
+	public void setUp() {
+		this.context = BenchmarkSupport.createContext();
+		this.scenarioService = this.context.getBean(ScenarioService.class);
+		this.network = SyntheticNetwork.generate(this.stations, 0.1, DemandDistribution.UNIFORM, 42L);
+
+		//5 speeds x 5 capacities x 4 route limits x 5 demand multipliers
+		this.sweep = new ArrayList<>();
+		for(double speed: new double[] {20, 25, 30, 35, 40}) {
+			for(int capacity: new int[] {40, 45, 50, 55, 60}) {
+				for(double maxDistance: new double[] {15, 20, 25, 30}) {
+					for(double multiplier: new double[] {0.8, 0.9, 1.0, 1.1, 1.2}) {
+						PlanningProfile profile = PlanningParameters.defaults().toProfile();
+						profile.setSpeedOfTheBus(speed);
+						profile.setBusCapacity(capacity);
+						profile.setMaxDistance(maxDistance);
+						this.sweep.add(new Scenario("sweep", PlanningParameters.of(profile), multiplier));
+					}
+				}
+			}
+		}
+		this.single = this.sweep.subList(0, 1);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public List<ScenarioResult> sweep() {
+		return this.scenarioService.evaluate(this.network, this.sweep, this.parallelism);
+	}
+
+	@Benchmark
+	public List<ScenarioResult> singleScenario() {
+		return this.scenarioService.evaluate(this.network, this.single, this.parallelism);
+	}
+
+}
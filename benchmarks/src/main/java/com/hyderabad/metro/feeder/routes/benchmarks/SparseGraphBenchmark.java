@@ -0,0 +1,92 @@
+package com.hyderabad.metro.feeder.routes.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.Route;
+import com.hyderabad.metro.feeder.routes.beans.StationRegistry;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.config.PlanningProfile;
+import com.hyderabad.metro.feeder.routes.services.CreateGraph;
+import com.hyderabad.metro.feeder.routes.services.RouteGenerationService;
+
+//Complete neighbour index against the sparse graph modes on synthetic networks, run with -prof gc for the
+//allocated bytes per build
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class SparseGraphBenchmark {
+
+	@Param({"1000", "4000"})
+	public int stations;
+
+	//complete, band (every stop within the route limits) or the number of nearest stops kept
+	@Param({"complete", "band", "16"})
+	public String mode;
+
+	private AnnotationConfigApplicationContext context;
+
+	private CreateGraph createGraph;
+
+	private RouteGenerationService routeGenerationService;
+
+	private NetworkSnapshot network;
+
+	private PlanningParameters parameters;
+
+	private NeighbourIndex neighbourIndex;
+
+	@Setup
+	public void setUp() {
+		this.context = BenchmarkSupport.createContext();
+		this.createGraph = this.context.getBean(CreateGraph.class);
+		this.routeGenerationService = this.context.getBean(RouteGenerationService.class);
+		this.network = SyntheticNetwork.generate(this.stations, 42);
+
+		PlanningProfile profile = new PlanningProfile();
+		profile.setSparseGraph(!"complete".equals(this.mode));
+		profile.setNeighbours("complete".equals(this.mode) || "band".equals(this.mode) ? 0 
+				: Integer.parseInt(this.mode));
+		this.parameters = PlanningParameters.of(profile);
+		this.neighbourIndex = this.build();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public NeighbourIndex build() {
+		if(this.parameters.sparseGraph) {
+			return this.createGraph.createNeighbourIndex(this.network, this.parameters);
+		}
+		return NeighbourIndex.of(this.network, new StationRegistry(this.network));
+	}
+
+	@Benchmark
+	public Map<Node, Route> routeGeneration() {
+		return this.routeGenerationService.generateRoutes(this.neighbourIndex, this.parameters, 1, route -> {});
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.hyderabad.metro.feeder.routes.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+
+//Random city network for benchmarks, stations scattered over a 30 x 30 KM square
+public final class SyntheticNetwork {
+
+	private static final double CITY_SIZE = 30.0;
+
+	private static final int MAX_METRO_DEMAND = 60;
+
+	private static final int MAX_STOP_DEMAND = 10;
+
+	private SyntheticNetwork() {
+	}
+
+	public static NetworkSnapshot generate(int stations, long seed) {
+		return SyntheticNetwork.generate(stations, 0.1, DemandDistribution.UNIFORM, seed);
+	}
+
+	public static NetworkSnapshot generate(int stations, double metroRatio, DemandDistribution distribution, 
+			long seed) {
+		Random random = new Random(seed);
+
+		double[] x = new double[stations];
+		double[] y = new double[stations];
+		String[] names = new String[stations];
+		int[] demands = new int[stations];
+		for(int id = 0; id < stations; id++) {
+			x[id] = random.nextDouble() * CITY_SIZE;
+			y[id] = random.nextDouble() * CITY_SIZE;
+			boolean metro = random.nextDouble() < metroRatio;
+			names[id] = metro ? ("Metro " + id + " m") : ("Stop " + id + " b");
+			demands[id] = distribution.sample(random, metro ? MAX_METRO_DEMAND : MAX_STOP_DEMAND);
+		}
+
+		//Road distances are a detour factor over the straight line and differ slightly per direction
+		double[] distances = new double[stations * stations];
+		for(int source = 0; source < stations; source++) {
+			for(int target = 0; target < stations; target++) {
+				if(source != target) {
+					double straight = Math.hypot(x[source] - x[target], y[source] - y[target]);
+					distances[source * stations + target] = straight * (1.2 + 0.2 * random.nextDouble());
+				}
+			}
+		}
+
+		//About one OD pair in twenty has a recorded travel demand
+		int[] travelDemands = new int[stations * stations];
+		Arrays.fill(travelDemands, NetworkSnapshot.NO_DEMAND);
+		for(int pair = 0; pair < travelDemands.length; pair++) {
+			if(random.nextInt(20) == 0) {
+				travelDemands[pair] = distribution.sample(random, 5);
+			}
+		}
+
+		return new NetworkSnapshot(names, distances, demands, travelDemands);
+	}
+
+}
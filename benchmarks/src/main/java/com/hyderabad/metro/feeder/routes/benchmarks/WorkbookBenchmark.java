@@ -0,0 +1,93 @@
+package com.hyderabad.metro.feeder.routes.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.config.PlanningProfile;
+import com.hyderabad.metro.feeder.routes.config.WorkbookLayout;
+import com.hyderabad.metro.feeder.routes.utils.BinaryNetworkFile;
+import com.hyderabad.metro.feeder.routes.utils.ExcelUtility;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+
+//Parsing the sample Matrix.xlsx, one sheet through ExcelUtility and the whole network through the loader,
+//streamed or opened as a whole, against mapping the same network from its binary file
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class WorkbookBenchmark {
+
+	private AnnotationConfigApplicationContext context;
+
+	private ExcelUtility excelUtility;
+
+	private NetworkSnapshotLoader networkSnapshotLoader;
+
+	private BinaryNetworkFile binaryNetworkFile;
+
+	private Path binaryFile;
+
+	@Setup
+	public void setUp() {
+		this.context = BenchmarkSupport.createContext();
+		this.excelUtility = this.context.getBean(ExcelUtility.class);
+		this.networkSnapshotLoader = this.context.getBean(NetworkSnapshotLoader.class);
+		this.binaryNetworkFile = this.context.getBean(BinaryNetworkFile.class);
+		try {
+			this.binaryFile = Files.createTempFile("network", ".bin");
+			this.binaryNetworkFile.write(this.networkSnapshotLoader.loadWorkbookSnapshot(), null, this.binaryFile);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		this.context.close();
+		Files.deleteIfExists(this.binaryFile);
+	}
+
+	@Benchmark
+	public List<List<Object>> readMatrixSheet() {
+		return this.excelUtility.readData("Matrix", 0, 140, 0, 140);
+	}
+
+	@Benchmark
+	public NetworkSnapshot loadSnapshot() {
+		return this.networkSnapshotLoader.loadWorkbookSnapshot();
+	}
+
+	@Benchmark
+	public NetworkSnapshot loadWorkbookModel() throws IOException {
+		try (Workbook workbook = this.excelUtility.openWorkbook()) {
+			return this.networkSnapshotLoader.readSnapshot(workbook, new WorkbookLayout(new PlanningProfile.Workbook()));
+		}
+	}
+
+	@Benchmark
+	public NetworkSnapshot mapBinaryFile() throws IOException {
+		return this.binaryNetworkFile.load(this.binaryFile);
+	}
+
+}
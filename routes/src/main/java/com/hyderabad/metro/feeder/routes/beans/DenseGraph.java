@@ -0,0 +1,302 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.jgrapht.GraphType;
+import org.jgrapht.graph.AbstractGraph;
+import org.jgrapht.graph.DefaultGraphType;
+
+//Read only complete directed graph backed by the flat distance matrix of a NetworkSnapshot.
+//Edges are not stored, they are created on demand while iterating the edge views.
+public class DenseGraph extends AbstractGraph<Node, Edge> {
+	
+	private static final GraphType GRAPH_TYPE = new DefaultGraphType.Builder()
+			.directed().weighted(true).allowSelfLoops(false).allowMultipleEdges(false)
+			.modifiable(false).build();
+	
+	private final NetworkSnapshot network;
+	
+	private final StationRegistry stationRegistry;
+	
+	private final Set<Node> vertexSet;
+	
+	public DenseGraph(NetworkSnapshot network, StationRegistry stationRegistry) {
+		this.network = network;
+		this.stationRegistry = stationRegistry;
+		
+		Set<Node> nodes = new LinkedHashSet<>(stationRegistry.size() * 2);
+		for(int id = 0; id < stationRegistry.size(); id++) {
+			nodes.add(stationRegistry.getNode(id));
+		}
+		this.vertexSet = Collections.unmodifiableSet(nodes);
+	}
+	
+	public NetworkSnapshot getNetwork() {
+		return this.network;
+	}
+	
+	public StationRegistry getStationRegistry() {
+		return this.stationRegistry;
+	}
+	
+	private Edge createEdge(int source, int target) {
+		return new Edge(this.stationRegistry.getNode(source), this.stationRegistry.getNode(target), 
+				this.network.getDistance(source, target));
+	}
+	
+	@Override
+	public Set<Edge> getAllEdges(Node sourceVertex, Node targetVertex) {
+		Edge edge = this.getEdge(sourceVertex, targetVertex);
+		if(edge == null) {
+			return this.containsVertex(sourceVertex) && this.containsVertex(targetVertex) 
+					? Collections.<Edge>emptySet() : null;
+		}
+		return Collections.singleton(edge);
+	}
+	
+	@Override
+	public Edge getEdge(Node sourceVertex, Node targetVertex) {
+		if(!this.containsVertex(sourceVertex) || !this.containsVertex(targetVertex) 
+				|| sourceVertex.id == targetVertex.id) {
+			return null;
+		}
+		return this.createEdge(sourceVertex.id, targetVertex.id);
+	}
+	
+	@Override
+	public Supplier<Node> getVertexSupplier() {
+		return null;
+	}
+	
+	@Override
+	public Supplier<Edge> getEdgeSupplier() {
+		return null;
+	}
+	
+	@Override
+	public Edge addEdge(Node sourceVertex, Node targetVertex) {
+		throw new UnsupportedOperationException("DenseGraph is read only");
+	}
+	
+	@Override
+	public boolean addEdge(Node sourceVertex, Node targetVertex, Edge e) {
+		throw new UnsupportedOperationException("DenseGraph is read only");
+	}
+	
+	@Override
+	public Node addVertex() {
+		throw new UnsupportedOperationException("DenseGraph is read only");
+	}
+	
+	@Override
+	public boolean addVertex(Node v) {
+		throw new UnsupportedOperationException("DenseGraph is read only");
+	}
+	
+	@Override
+	public boolean containsEdge(Edge e) {
+		if(e == null || !this.containsVertex(e.getSource()) || !this.containsVertex(e.getTarget())) {
+			return false;
+		}
+		int source = e.getSource().id;
+		int target = e.getTarget().id;
+		return source != target 
+				&& Double.compare(e.getWeight(), this.network.getDistance(source, target)) == 0;
+	}
+	
+	@Override
+	public boolean containsVertex(Node v) {
+		return v != null && v.id >= 0 && v.id < this.stationRegistry.size() 
+				&& this.stationRegistry.getNode(v.id).equals(v);
+	}
+	
+	@Override
+	public Set<Edge> edgeSet() {
+		return new EdgeView(-1, -1);
+	}
+	
+	@Override
+	public int degreeOf(Node vertex) {
+		this.assertVertexExist(vertex);
+		return 2 * (this.stationRegistry.size() - 1);
+	}
+	
+	@Override
+	public Set<Edge> edgesOf(Node vertex) {
+		this.assertVertexExist(vertex);
+		Set<Edge> edges = new LinkedHashSet<>(this.degreeOf(vertex) * 2);
+		edges.addAll(this.outgoingEdgesOf(vertex));
+		edges.addAll(this.incomingEdgesOf(vertex));
+		return Collections.unmodifiableSet(edges);
+	}
+	
+	@Override
+	public int inDegreeOf(Node vertex) {
+		this.assertVertexExist(vertex);
+		return this.stationRegistry.size() - 1;
+	}
+	
+	@Override
+	public Set<Edge> incomingEdgesOf(Node vertex) {
+		this.assertVertexExist(vertex);
+		return new EdgeView(-1, vertex.id);
+	}
+	
+	@Override
+	public int outDegreeOf(Node vertex) {
+		this.assertVertexExist(vertex);
+		return this.stationRegistry.size() - 1;
+	}
+	
+	@Override
+	public Set<Edge> outgoingEdgesOf(Node vertex) {
+		this.assertVertexExist(vertex);
+		return new EdgeView(vertex.id, -1);
+	}
+	
+	@Override
+	public Edge removeEdge(Node sourceVertex, Node targetVertex) {
+		throw new UnsupportedOperationException("DenseGraph is read only");
+	}
+	
+	@Override
+	public boolean removeEdge(Edge e) {
+		throw new UnsupportedOperationException("DenseGraph is read only");
+	}
+	
+	@Override
+	public boolean removeVertex(Node v) {
+		throw new UnsupportedOperationException("DenseGraph is read only");
+	}
+	
+	@Override
+	public Set<Node> vertexSet() {
+		return this.vertexSet;
+	}
+	
+	@Override
+	public Node getEdgeSource(Edge e) {
+		return e.getSource();
+	}
+	
+	@Override
+	public Node getEdgeTarget(Edge e) {
+		return e.getTarget();
+	}
+	
+	@Override
+	public GraphType getType() {
+		return DenseGraph.GRAPH_TYPE;
+	}
+	
+	@Override
+	public double getEdgeWeight(Edge e) {
+		return e.getWeight();
+	}
+	
+	@Override
+	public void setEdgeWeight(Edge e, double weight) {
+		throw new UnsupportedOperationException("DenseGraph is read only");
+	}
+	
+	//Edges leaving source, entering target, or all edges when both are -1
+	private class EdgeView extends AbstractSet<Edge> {
+		
+		private final int source;
+		
+		private final int target;
+		
+		EdgeView(int source, int target) {
+			this.source = source;
+			this.target = target;
+		}
+		
+		@Override
+		public Iterator<Edge> iterator() {
+			return new EdgeIterator(this.source, this.target);
+		}
+		
+		@Override
+		public int size() {
+			int size = DenseGraph.this.stationRegistry.size();
+			if(this.source < 0 && this.target < 0) {
+				return size * (size - 1);
+			}
+			return size - 1;
+		}
+		
+		@Override
+		public boolean contains(Object object) {
+			if(!(object instanceof Edge) || !DenseGraph.this.containsEdge((Edge) object)) {
+				return false;
+			}
+			Edge edge = (Edge) object;
+			return (this.source < 0 || edge.getSource().id == this.source) 
+					&& (this.target < 0 || edge.getTarget().id == this.target);
+		}
+		
+	}
+	
+	private class EdgeIterator implements Iterator<Edge> {
+		
+		private final int fixedSource;
+		
+		private final int fixedTarget;
+		
+		private int source;
+		
+		private int target;
+		
+		EdgeIterator(int fixedSource, int fixedTarget) {
+			this.fixedSource = fixedSource;
+			this.fixedTarget = fixedTarget;
+			this.source = fixedSource < 0 ? 0 : fixedSource;
+			this.target = fixedTarget < 0 ? 0 : fixedTarget;
+			this.skipSelfLoop();
+		}
+		
+		private void skipSelfLoop() {
+			int size = DenseGraph.this.stationRegistry.size();
+			while(this.source < size && this.source == this.target) {
+				this.advance();
+			}
+		}
+		
+		private void advance() {
+			int size = DenseGraph.this.stationRegistry.size();
+			if(this.fixedTarget < 0) {
+				this.target++;
+				if(this.target >= size) {
+					this.target = 0;
+					this.source = this.fixedSource < 0 ? this.source + 1 : size;
+				}
+			} else {
+				this.source = this.fixedSource < 0 ? this.source + 1 : size;
+			}
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return this.source < DenseGraph.this.stationRegistry.size();
+		}
+		
+		@Override
+		public Edge next() {
+			if(!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Edge edge = DenseGraph.this.createEdge(this.source, this.target);
+			this.advance();
+			this.skipSelfLoop();
+			return edge;
+		}
+		
+	}
+
+}
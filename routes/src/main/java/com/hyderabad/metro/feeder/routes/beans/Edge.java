@@ -10,33 +10,46 @@ public class Edge extends DefaultWeightedEdge implements Serializable, Comparabl
 	
 	private final Node target;
 	
-	private final Double weight;
+	private final double weight;
+	
+	//Precomputed from the end points and the weight so that edge set lookups do not allocate
+	private final int hash;
 	
 	public static final long serialVersionUID = 1L;
 	
-	public Edge(Node source, Node target, Double weight) {
+	public Edge(Node source, Node target, double weight) {
 		this.source = source;
 		this.target = target;
 		this.weight = weight;
+		this.hash = 31 * (31 * source.hashCode() + target.hashCode()) + Double.hashCode(this.weight);
 	}
 	
 	public boolean equals(Object object) {
-		return (object instanceof Edge) 
-				&& (this.toString().equals(object.toString()));
+		if(this == object) {
+			return true;
+		}
+		if(!(object instanceof Edge)) {
+			return false;
+		}
+		Edge edge = (Edge) object;
+		return this.hash == edge.hash 
+				&& Double.compare(this.weight, edge.weight) == 0
+				&& this.source.equals(edge.source) 
+				&& this.target.equals(edge.target);
 	}
 	
 	public String toString() {
 		return this.source.toString() + " to " + this.target.toString() 
-		+ "; Distance: " + this.weight.toString() + " KMs";
+		+ "; Distance: " + Double.toString(this.weight) + " KMs";
 	}
 	
 	public int hashCode() {
-		return this.toString().hashCode();
+		return this.hash;
 	}
 
 	@Override
 	public int compareTo(Edge o) {
-		return this.weight.compareTo(o.weight);
+		return Double.compare(this.weight, o.weight);
 	}
 
 	public Node getSource() {
@@ -48,7 +61,7 @@ public class Edge extends DefaultWeightedEdge implements Serializable, Comparabl
 	}
 
 	public double getWeight() {
-		return weight.doubleValue();
+		return weight;
 	}
 	
 }
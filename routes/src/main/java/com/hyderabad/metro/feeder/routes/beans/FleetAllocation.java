@@ -0,0 +1,65 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+import java.util.List;
+
+//Distribution of a bounded total fleet over the routes of a plan, routes in origin order
+public class FleetAllocation {
+	
+	public enum Constraint {
+		//The route runs its cost optimal fleet
+		NONE,
+		//Peak load keeps the fleet above its cost optimum
+		CAPACITY,
+		//The total fleet ran out before the route reached its cost optimum
+		MAX_FLEET_SIZE
+	}
+	
+	private final List<RouteAllocation> routes;
+	
+	private final int totalFleetSize;
+	
+	private final int maxFleetSize;
+	
+	private final double totalCost;
+	
+	//False when the capacity minimums alone exceed maxFleetSize, the routes then run their minimums
+	private final boolean feasible;
+	
+	//Constraints that bind on at least one route
+	private final List<Constraint> bindingConstraints;
+	
+	public FleetAllocation(List<RouteAllocation> routes, int totalFleetSize, int maxFleetSize, double totalCost, 
+			boolean feasible, List<Constraint> bindingConstraints) {
+		this.routes = routes;
+		this.totalFleetSize = totalFleetSize;
+		this.maxFleetSize = maxFleetSize;
+		this.totalCost = totalCost;
+		this.feasible = feasible;
+		this.bindingConstraints = bindingConstraints;
+	}
+	
+	public List<RouteAllocation> getRoutes() {
+		return routes;
+	}
+	
+	public int getTotalFleetSize() {
+		return totalFleetSize;
+	}
+	
+	public int getMaxFleetSize() {
+		return maxFleetSize;
+	}
+	
+	public double getTotalCost() {
+		return totalCost;
+	}
+	
+	public boolean isFeasible() {
+		return feasible;
+	}
+	
+	public List<Constraint> getBindingConstraints() {
+		return bindingConstraints;
+	}
+
+}
@@ -0,0 +1,291 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.jgrapht.Graph;
+
+//Outgoing neighbours of every station sorted by distance, nearest first.
+//Stations with equal distance keep ascending station ID order.
+public class NeighbourIndex {
+	
+	//Canonical node of each station, indexed by station ID
+	private final Node[] nodes;
+	
+	//Neighbours of station s are at positions offsets[s] until offsets[s + 1]
+	private final int[] offsets;
+	
+	private final int[] neighbours;
+	
+	private final double[] distances;
+	
+	private NeighbourIndex(Node[] nodes, int[] offsets, int[] neighbours, double[] distances) {
+		this.nodes = nodes;
+		this.offsets = offsets;
+		this.neighbours = neighbours;
+		this.distances = distances;
+	}
+	
+	public static NeighbourIndex of(NetworkSnapshot network, StationRegistry stationRegistry) {
+		
+		int size = network.size();
+		Node[] nodes = new Node[size];
+		int[] offsets = new int[size + 1];
+		int[] neighbours = new int[size * Math.max(size - 1, 0)];
+		double[] distances = new double[neighbours.length];
+		
+		int position = 0;
+		for(int source = 0; source < size; source++) {
+			nodes[source] = stationRegistry.getNode(source);
+			offsets[source] = position;
+			for(int target = 0; target < size; target++) {
+				if(target != source) {
+					neighbours[position] = target;
+					distances[position] = network.getDistance(source, target);
+					position++;
+				}
+			}
+			NeighbourIndex.sortByDistance(neighbours, distances, offsets[source], position);
+		}
+		offsets[size] = position;
+		
+		return new NeighbourIndex(nodes, offsets, neighbours, distances);
+	}
+	
+	//Sparse index of the neighbours route generation can pick, those further than minDistance and at most
+	//maxDistance away. When neighbours is positive only that many nearest of them are kept per station.
+	//A bounded heap selects them while the row is scanned, so no row is ever sorted or materialized in full.
+	public static NeighbourIndex nearest(NetworkSnapshot network, StationRegistry stationRegistry, int neighbours, 
+			double minDistance, double maxDistance) {
+		
+		int size = network.size();
+		int limit = neighbours > 0 ? Math.min(neighbours, Math.max(size - 1, 0)) : Math.max(size - 1, 0);
+		Node[] nodes = new Node[size];
+		int[] offsets = new int[size + 1];
+		int[] heapNeighbours = new int[limit];
+		double[] heapDistances = new double[limit];
+		int[] selected = new int[neighbours > 0 ? size * limit : Math.min(size * limit, size * 16)];
+		double[] distances = new double[selected.length];
+		
+		int position = 0;
+		for(int source = 0; source < size; source++) {
+			nodes[source] = stationRegistry.getNode(source);
+			offsets[source] = position;
+			
+			int count = 0;
+			for(int target = 0; target < size; target++) {
+				double distance = network.getDistance(source, target);
+				if(target == source || !(distance > minDistance && distance <= maxDistance)) {
+					continue;
+				}
+				if(count < limit) {
+					heapNeighbours[count] = target;
+					heapDistances[count] = distance;
+					NeighbourIndex.siftUp(heapNeighbours, heapDistances, count++);
+				} else if(distance < heapDistances[0]) {
+					//Targets are scanned in ID order, so an equal distance never replaces the furthest one
+					heapNeighbours[0] = target;
+					heapDistances[0] = distance;
+					NeighbourIndex.siftDown(heapNeighbours, heapDistances, 0, count);
+				}
+			}
+			
+			//Heap sort into nearest first, ties in station ID order like NeighbourIndex.of
+			for(int last = count - 1; last > 0; last--) {
+				NeighbourIndex.swap(heapNeighbours, heapDistances, 0, last);
+				NeighbourIndex.siftDown(heapNeighbours, heapDistances, 0, last);
+			}
+			if(position + count > selected.length) {
+				int capacity = Math.max(position + count, selected.length * 2);
+				selected = Arrays.copyOf(selected, capacity);
+				distances = Arrays.copyOf(distances, capacity);
+			}
+			System.arraycopy(heapNeighbours, 0, selected, position, count);
+			System.arraycopy(heapDistances, 0, distances, position, count);
+			position += count;
+		}
+		offsets[size] = position;
+		
+		return new NeighbourIndex(nodes, offsets, Arrays.copyOf(selected, position), Arrays.copyOf(distances, position));
+	}
+	
+	public static NeighbourIndex of(Graph<Node, Edge> graph) {
+		
+		if(graph instanceof DenseGraph) {
+			DenseGraph denseGraph = (DenseGraph) graph;
+			return NeighbourIndex.of(denseGraph.getNetwork(), denseGraph.getStationRegistry());
+		}
+		
+		//Vertices are expected to carry the station IDs of a StationRegistry
+		Set<Node> vertices = graph.vertexSet();
+		int size = 0;
+		for(Node node: vertices) {
+			if(node.id < 0) {
+				throw new IllegalArgumentException("Node without a station ID: " + node);
+			}
+			size = Math.max(size, node.id + 1);
+		}
+		Node[] nodes = new Node[size];
+		int edgeCount = 0;
+		for(Node node: vertices) {
+			nodes[node.id] = node;
+			edgeCount += graph.outDegreeOf(node);
+		}
+		
+		int[] offsets = new int[size + 1];
+		int[] neighbours = new int[edgeCount];
+		double[] distances = new double[edgeCount];
+		
+		int position = 0;
+		for(int source = 0; source < size; source++) {
+			offsets[source] = position;
+			if(nodes[source] == null) {
+				continue;
+			}
+			int start = position;
+			for(Edge edge: graph.outgoingEdgesOf(nodes[source])) {
+				neighbours[position] = graph.getEdgeTarget(edge).id;
+				distances[position] = graph.getEdgeWeight(edge);
+				position++;
+			}
+			NeighbourIndex.sortById(neighbours, distances, start, position);
+			NeighbourIndex.sortByDistance(neighbours, distances, start, position);
+		}
+		offsets[size] = position;
+		
+		return new NeighbourIndex(nodes, offsets, neighbours, distances);
+	}
+	
+	//Same neighbours and distances over another node of each station, e.g. after a demand change
+	public NeighbourIndex withNodes(Node[] nodes) {
+		if(nodes.length != this.nodes.length) {
+			throw new IllegalArgumentException("Expected " + this.nodes.length + " nodes, got " + nodes.length);
+		}
+		return new NeighbourIndex(nodes.clone(), this.offsets, this.neighbours, this.distances);
+	}
+	
+	public int size() {
+		return this.nodes.length;
+	}
+	
+	public int edgeCount() {
+		return this.neighbours.length;
+	}
+	
+	public Node getNode(int id) {
+		return this.nodes[id];
+	}
+	
+	public int getStart(int station) {
+		return this.offsets[station];
+	}
+	
+	public int getEnd(int station) {
+		return this.offsets[station + 1];
+	}
+	
+	public int getNeighbour(int position) {
+		return this.neighbours[position];
+	}
+	
+	public double getDistance(int position) {
+		return this.distances[position];
+	}
+	
+	//Max heap on distance, then station ID
+	private static boolean isFurther(int[] neighbours, double[] distances, int i, int j) {
+		return distances[i] > distances[j] || (distances[i] == distances[j] && neighbours[i] > neighbours[j]);
+	}
+	
+	private static void siftUp(int[] neighbours, double[] distances, int index) {
+		while(index > 0) {
+			int parent = (index - 1) / 2;
+			if(!NeighbourIndex.isFurther(neighbours, distances, index, parent)) {
+				return;
+			}
+			NeighbourIndex.swap(neighbours, distances, index, parent);
+			index = parent;
+		}
+	}
+	
+	private static void siftDown(int[] neighbours, double[] distances, int index, int count) {
+		while(true) {
+			int child = 2 * index + 1;
+			if(child >= count) {
+				return;
+			}
+			if(child + 1 < count && NeighbourIndex.isFurther(neighbours, distances, child + 1, child)) {
+				child++;
+			}
+			if(!NeighbourIndex.isFurther(neighbours, distances, child, index)) {
+				return;
+			}
+			NeighbourIndex.swap(neighbours, distances, index, child);
+			index = child;
+		}
+	}
+	
+	private static void swap(int[] neighbours, double[] distances, int i, int j) {
+		int neighbour = neighbours[i];
+		neighbours[i] = neighbours[j];
+		neighbours[j] = neighbour;
+		double distance = distances[i];
+		distances[i] = distances[j];
+		distances[j] = distance;
+	}
+	
+	//Stable merge sort of the range on distance, so that ties keep their current order
+	private static void sortByDistance(int[] neighbours, double[] distances, int from, int to) {
+		int length = to - from;
+		if(length < 2) {
+			return;
+		}
+		int[] neighbourBuffer = new int[length];
+		double[] distanceBuffer = new double[length];
+		for(int width = 1; width < length; width *= 2) {
+			for(int left = from; left < to - width; left += 2 * width) {
+				int middle = left + width;
+				int right = Math.min(left + 2 * width, to);
+				int i = left;
+				int j = middle;
+				int k = 0;
+				while(i < middle && j < right) {
+					if(distances[j] < distances[i]) {
+						neighbourBuffer[k] = neighbours[j];
+						distanceBuffer[k++] = distances[j++];
+					} else {
+						neighbourBuffer[k] = neighbours[i];
+						distanceBuffer[k++] = distances[i++];
+					}
+				}
+				while(i < middle) {
+					neighbourBuffer[k] = neighbours[i];
+					distanceBuffer[k++] = distances[i++];
+				}
+				while(j < right) {
+					neighbourBuffer[k] = neighbours[j];
+					distanceBuffer[k++] = distances[j++];
+				}
+				System.arraycopy(neighbourBuffer, 0, neighbours, left, k);
+				System.arraycopy(distanceBuffer, 0, distances, left, k);
+			}
+		}
+	}
+	
+	//Insertion sort on station ID, edge sets of arbitrary graphs are usually almost ordered already
+	private static void sortById(int[] neighbours, double[] distances, int from, int to) {
+		for(int i = from + 1; i < to; i++) {
+			int neighbour = neighbours[i];
+			double distance = distances[i];
+			int j = i - 1;
+			while(j >= from && neighbours[j] > neighbour) {
+				neighbours[j + 1] = neighbours[j];
+				distances[j + 1] = distances[j];
+				j--;
+			}
+			neighbours[j + 1] = neighbour;
+			distances[j + 1] = distance;
+		}
+	}
+
+}
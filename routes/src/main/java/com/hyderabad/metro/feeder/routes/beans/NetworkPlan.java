@@ -0,0 +1,86 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+import java.util.BitSet;
+import java.util.Map;
+
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+
+//Routes and fleet sizes of one network version together with the state needed to replan it
+public class NetworkPlan {
+	
+	private final NetworkSnapshot network;
+	
+	private final PlanningParameters parameters;
+	
+	private final NeighbourIndex neighbourIndex;
+	
+	private final BitSet originMetros;
+	
+	//Keyed by origin metro in station ID order
+	private final Map<Node, Route> routes;
+	
+	//Routes as route generation built them, the same as routes unless route improvement reordered them
+	private final Map<Node, Route> generatedRoutes;
+	
+	private final Map<Node, RouteMetrics> routeMetrics;
+	
+	private final Map<Node, Integer> fleetSizes;
+	
+	//Differences to the plan this one was derived from, null for a full plan
+	private final RouteChanges changes;
+	
+	public NetworkPlan(NetworkSnapshot network, PlanningParameters parameters, NeighbourIndex neighbourIndex, 
+			BitSet originMetros, Map<Node, Route> generatedRoutes, Map<Node, Route> routes, 
+			Map<Node, RouteMetrics> routeMetrics, Map<Node, Integer> fleetSizes, RouteChanges changes) {
+		this.network = network;
+		this.parameters = parameters;
+		this.neighbourIndex = neighbourIndex;
+		this.originMetros = (BitSet) originMetros.clone();
+		this.generatedRoutes = generatedRoutes;
+		this.routes = routes;
+		this.routeMetrics = routeMetrics;
+		this.fleetSizes = fleetSizes;
+		this.changes = changes;
+	}
+	
+	public NetworkSnapshot getNetwork() {
+		return network;
+	}
+	
+	public PlanningParameters getParameters() {
+		return parameters;
+	}
+	
+	public NeighbourIndex getNeighbourIndex() {
+		return neighbourIndex;
+	}
+	
+	public BitSet getOriginMetros() {
+		return (BitSet) originMetros.clone();
+	}
+	
+	public boolean isOrigin(int station) {
+		return originMetros.get(station);
+	}
+	
+	public Map<Node, Route> getRoutes() {
+		return routes;
+	}
+	
+	public Map<Node, Route> getGeneratedRoutes() {
+		return generatedRoutes;
+	}
+	
+	public Map<Node, RouteMetrics> getRouteMetrics() {
+		return routeMetrics;
+	}
+	
+	public Map<Node, Integer> getFleetSizes() {
+		return fleetSizes;
+	}
+	
+	public RouteChanges getChanges() {
+		return changes;
+	}
+
+}
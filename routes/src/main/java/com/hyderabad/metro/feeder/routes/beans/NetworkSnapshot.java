@@ -0,0 +1,136 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+//Matrices are kept in buffers so that they can live on the heap or in a memory mapped network file
+public class NetworkSnapshot implements Serializable {
+
+	//Marks a station pair without an integer cell in the Travel Demand Matrix
+	public static final int NO_DEMAND = -1;
+
+	public static final long serialVersionUID = 1L;
+
+	//Station headers as they appear in the OD Matrix ("<name> m" / "<name> b"), indexed by station ID
+	private final String[] stations;
+
+	//Flat N*N matrix, distances[source * N + target] is the weight of the edge source -> target
+	private final transient DoubleBuffer distances;
+
+	//Demand at each node, indexed by station ID
+	private final transient IntBuffer demands;
+
+	//Flat N*N Travel Demand Matrix, travelDemands[source * N + destination] or NO_DEMAND
+	private final transient IntBuffer travelDemands;
+
+	public NetworkSnapshot(String[] stations, double[] distances, int[] demands, int[] travelDemands) {
+		this(stations, DoubleBuffer.wrap(distances), IntBuffer.wrap(demands), IntBuffer.wrap(travelDemands));
+	}
+
+	//Buffers are only read with absolute gets, their positions and limits are never used
+	public NetworkSnapshot(String[] stations, DoubleBuffer distances, IntBuffer demands, IntBuffer travelDemands) {
+		int size = stations.length;
+		if(distances.capacity() != size * size || demands.capacity() != size 
+				|| travelDemands.capacity() != size * size) {
+			throw new IllegalArgumentException("Matrices do not match " + size + " stations");
+		}
+		this.stations = stations;
+		this.distances = distances;
+		this.demands = demands;
+		this.travelDemands = travelDemands;
+	}
+
+	//New version with other demands at each node, the matrices are shared with this snapshot
+	public NetworkSnapshot withDemands(int[] demands) {
+		if(demands.length != this.stations.length) {
+			throw new IllegalArgumentException("Expected " + this.stations.length + " demands, got " + demands.length);
+		}
+		return new NetworkSnapshot(this.stations, this.distances, IntBuffer.wrap(demands), this.travelDemands);
+	}
+	
+	//New version with other distances, e.g. computed on a road network, the demands are shared with this snapshot
+	public NetworkSnapshot withDistances(double[] distances) {
+		return new NetworkSnapshot(this.stations, DoubleBuffer.wrap(distances), this.demands, this.travelDemands);
+	}
+	
+	//Demand at each node and travel demands scaled by multiplier and rounded, the distances are shared
+	public NetworkSnapshot withScaledDemands(double multiplier) {
+		if(!(multiplier >= 0)) {
+			throw new IllegalArgumentException("Demand multiplier must not be negative, got " + multiplier);
+		}
+		int size = this.stations.length;
+		int[] demands = new int[size];
+		for(int id = 0; id < size; id++) {
+			demands[id] = (int) Math.round(this.demands.get(id) * multiplier);
+		}
+		int[] travelDemands = new int[size * size];
+		for(int index = 0; index < travelDemands.length; index++) {
+			int travelDemand = this.travelDemands.get(index);
+			travelDemands[index] = travelDemand == NO_DEMAND ? NO_DEMAND : (int) Math.round(travelDemand * multiplier);
+		}
+		return new NetworkSnapshot(this.stations, this.distances, IntBuffer.wrap(demands), IntBuffer.wrap(travelDemands));
+	}
+	
+	public int size() {
+		return this.stations.length;
+	}
+
+	public String getStation(int id) {
+		return this.stations[id];
+	}
+
+	public double getDistance(int source, int target) {
+		return this.distances.get(source * this.stations.length + target);
+	}
+
+	public int getDemand(int id) {
+		return this.demands.get(id);
+	}
+
+	public int getTravelDemand(int source, int destination) {
+		return this.travelDemands.get(source * this.stations.length + destination);
+	}
+
+	//Mapped buffers are not serializable, so snapshots are written as plain arrays
+	private Object writeReplace() throws ObjectStreamException {
+		double[] distances = new double[this.distances.capacity()];
+		int[] demands = new int[this.demands.capacity()];
+		int[] travelDemands = new int[this.travelDemands.capacity()];
+		for(int index = 0; index < distances.length; index++) {
+			distances[index] = this.distances.get(index);
+			travelDemands[index] = this.travelDemands.get(index);
+		}
+		for(int index = 0; index < demands.length; index++) {
+			demands[index] = this.demands.get(index);
+		}
+		return new SerializedForm(this.stations, distances, demands, travelDemands);
+	}
+
+	private static class SerializedForm implements Serializable {
+
+		public static final long serialVersionUID = 1L;
+
+		private final String[] stations;
+
+		private final double[] distances;
+
+		private final int[] demands;
+
+		private final int[] travelDemands;
+
+		SerializedForm(String[] stations, double[] distances, int[] demands, int[] travelDemands) {
+			this.stations = stations;
+			this.distances = distances;
+			this.demands = demands;
+			this.travelDemands = travelDemands;
+		}
+
+		private Object readResolve() throws ObjectStreamException {
+			return new NetworkSnapshot(this.stations, this.distances, this.demands, this.travelDemands);
+		}
+
+	}
+
+}
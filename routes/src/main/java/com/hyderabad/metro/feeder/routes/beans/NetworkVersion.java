@@ -0,0 +1,58 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+//One immutable network of a tenant, versions count up from 1 every time the tenant registers a different network
+public class NetworkVersion {
+
+	private final String tenant;
+
+	private final int version;
+
+	//SHA-256 of the stations, distances and demands, equal networks have equal digests
+	private final String digest;
+
+	private final NetworkSnapshot network;
+
+	private final long registeredAt;
+
+	public NetworkVersion(String tenant, int version, String digest, NetworkSnapshot network) {
+		this.tenant = tenant;
+		this.version = version;
+		this.digest = digest;
+		this.network = network;
+		this.registeredAt = System.currentTimeMillis();
+	}
+
+	public String getTenant() {
+		return tenant;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public String getDigest() {
+		return digest;
+	}
+
+	@JsonIgnore
+	public NetworkSnapshot getNetwork() {
+		return network;
+	}
+
+	public int getStationCount() {
+		return network.size();
+	}
+
+	//Distances, OD demands and stop demands held by the snapshot, the weight of the version in the registry
+	public long getSizeBytes() {
+		long size = network.size();
+		return size * size * (Double.BYTES + Integer.BYTES) + size * Integer.BYTES;
+	}
+
+	public long getRegisteredAt() {
+		return registeredAt;
+	}
+
+}
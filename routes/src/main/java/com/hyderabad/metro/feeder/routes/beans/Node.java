@@ -4,26 +4,48 @@ import java.io.Serializable;
 
 public class Node implements Serializable {
 	
+	//Station ID within its network, -1 for nodes created outside a StationRegistry
+	public final int id;
+	
 	public final String name;
 	
 	public final Boolean isMetro;
 	
 	public final Integer demand;
 	
+	//Precomputed so that graph and map lookups do not allocate
+	private final int hash;
+	
 	public static final long serialVersionUID = 1L;
 	
 	public Node(String name, Boolean isMetro, Integer demand) {
+		this(-1, name, isMetro, demand);
+	}
+	
+	public Node(int id, String name, Boolean isMetro, Integer demand) {
+		this.id = id;
 		this.name = name;
 		this.isMetro = isMetro;
 		this.demand = demand;
+		this.hash = 31 * (31 * (31 * id + name.hashCode()) + isMetro.hashCode()) + demand.hashCode();
 	}
 	
 	public boolean equals(Object object) {
-		return (object instanceof Node) && this.toString().equals(object.toString());
+		if(this == object) {
+			return true;
+		}
+		if(!(object instanceof Node)) {
+			return false;
+		}
+		Node node = (Node) object;
+		return this.hash == node.hash && this.id == node.id 
+				&& this.isMetro.booleanValue() == node.isMetro.booleanValue()
+				&& this.demand.intValue() == node.demand.intValue() 
+				&& this.name.equals(node.name);
 	}
 	
 	public int hashCode() {
-		return this.toString().hashCode();
+		return this.hash;
 	}
 	
 	public String toString() {
@@ -0,0 +1,44 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+import java.util.List;
+
+//Outcome of one planning run, the routes in origin order
+public class PlanResult {
+	
+	private final int stationCount;
+	
+	private final List<RouteSummary> routes;
+	
+	//Differences to the parent plan for demand replans, null for full plans
+	private final RouteChanges changes;
+	
+	private final long computeMillis;
+	
+	public PlanResult(int stationCount, List<RouteSummary> routes, RouteChanges changes, long computeMillis) {
+		this.stationCount = stationCount;
+		this.routes = routes;
+		this.changes = changes;
+		this.computeMillis = computeMillis;
+	}
+	
+	public int getStationCount() {
+		return stationCount;
+	}
+	
+	public List<RouteSummary> getRoutes() {
+		return routes;
+	}
+	
+	public int getTotalFleetSize() {
+		return routes.stream().mapToInt(RouteSummary::getFleetSize).sum();
+	}
+	
+	public RouteChanges getChanges() {
+		return changes;
+	}
+	
+	public long getComputeMillis() {
+		return computeMillis;
+	}
+
+}
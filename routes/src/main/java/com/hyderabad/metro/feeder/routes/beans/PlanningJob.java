@@ -0,0 +1,68 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+//Asynchronous planning run, identified by the hash of its inputs and parameters
+public class PlanningJob {
+	
+	public enum Status {
+		QUEUED, RUNNING, DONE, FAILED
+	}
+	
+	private final String id;
+	
+	private final long submittedAt;
+	
+	//Written by the worker thread and read by request threads
+	private volatile Status status = Status.QUEUED;
+	
+	private volatile long completedAt;
+	
+	private volatile PlanResult result;
+	
+	private volatile String error;
+	
+	public PlanningJob(String id) {
+		this.id = id;
+		this.submittedAt = System.currentTimeMillis();
+	}
+	
+	public void running() {
+		this.status = Status.RUNNING;
+	}
+	
+	public void done(PlanResult result) {
+		this.result = result;
+		this.completedAt = System.currentTimeMillis();
+		this.status = Status.DONE;
+	}
+	
+	public void failed(String error) {
+		this.error = error;
+		this.completedAt = System.currentTimeMillis();
+		this.status = Status.FAILED;
+	}
+	
+	public String getId() {
+		return id;
+	}
+	
+	public Status getStatus() {
+		return status;
+	}
+	
+	public long getSubmittedAt() {
+		return submittedAt;
+	}
+	
+	public long getCompletedAt() {
+		return completedAt;
+	}
+	
+	public PlanResult getResult() {
+		return result;
+	}
+	
+	public String getError() {
+		return error;
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Road distances between the stop nodes of a RoadNetwork, grown as stops are added so that no pair is searched
+//twice. Row major with a stride of capacity, unreachable pairs are infinite.
+//Not thread safe, DistanceMatrixService locks it while it is extended or read.
+public class RoadDistanceMatrix {
+
+	private final Map<Long, Integer> indexes = new HashMap<>();
+
+	private long[] nodes = new long[0];
+
+	private double[] distances = new double[0];
+
+	private int size;
+
+	private int capacity;
+
+	public int size() {
+		return this.size;
+	}
+
+	//-1 when the node has not been added
+	public int indexOf(long node) {
+		Integer index = this.indexes.get(node);
+		return index == null ? -1 : index;
+	}
+
+	public long getNode(int index) {
+		return this.nodes[index];
+	}
+
+	public double getDistance(int source, int target) {
+		return this.distances[source * this.capacity + target];
+	}
+
+	public void setDistance(int source, int target, double distance) {
+		this.distances[source * this.capacity + target] = distance;
+	}
+
+	//Appends the nodes that are not in the matrix yet and returns the index of the first one. Their rows and
+	//columns are NaN, apart from the diagonal, until they are set.
+	public int add(List<Long> added) {
+		int start = this.size;
+		int size = this.size;
+		for(Long node: added) {
+			if(!this.indexes.containsKey(node)) {
+				this.indexes.put(node, size++);
+			}
+		}
+		if(size > this.capacity) {
+			this.grow(Math.max(size, this.capacity * 2));
+		}
+		if(size > this.nodes.length) {
+			this.nodes = Arrays.copyOf(this.nodes, this.capacity);
+		}
+		for(Long node: added) {
+			int index = this.indexes.get(node);
+			if(index >= start) {
+				this.nodes[index] = node;
+			}
+		}
+		for(int index = 0; index < size; index++) {
+			int from = index < start ? start : 0;
+			Arrays.fill(this.distances, index * this.capacity + from, index * this.capacity + size, Double.NaN);
+			if(index >= start) {
+				this.distances[index * this.capacity + index] = 0.0;
+			}
+		}
+		this.size = size;
+		return start;
+	}
+
+	private void grow(int capacity) {
+		double[] distances = new double[capacity * capacity];
+		for(int row = 0; row < this.size; row++) {
+			System.arraycopy(this.distances, row * this.capacity, distances, row * capacity, this.size);
+		}
+		this.distances = distances;
+		this.capacity = capacity;
+	}
+
+}
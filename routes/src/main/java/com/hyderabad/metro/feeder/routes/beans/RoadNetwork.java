@@ -0,0 +1,65 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+import org.jgrapht.Graph;
+import org.jgrapht.alg.shortestpath.ContractionHierarchyPrecomputation;
+import org.jgrapht.alg.shortestpath.ContractionHierarchyPrecomputation.ContractionHierarchy;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.EdgeReversedGraph;
+
+//Road graph the stop to stop distances are computed on. Vertices are the node IDs of the edge list, edge
+//weights are lengths in KMs. The graph is never modified once it is read, so searches share it across threads.
+public class RoadNetwork {
+
+	private final Graph<Long, DefaultWeightedEdge> graph;
+
+	private final Graph<Long, DefaultWeightedEdge> reversedGraph;
+
+	//SHA-256 of the edge list
+	private final String digest;
+
+	//Distances between every stop node searched so far
+	private final RoadDistanceMatrix distanceMatrix = new RoadDistanceMatrix();
+
+	private ContractionHierarchy<Long, DefaultWeightedEdge> contractionHierarchy;
+
+	public RoadNetwork(Graph<Long, DefaultWeightedEdge> graph, String digest) {
+		this.graph = graph;
+		this.reversedGraph = new EdgeReversedGraph<>(graph);
+		this.digest = digest;
+	}
+
+	public Graph<Long, DefaultWeightedEdge> getGraph() {
+		return this.graph;
+	}
+
+	//Searches on the reversed graph find the distances to their start node
+	public Graph<Long, DefaultWeightedEdge> getReversedGraph() {
+		return this.reversedGraph;
+	}
+
+	public String getDigest() {
+		return this.digest;
+	}
+
+	public RoadDistanceMatrix getDistanceMatrix() {
+		return this.distanceMatrix;
+	}
+
+	//Contracted on first use only, later stops reuse the hierarchy
+	public synchronized ContractionHierarchy<Long, DefaultWeightedEdge> getContractionHierarchy(int parallelism) {
+		if(this.contractionHierarchy == null) {
+			this.contractionHierarchy = new ContractionHierarchyPrecomputation<>(this.graph, parallelism)
+					.computeContractionHierarchy();
+		}
+		return this.contractionHierarchy;
+	}
+
+	public int nodeCount() {
+		return this.graph.vertexSet().size();
+	}
+
+	public int edgeCount() {
+		return this.graph.edgeSet().size();
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DirectedWeightedMultigraph;
+
+//Immutable feeder route, the ordered stops from the origin metro with the distance of every leg.
+public class Route implements Serializable {
+	
+	public static final long serialVersionUID = 1L;
+	
+	private final Node[] stops;
+	
+	private final int[] stopIds;
+	
+	//legDistances[i] is the distance from stop i to stop i + 1
+	private final double[] legDistances;
+	
+	//cumulativeDistances[i] is the distance travelled from the origin up to stop i
+	private final double[] cumulativeDistances;
+	
+	public Route(Node[] stops, double[] legDistances) {
+		if(stops.length == 0 || legDistances.length != stops.length - 1) {
+			throw new IllegalArgumentException("A route needs an origin and one distance per leg");
+		}
+		this.stops = stops.clone();
+		this.legDistances = legDistances.clone();
+		this.stopIds = new int[stops.length];
+		this.cumulativeDistances = new double[stops.length];
+		for(int index = 0; index < stops.length; index++) {
+			this.stopIds[index] = stops[index].id;
+			if(index > 0) {
+				this.cumulativeDistances[index] = this.cumulativeDistances[index - 1] + legDistances[index - 1];
+			}
+		}
+	}
+	
+	public Node getOrigin() {
+		return this.stops[0];
+	}
+	
+	public int getStopCount() {
+		return this.stops.length;
+	}
+	
+	public Node getStop(int index) {
+		return this.stops[index];
+	}
+	
+	public int getStopId(int index) {
+		return this.stopIds[index];
+	}
+	
+	public int[] getStopIds() {
+		return this.stopIds.clone();
+	}
+	
+	public double getLegDistance(int index) {
+		return this.legDistances[index];
+	}
+	
+	public double getCumulativeDistance(int index) {
+		return this.cumulativeDistances[index];
+	}
+	
+	public double getLength() {
+		return this.cumulativeDistances[this.cumulativeDistances.length - 1];
+	}
+	
+	//Builds the JGraphT representation used by the fleet adjustment and the exporters
+	public Graph<Node, Edge> toGraph() {
+		DirectedWeightedMultigraph<Node, Edge> routeGraph = 
+				new DirectedWeightedMultigraph<Node, Edge>(Edge.class);
+		routeGraph.addVertex(this.stops[0]);
+		for(int index = 1; index < this.stops.length; index++) {
+			Edge edge = new Edge(this.stops[index - 1], this.stops[index], this.legDistances[index - 1]);
+			routeGraph.addVertex(this.stops[index]);
+			routeGraph.addEdge(this.stops[index - 1], this.stops[index], edge);
+			routeGraph.setEdgeWeight(edge, edge.getWeight());
+		}
+		return routeGraph;
+	}
+	
+	public boolean equals(Object object) {
+		if(this == object) {
+			return true;
+		}
+		if(!(object instanceof Route)) {
+			return false;
+		}
+		Route route = (Route) object;
+		return Arrays.equals(this.stops, route.stops) && Arrays.equals(this.legDistances, route.legDistances);
+	}
+	
+	public int hashCode() {
+		return 31 * Arrays.hashCode(this.stops) + Arrays.hashCode(this.legDistances);
+	}
+	
+	public String toString() {
+		StringBuilder builder = new StringBuilder(this.stops[0].name);
+		for(int index = 1; index < this.stops.length; index++) {
+			builder.append(" -> ").append(this.stops[index].name);
+		}
+		return builder.append("; Distance: ").append(this.getLength()).append(" KMs").toString();
+	}
+
+}
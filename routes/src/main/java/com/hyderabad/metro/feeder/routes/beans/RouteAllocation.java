@@ -0,0 +1,63 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+//Buses of one route in a global fleet allocation
+public class RouteAllocation {
+	
+	private final String origin;
+	
+	private final int fleetSize;
+	
+	//Fewest buses that keep the peak leg within maxBusCapacity
+	private final int minimumFleetSize;
+	
+	//Fleet size with the lowest cost of the route when the total fleet is not limited
+	private final int optimalFleetSize;
+	
+	//Minutes between buses, 0 for a route without buses
+	private final double headway;
+	
+	//Waiting plus vehicle cost per hour
+	private final double cost;
+	
+	private final FleetAllocation.Constraint bindingConstraint;
+	
+	public RouteAllocation(String origin, int fleetSize, int minimumFleetSize, int optimalFleetSize, double headway, 
+			double cost, FleetAllocation.Constraint bindingConstraint) {
+		this.origin = origin;
+		this.fleetSize = fleetSize;
+		this.minimumFleetSize = minimumFleetSize;
+		this.optimalFleetSize = optimalFleetSize;
+		this.headway = headway;
+		this.cost = cost;
+		this.bindingConstraint = bindingConstraint;
+	}
+	
+	public String getOrigin() {
+		return origin;
+	}
+	
+	public int getFleetSize() {
+		return fleetSize;
+	}
+	
+	public int getMinimumFleetSize() {
+		return minimumFleetSize;
+	}
+	
+	public int getOptimalFleetSize() {
+		return optimalFleetSize;
+	}
+	
+	public double getHeadway() {
+		return headway;
+	}
+	
+	public double getCost() {
+		return cost;
+	}
+	
+	public FleetAllocation.Constraint getBindingConstraint() {
+		return bindingConstraint;
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Origin metros whose route or fleet size differs from the previous plan
+public class RouteChanges {
+	
+	//Metros that became origins
+	private final List<String> added = new ArrayList<>();
+	
+	//Metros that are no longer origins
+	private final List<String> removed = new ArrayList<>();
+	
+	//Routes with another sequence of stops
+	private final List<String> rerouted = new ArrayList<>();
+	
+	//Routes whose fleet size changed, the fleet formulas share the travel time over all routes
+	private final List<String> resized = new ArrayList<>();
+	
+	//Routes generated again because a changed station was on them or could have been picked on them
+	private int recomputedRoutes;
+	
+	public void added(Node origin) {
+		this.added.add(origin.name);
+	}
+	
+	public void removed(Node origin) {
+		this.removed.add(origin.name);
+	}
+	
+	public void rerouted(Node origin) {
+		this.rerouted.add(origin.name);
+	}
+	
+	public void resized(Node origin) {
+		this.resized.add(origin.name);
+	}
+	
+	public void recomputed() {
+		this.recomputedRoutes++;
+	}
+	
+	public List<String> getAdded() {
+		return added;
+	}
+	
+	public List<String> getRemoved() {
+		return removed;
+	}
+	
+	public List<String> getRerouted() {
+		return rerouted;
+	}
+	
+	public List<String> getResized() {
+		return resized;
+	}
+	
+	public int getRecomputedRoutes() {
+		return recomputedRoutes;
+	}
+	
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && rerouted.isEmpty() && resized.isEmpty();
+	}
+
+}
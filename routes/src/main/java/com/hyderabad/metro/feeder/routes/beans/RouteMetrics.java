@@ -0,0 +1,57 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+import java.io.Serializable;
+
+//Per route aggregates used by the fleet size and headway formulas, computed once per route
+public class RouteMetrics implements Serializable {
+	
+	public static final long serialVersionUID = 1L;
+	
+	//Sum of the leg distances in KMs
+	private final double length;
+	
+	private final int stopCount;
+	
+	//Running time over the route length in hours
+	private final double travelTime;
+	
+	//Sum of the scaled travel demand of all legs
+	private final int demandSum;
+	
+	//Highest scaled travel demand of a leg, Integer.MIN_VALUE for a route without legs
+	private final int peakDemand;
+	
+	public RouteMetrics(double length, int stopCount, double travelTime, int demandSum, int peakDemand) {
+		this.length = length;
+		this.stopCount = stopCount;
+		this.travelTime = travelTime;
+		this.demandSum = demandSum;
+		this.peakDemand = peakDemand;
+	}
+	
+	public double getLength() {
+		return length;
+	}
+	
+	public int getStopCount() {
+		return stopCount;
+	}
+	
+	public double getTravelTime() {
+		return travelTime;
+	}
+	
+	public int getDemandSum() {
+		return demandSum;
+	}
+	
+	public int getPeakDemand() {
+		return peakDemand;
+	}
+	
+	public String toString() {
+		return "Length: " + this.length + " KMs; Stops: " + this.stopCount + "; Travel time: " 
+				+ this.travelTime + " Hours; Demand: " + this.demandSum + "; Peak demand: " + this.peakDemand;
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Response view of one generated route with its fleet size
+public class RouteSummary {
+	
+	private final String origin;
+	
+	//Station names in travel order, the origin metro first
+	private final List<String> stops;
+	
+	private final double length;
+	
+	private final double travelTime;
+	
+	private final int demandSum;
+	
+	private final Integer fleetSize;
+	
+	public RouteSummary(Route route, RouteMetrics metrics, Integer fleetSize) {
+		this.origin = route.getOrigin().name;
+		this.stops = new ArrayList<>(route.getStopCount());
+		for(int index = 0; index < route.getStopCount(); index++) {
+			this.stops.add(route.getStop(index).name);
+		}
+		this.length = metrics.getLength();
+		this.travelTime = metrics.getTravelTime();
+		this.demandSum = metrics.getDemandSum();
+		this.fleetSize = fleetSize;
+	}
+	
+	public String getOrigin() {
+		return origin;
+	}
+	
+	public List<String> getStops() {
+		return stops;
+	}
+	
+	public int getStopCount() {
+		return stops.size();
+	}
+	
+	public double getLength() {
+		return length;
+	}
+	
+	public double getTravelTime() {
+		return travelTime;
+	}
+	
+	public int getDemandSum() {
+		return demandSum;
+	}
+	
+	public Integer getFleetSize() {
+		return fleetSize;
+	}
+
+}
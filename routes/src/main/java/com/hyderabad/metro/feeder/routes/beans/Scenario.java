@@ -0,0 +1,36 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+
+//One point of a what-if sweep over a shared base network
+public class Scenario {
+	
+	private final String name;
+	
+	private final PlanningParameters parameters;
+	
+	//Scales the demand at each node and the travel demands of the base network
+	private final double demandMultiplier;
+	
+	public Scenario(String name, PlanningParameters parameters, double demandMultiplier) {
+		if(!(demandMultiplier >= 0)) {
+			throw new IllegalArgumentException("Demand multiplier must not be negative, got " + demandMultiplier);
+		}
+		this.name = name;
+		this.parameters = parameters;
+		this.demandMultiplier = demandMultiplier;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public PlanningParameters getParameters() {
+		return parameters;
+	}
+	
+	public double getDemandMultiplier() {
+		return demandMultiplier;
+	}
+
+}
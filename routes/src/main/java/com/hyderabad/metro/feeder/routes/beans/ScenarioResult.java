@@ -0,0 +1,81 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+//One row of the scenario comparison table, headways in minutes and lengths in KMs
+public class ScenarioResult {
+	
+	private final String name;
+	
+	private final double demandMultiplier;
+	
+	private final int routeCount;
+	
+	private final int totalFleetSize;
+	
+	private final double minHeadway;
+	
+	private final double meanHeadway;
+	
+	private final double maxHeadway;
+	
+	private final double meanRouteLength;
+	
+	private final double maxRouteLength;
+	
+	private final double totalRouteLength;
+	
+	public ScenarioResult(String name, double demandMultiplier, int routeCount, int totalFleetSize, 
+			double minHeadway, double meanHeadway, double maxHeadway, 
+			double meanRouteLength, double maxRouteLength, double totalRouteLength) {
+		this.name = name;
+		this.demandMultiplier = demandMultiplier;
+		this.routeCount = routeCount;
+		this.totalFleetSize = totalFleetSize;
+		this.minHeadway = minHeadway;
+		this.meanHeadway = meanHeadway;
+		this.maxHeadway = maxHeadway;
+		this.meanRouteLength = meanRouteLength;
+		this.maxRouteLength = maxRouteLength;
+		this.totalRouteLength = totalRouteLength;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public double getDemandMultiplier() {
+		return demandMultiplier;
+	}
+	
+	public int getRouteCount() {
+		return routeCount;
+	}
+	
+	public int getTotalFleetSize() {
+		return totalFleetSize;
+	}
+	
+	public double getMinHeadway() {
+		return minHeadway;
+	}
+	
+	public double getMeanHeadway() {
+		return meanHeadway;
+	}
+	
+	public double getMaxHeadway() {
+		return maxHeadway;
+	}
+	
+	public double getMeanRouteLength() {
+		return meanRouteLength;
+	}
+	
+	public double getMaxRouteLength() {
+		return maxRouteLength;
+	}
+	
+	public double getTotalRouteLength() {
+		return totalRouteLength;
+	}
+
+}
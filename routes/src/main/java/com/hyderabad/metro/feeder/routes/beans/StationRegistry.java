@@ -0,0 +1,59 @@
+package com.hyderabad.metro.feeder.routes.beans;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class StationRegistry {
+	
+	//One canonical Node per station, indexed by station ID
+	private final Node[] nodes;
+	
+	//Raw header name ("<name> m" / "<name> b") to station ID
+	private final Map<String, Integer> stationIds;
+	
+	public StationRegistry(NetworkSnapshot network) {
+		this.nodes = new Node[network.size()];
+		this.stationIds = new HashMap<>(network.size() * 2);
+		
+		for(int id = 0; id < network.size(); id++) {
+			String name = network.getStation(id);
+			this.nodes[id] = StationRegistry.createNode(id, name, network.getDemand(id));
+			this.stationIds.putIfAbsent(name, id);
+		}
+	}
+	
+	public static Node createNode(int id, String name, Integer demand) {
+		if(name.endsWith(" b")) {   //Check if the name ends with " b"
+			return new Node(id, name.substring(0, name.length() - 2), new Boolean(false), demand);
+		}
+		return new Node(id, name.substring(0, name.length() - 2), new Boolean(true), demand);
+	}
+	
+	public int size() {
+		return this.nodes.length;
+	}
+	
+	public Node getNode(int id) {
+		return this.nodes[id];
+	}
+	
+	//Returns null when the header is not a station of this network
+	public Node getNode(String name) {
+		Integer id = this.stationIds.get(name);
+		return id == null ? null : this.nodes[id];
+	}
+	
+	public Integer getId(String name) {
+		return this.stationIds.get(name);
+	}
+	
+	public List<Node> getNodes() {
+		List<Node> nodes = new ArrayList<>(this.nodes.length);
+		Collections.addAll(nodes, this.nodes);
+		return nodes;
+	}
+
+}
@@ -0,0 +1,10 @@
+package com.hyderabad.metro.feeder.routes.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(PlanningProfile.class)
+public class PlanningConfiguration {
+
+}
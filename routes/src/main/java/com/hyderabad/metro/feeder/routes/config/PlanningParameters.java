@@ -0,0 +1,160 @@
+package com.hyderabad.metro.feeder.routes.config;
+
+//Validated, immutable values of a PlanningProfile with the products the fleet formulas reuse precomputed
+public class PlanningParameters {
+	
+	public final double maxDistance;
+	
+	public final double minDistance;
+	
+	public final int minOriginDemand;
+	
+	public final boolean routeImprovement;
+	
+	public final int improvementStarts;
+	
+	public final long improvementBudgetMillis;
+	
+	public final boolean sparseGraph;
+	
+	public final int neighbours;
+	
+	public final double speedOfTheBus;
+	
+	public final double dwellTimeSeconds;
+	
+	//Dwell time converted to hours
+	public final double dwellTime;
+	
+	//Distance the bus could have covered while dwelling at one stop, dwellTime * speedOfTheBus
+	public final double dwellDistancePerStop;
+	
+	public final double unitWaitingCost;
+	
+	public final double unitVehicleCost;
+	
+	//2 * unitVehicleCost, vehicle cost of a round trip per hour
+	public final double roundTripVehicleCost;
+	
+	//unitWaitingCost * speedOfTheBus
+	public final double waitingCostPerSpeed;
+	
+	public final int multiplicationFactor;
+	
+	public final int busCapacity;
+	
+	public final int maxBusCapacity;
+	
+	public final int maxFleetSize;
+	
+	public final WorkbookLayout workbookLayout;
+	
+	private final String description;
+	
+	private PlanningParameters(PlanningProfile profile) {
+		this.maxDistance = profile.getMaxDistance();
+		this.minDistance = profile.getMinDistance();
+		this.minOriginDemand = profile.getMinOriginDemand();
+		this.routeImprovement = profile.isRouteImprovement();
+		this.improvementStarts = profile.getImprovementStarts();
+		this.improvementBudgetMillis = profile.getImprovementBudgetMillis();
+		this.sparseGraph = profile.isSparseGraph();
+		this.neighbours = profile.getNeighbours();
+		this.speedOfTheBus = profile.getSpeedOfTheBus();
+		this.dwellTimeSeconds = profile.getDwellTimeSeconds();
+		this.unitWaitingCost = profile.getUnitWaitingCost();
+		this.unitVehicleCost = profile.getUnitVehicleCost();
+		this.multiplicationFactor = profile.getMultiplicationFactor();
+		this.busCapacity = profile.getBusCapacity();
+		this.maxBusCapacity = profile.getMaxBusCapacity();
+		this.maxFleetSize = profile.getMaxFleetSize();
+		if(profile.getWorkbook() == null) {
+			throw new IllegalArgumentException("The workbook layout is required");
+		}
+		this.workbookLayout = new WorkbookLayout(profile.getWorkbook());
+		
+		if(!(this.minDistance >= 0 && this.maxDistance > this.minDistance)) {
+			throw new IllegalArgumentException("maxDistance must be greater than minDistance >= 0");
+		}
+		if(this.improvementStarts < 1 || this.improvementBudgetMillis < 0) {
+			throw new IllegalArgumentException("improvementStarts must be positive and improvementBudgetMillis not negative");
+		}
+		if(this.neighbours < 0) {
+			throw new IllegalArgumentException("neighbours must not be negative");
+		}
+		if(!(this.speedOfTheBus > 0) || !(this.dwellTimeSeconds >= 0)) {
+			throw new IllegalArgumentException("speedOfTheBus must be positive and dwellTimeSeconds not negative");
+		}
+		if(!(this.unitWaitingCost > 0) || !(this.unitVehicleCost > 0)) {
+			throw new IllegalArgumentException("Unit costs must be positive");
+		}
+		if(this.multiplicationFactor <= 0 || this.busCapacity <= 0 || this.maxBusCapacity < this.busCapacity 
+				|| this.maxFleetSize <= 0) {
+			throw new IllegalArgumentException("Capacities, fleet size and multiplicationFactor must be positive");
+		}
+		
+		this.dwellTime = this.dwellTimeSeconds / 3600;
+		this.dwellDistancePerStop = this.dwellTime * this.speedOfTheBus;
+		this.roundTripVehicleCost = 2 * this.unitVehicleCost;
+		this.waitingCostPerSpeed = this.unitWaitingCost * this.speedOfTheBus;
+		
+		this.description = "maxDistance=" + this.maxDistance + ";minDistance=" + this.minDistance 
+				+ ";minOriginDemand=" + this.minOriginDemand + ";routeImprovement=" + this.routeImprovement 
+				+ ";improvementStarts=" + this.improvementStarts + ";improvementBudgetMillis=" + this.improvementBudgetMillis 
+				+ ";sparseGraph=" + this.sparseGraph + ";neighbours=" + this.neighbours 
+				+ ";speedOfTheBus=" + this.speedOfTheBus 
+				+ ";dwellTimeSeconds=" + this.dwellTimeSeconds + ";unitWaitingCost=" + this.unitWaitingCost 
+				+ ";unitVehicleCost=" + this.unitVehicleCost + ";multiplicationFactor=" + this.multiplicationFactor 
+				+ ";busCapacity=" + this.busCapacity + ";maxBusCapacity=" + this.maxBusCapacity 
+				+ ";maxFleetSize=" + this.maxFleetSize + ";workbook=" + this.workbookLayout;
+	}
+	
+	public static PlanningParameters of(PlanningProfile profile) {
+		return new PlanningParameters(profile);
+	}
+	
+	public static PlanningParameters defaults() {
+		return new PlanningParameters(new PlanningProfile());
+	}
+	
+	//Round trip length of a route including the dwell at every stop, in KMs
+	public double cycleDistance(double length, int stopCount) {
+		return 2 * (length + this.dwellDistancePerStop * stopCount);
+	}
+	
+	public PlanningProfile toProfile() {
+		PlanningProfile profile = new PlanningProfile();
+		profile.setMaxDistance(this.maxDistance);
+		profile.setMinDistance(this.minDistance);
+		profile.setMinOriginDemand(this.minOriginDemand);
+		profile.setRouteImprovement(this.routeImprovement);
+		profile.setImprovementStarts(this.improvementStarts);
+		profile.setImprovementBudgetMillis(this.improvementBudgetMillis);
+		profile.setSparseGraph(this.sparseGraph);
+		profile.setNeighbours(this.neighbours);
+		profile.setSpeedOfTheBus(this.speedOfTheBus);
+		profile.setDwellTimeSeconds(this.dwellTimeSeconds);
+		profile.setUnitWaitingCost(this.unitWaitingCost);
+		profile.setUnitVehicleCost(this.unitVehicleCost);
+		profile.setMultiplicationFactor(this.multiplicationFactor);
+		profile.setBusCapacity(this.busCapacity);
+		profile.setMaxBusCapacity(this.maxBusCapacity);
+		profile.setMaxFleetSize(this.maxFleetSize);
+		profile.setWorkbook(this.workbookLayout.toWorkbook());
+		return profile;
+	}
+	
+	public boolean equals(Object object) {
+		return object instanceof PlanningParameters && this.description.equals(object.toString());
+	}
+	
+	public int hashCode() {
+		return this.description.hashCode();
+	}
+	
+	//Lists every value, so that it can be part of cache keys
+	public String toString() {
+		return this.description;
+	}
+
+}
@@ -0,0 +1,312 @@
+package com.hyderabad.metro.feeder.routes.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+//Model parameters as they are configured or sent with a request, see PlanningParameters for the values in use
+@ConfigurationProperties(prefix = "routes.planning.profile")
+public class PlanningProfile {
+	
+	//Route generation
+	private double maxDistance = 25.0; //KMs
+	
+	private double minDistance = 1.0; //KMs
+	
+	private int minOriginDemand = 7; //Metros with at least this demand are origins
+	
+	//Route improvement, 2-opt and Or-opt on every generated route
+	private boolean routeImprovement = false;
+	
+	private int improvementStarts = 4; //The greedy order and random orders of its stops
+	
+	private long improvementBudgetMillis = 20; //Per route
+	
+	//Sparse graph, only the stops within the route limits instead of the complete graph
+	private boolean sparseGraph = false;
+	
+	private int neighbours = 0; //Nearest stops kept per stop in a sparse graph, 0 keeps all of them
+	
+	//Fleet adjustment
+	private double speedOfTheBus = 30; //Kmph
+	
+	//Meant to be 20 seconds, the original (20/60)/60 evaluated to 0 in integer arithmetic
+	private double dwellTimeSeconds = 0;
+	
+	private double unitWaitingCost = 108; //Rupees per Hour
+	
+	private double unitVehicleCost = 760; //Rupees per Hour
+	
+	private int multiplicationFactor = 8; //Based on the sample size
+	
+	private int busCapacity = 50; //Bus Capacity
+	
+	private int maxBusCapacity = 60; //Max Bus Capacity
+	
+	private int maxFleetSize = 74; //Buses per hour
+	
+	//Sheets and ranges of the network workbook
+	private Workbook workbook = new Workbook();
+	
+	public double getMaxDistance() {
+		return maxDistance;
+	}
+	
+	public void setMaxDistance(double maxDistance) {
+		this.maxDistance = maxDistance;
+	}
+	
+	public double getMinDistance() {
+		return minDistance;
+	}
+	
+	public void setMinDistance(double minDistance) {
+		this.minDistance = minDistance;
+	}
+	
+	public int getMinOriginDemand() {
+		return minOriginDemand;
+	}
+	
+	public void setMinOriginDemand(int minOriginDemand) {
+		this.minOriginDemand = minOriginDemand;
+	}
+	
+	public double getSpeedOfTheBus() {
+		return speedOfTheBus;
+	}
+	
+	public void setSpeedOfTheBus(double speedOfTheBus) {
+		this.speedOfTheBus = speedOfTheBus;
+	}
+	
+	public double getDwellTimeSeconds() {
+		return dwellTimeSeconds;
+	}
+	
+	public void setDwellTimeSeconds(double dwellTimeSeconds) {
+		this.dwellTimeSeconds = dwellTimeSeconds;
+	}
+	
+	public double getUnitWaitingCost() {
+		return unitWaitingCost;
+	}
+	
+	public void setUnitWaitingCost(double unitWaitingCost) {
+		this.unitWaitingCost = unitWaitingCost;
+	}
+	
+	public double getUnitVehicleCost() {
+		return unitVehicleCost;
+	}
+	
+	public void setUnitVehicleCost(double unitVehicleCost) {
+		this.unitVehicleCost = unitVehicleCost;
+	}
+	
+	public int getMultiplicationFactor() {
+		return multiplicationFactor;
+	}
+	
+	public void setMultiplicationFactor(int multiplicationFactor) {
+		this.multiplicationFactor = multiplicationFactor;
+	}
+	
+	public int getBusCapacity() {
+		return busCapacity;
+	}
+	
+	public void setBusCapacity(int busCapacity) {
+		this.busCapacity = busCapacity;
+	}
+	
+	public int getMaxBusCapacity() {
+		return maxBusCapacity;
+	}
+	
+	public void setMaxBusCapacity(int maxBusCapacity) {
+		this.maxBusCapacity = maxBusCapacity;
+	}
+	
+	public boolean isRouteImprovement() {
+		return routeImprovement;
+	}
+	
+	public void setRouteImprovement(boolean routeImprovement) {
+		this.routeImprovement = routeImprovement;
+	}
+	
+	public int getImprovementStarts() {
+		return improvementStarts;
+	}
+	
+	public void setImprovementStarts(int improvementStarts) {
+		this.improvementStarts = improvementStarts;
+	}
+	
+	public long getImprovementBudgetMillis() {
+		return improvementBudgetMillis;
+	}
+	
+	public void setImprovementBudgetMillis(long improvementBudgetMillis) {
+		this.improvementBudgetMillis = improvementBudgetMillis;
+	}
+	
+	public boolean isSparseGraph() {
+		return sparseGraph;
+	}
+	
+	public void setSparseGraph(boolean sparseGraph) {
+		this.sparseGraph = sparseGraph;
+	}
+	
+	public int getNeighbours() {
+		return neighbours;
+	}
+	
+	public void setNeighbours(int neighbours) {
+		this.neighbours = neighbours;
+	}
+	
+	public int getMaxFleetSize() {
+		return maxFleetSize;
+	}
+	
+	public void setMaxFleetSize(int maxFleetSize) {
+		this.maxFleetSize = maxFleetSize;
+	}
+	
+	public Workbook getWorkbook() {
+		return workbook;
+	}
+	
+	public void setWorkbook(Workbook workbook) {
+		this.workbook = workbook;
+	}
+	
+	public static class Workbook {
+		
+		//OD Matrix Values
+		private String odSheetName = "Matrix";
+		private int startRow = 0;
+		private int endRow = 140;
+		private int startColumn = 0;
+		private int endColumn = 140;
+		
+		//Demand Values
+		private String demandSheetName = "Demand at each node";
+		private int demandStartRow = 0;
+		private int demandEndRow = 140;
+		
+		//Travel Demand Matrix
+		private String travelDemandSheetName = "Travel Demand Matrix";
+		private int travelDemandStartRow = 0;
+		private int travelDemandEndRow = 141;
+		private int travelDemandStartColumn = 0;
+		private int travelDemandEndColumn = 141;
+		
+		public String getOdSheetName() {
+			return odSheetName;
+		}
+		
+		public void setOdSheetName(String odSheetName) {
+			this.odSheetName = odSheetName;
+		}
+		
+		public int getStartRow() {
+			return startRow;
+		}
+		
+		public void setStartRow(int startRow) {
+			this.startRow = startRow;
+		}
+		
+		public int getEndRow() {
+			return endRow;
+		}
+		
+		public void setEndRow(int endRow) {
+			this.endRow = endRow;
+		}
+		
+		public int getStartColumn() {
+			return startColumn;
+		}
+		
+		public void setStartColumn(int startColumn) {
+			this.startColumn = startColumn;
+		}
+		
+		public int getEndColumn() {
+			return endColumn;
+		}
+		
+		public void setEndColumn(int endColumn) {
+			this.endColumn = endColumn;
+		}
+		
+		public String getDemandSheetName() {
+			return demandSheetName;
+		}
+		
+		public void setDemandSheetName(String demandSheetName) {
+			this.demandSheetName = demandSheetName;
+		}
+		
+		public int getDemandStartRow() {
+			return demandStartRow;
+		}
+		
+		public void setDemandStartRow(int demandStartRow) {
+			this.demandStartRow = demandStartRow;
+		}
+		
+		public int getDemandEndRow() {
+			return demandEndRow;
+		}
+		
+		public void setDemandEndRow(int demandEndRow) {
+			this.demandEndRow = demandEndRow;
+		}
+		
+		public String getTravelDemandSheetName() {
+			return travelDemandSheetName;
+		}
+		
+		public void setTravelDemandSheetName(String travelDemandSheetName) {
+			this.travelDemandSheetName = travelDemandSheetName;
+		}
+		
+		public int getTravelDemandStartRow() {
+			return travelDemandStartRow;
+		}
+		
+		public void setTravelDemandStartRow(int travelDemandStartRow) {
+			this.travelDemandStartRow = travelDemandStartRow;
+		}
+		
+		public int getTravelDemandEndRow() {
+			return travelDemandEndRow;
+		}
+		
+		public void setTravelDemandEndRow(int travelDemandEndRow) {
+			this.travelDemandEndRow = travelDemandEndRow;
+		}
+		
+		public int getTravelDemandStartColumn() {
+			return travelDemandStartColumn;
+		}
+		
+		public void setTravelDemandStartColumn(int travelDemandStartColumn) {
+			this.travelDemandStartColumn = travelDemandStartColumn;
+		}
+		
+		public int getTravelDemandEndColumn() {
+			return travelDemandEndColumn;
+		}
+		
+		public void setTravelDemandEndColumn(int travelDemandEndColumn) {
+			this.travelDemandEndColumn = travelDemandEndColumn;
+		}
+		
+	}
+
+}
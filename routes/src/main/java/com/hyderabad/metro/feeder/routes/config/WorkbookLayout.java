@@ -0,0 +1,104 @@
+package com.hyderabad.metro.feeder.routes.config;
+
+//Immutable copy of the sheets and ranges of a network workbook
+public class WorkbookLayout {
+	
+	//End row or column that is detected from the header row or the last row of the sheet
+	public final static int DETECT = -1;
+	
+	public final String odSheetName;
+	public final int startRow;
+	public final int endRow;
+	public final int startColumn;
+	public final int endColumn;
+	
+	public final String demandSheetName;
+	public final int demandStartRow;
+	public final int demandEndRow;
+	
+	public final String travelDemandSheetName;
+	public final int travelDemandStartRow;
+	public final int travelDemandEndRow;
+	public final int travelDemandStartColumn;
+	public final int travelDemandEndColumn;
+	
+	public WorkbookLayout(PlanningProfile.Workbook workbook) {
+		this.odSheetName = workbook.getOdSheetName();
+		this.startRow = workbook.getStartRow();
+		this.endRow = workbook.getEndRow();
+		this.startColumn = workbook.getStartColumn();
+		this.endColumn = workbook.getEndColumn();
+		this.demandSheetName = workbook.getDemandSheetName();
+		this.demandStartRow = workbook.getDemandStartRow();
+		this.demandEndRow = workbook.getDemandEndRow();
+		this.travelDemandSheetName = workbook.getTravelDemandSheetName();
+		this.travelDemandStartRow = workbook.getTravelDemandStartRow();
+		this.travelDemandEndRow = workbook.getTravelDemandEndRow();
+		this.travelDemandStartColumn = workbook.getTravelDemandStartColumn();
+		this.travelDemandEndColumn = workbook.getTravelDemandEndColumn();
+		
+		if(this.odSheetName == null || this.demandSheetName == null || this.travelDemandSheetName == null) {
+			throw new IllegalArgumentException("Sheet names are required");
+		}
+		if(this.startRow < 0 || this.startColumn < 0 || this.demandStartRow < 0 || this.travelDemandStartRow < 0 
+				|| this.travelDemandStartColumn < 0) {
+			throw new IllegalArgumentException("Sheet ranges start at row and column 0");
+		}
+		if(isEmpty(this.startRow, this.endRow) || isEmpty(this.startColumn, this.endColumn) 
+				|| (this.demandEndRow != DETECT && this.demandEndRow < this.demandStartRow) 
+				|| isEmpty(this.travelDemandStartRow, this.travelDemandEndRow) 
+				|| isEmpty(this.travelDemandStartColumn, this.travelDemandEndColumn)) {
+			throw new IllegalArgumentException("Sheet ranges must not be empty");
+		}
+	}
+	
+	//The header row or column comes first, so a range has to end after its start
+	private static boolean isEmpty(int start, int end) {
+		return end != DETECT && end <= start;
+	}
+	
+	//Same sheets and start rows and columns, with every end detected from the sheets
+	public WorkbookLayout withDetectedEnds() {
+		PlanningProfile.Workbook workbook = this.toWorkbook();
+		workbook.setEndRow(DETECT);
+		workbook.setEndColumn(DETECT);
+		workbook.setDemandEndRow(DETECT);
+		workbook.setTravelDemandEndRow(DETECT);
+		workbook.setTravelDemandEndColumn(DETECT);
+		return new WorkbookLayout(workbook);
+	}
+	
+	public PlanningProfile.Workbook toWorkbook() {
+		PlanningProfile.Workbook workbook = new PlanningProfile.Workbook();
+		workbook.setOdSheetName(this.odSheetName);
+		workbook.setStartRow(this.startRow);
+		workbook.setEndRow(this.endRow);
+		workbook.setStartColumn(this.startColumn);
+		workbook.setEndColumn(this.endColumn);
+		workbook.setDemandSheetName(this.demandSheetName);
+		workbook.setDemandStartRow(this.demandStartRow);
+		workbook.setDemandEndRow(this.demandEndRow);
+		workbook.setTravelDemandSheetName(this.travelDemandSheetName);
+		workbook.setTravelDemandStartRow(this.travelDemandStartRow);
+		workbook.setTravelDemandEndRow(this.travelDemandEndRow);
+		workbook.setTravelDemandStartColumn(this.travelDemandStartColumn);
+		workbook.setTravelDemandEndColumn(this.travelDemandEndColumn);
+		return workbook;
+	}
+	
+	public boolean equals(Object object) {
+		return object instanceof WorkbookLayout && this.toString().equals(object.toString());
+	}
+	
+	public int hashCode() {
+		return this.toString().hashCode();
+	}
+	
+	public String toString() {
+		return this.odSheetName + "[" + this.startRow + ".." + this.endRow + ", " + this.startColumn + ".." + this.endColumn 
+				+ "]; " + this.demandSheetName + "[" + this.demandStartRow + ".." + this.demandEndRow + "]; " 
+				+ this.travelDemandSheetName + "[" + this.travelDemandStartRow + ".." + this.travelDemandEndRow + ", " 
+				+ this.travelDemandStartColumn + ".." + this.travelDemandEndColumn + "]";
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.hyderabad.metro.feeder.routes.controllers;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkVersion;
+import com.hyderabad.metro.feeder.routes.services.NetworkRegistry;
+import com.hyderabad.metro.feeder.routes.services.PlanningProfileService;
+
+@RestController
+@RequestMapping("/networks")
+public class NetworkController {
+
+	@Autowired
+	private NetworkRegistry networkRegistry;
+
+	@Autowired
+	private PlanningProfileService planningProfileService;
+
+	@GetMapping
+	public List<NetworkVersion> list() {
+		return networkRegistry.list();
+	}
+
+	//The network part is a workbook read with the workbook layout of the current profile, a zip of CSV files or a
+	//binary network file
+	@PostMapping("/{tenant}")
+	public ResponseEntity<NetworkVersion> register(@PathVariable String tenant,
+			@RequestParam("network") MultipartFile network) throws IOException {
+
+		if(network.isEmpty()) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The network file is empty");
+		}
+		try {
+			NetworkVersion version = networkRegistry.register(tenant, network.getBytes(),
+					planningProfileService.getParameters().workbookLayout);
+			return ResponseEntity.created(URI.create("/networks/" + tenant + "/" + version.getVersion())).body(version);
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+		}
+	}
+
+	@GetMapping("/{tenant}")
+	public NetworkVersion get(@PathVariable String tenant) {
+
+		NetworkVersion version = networkRegistry.get(tenant);
+		if(version == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No network of tenant " + tenant);
+		}
+		return version;
+	}
+
+	@GetMapping("/{tenant}/{version}")
+	public NetworkVersion get(@PathVariable String tenant, @PathVariable int version) {
+
+		NetworkVersion networkVersion = networkRegistry.get(tenant, version);
+		if(networkVersion == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No network of tenant " + tenant
+					+ " version " + version);
+		}
+		return networkVersion;
+	}
+
+	//Running jobs keep the versions they plan, later jobs of tenant get 404 until a new network is registered
+	@DeleteMapping("/{tenant}")
+	public ResponseEntity<Void> remove(@PathVariable String tenant) {
+
+		if(!networkRegistry.remove(tenant)) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No network of tenant " + tenant);
+		}
+		return ResponseEntity.noContent().build();
+	}
+
+}
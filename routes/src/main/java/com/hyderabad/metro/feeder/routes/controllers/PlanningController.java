@@ -0,0 +1,141 @@
+package com.hyderabad.metro.feeder.routes.controllers;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.hyderabad.metro.feeder.routes.beans.FleetAllocation;
+import com.hyderabad.metro.feeder.routes.beans.NetworkVersion;
+import com.hyderabad.metro.feeder.routes.beans.PlanningJob;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.services.NetworkRegistry;
+import com.hyderabad.metro.feeder.routes.services.PlanningProfileService;
+import com.hyderabad.metro.feeder.routes.services.PlanningService;
+
+@RestController
+@RequestMapping("/plans")
+public class PlanningController {
+	
+	@Autowired
+	private PlanningService planningService;
+	
+	@Autowired
+	private PlanningProfileService planningProfileService;
+	
+	@Autowired
+	private NetworkRegistry networkRegistry;
+	
+	//Without a network part the bundled Matrix.xlsx is planned. The optional profile part is JSON with the values
+	//that differ from the current profile, and a profile with unknown fields is rejected. tenant plans a network
+	//registered at /networks, its latest version unless version is given.
+	@PostMapping
+	public ResponseEntity<PlanningJob> submit(@RequestParam(value = "network", required = false) MultipartFile network, 
+			@RequestParam(value = "profile", required = false) String profile, 
+			@RequestParam(value = "tenant", required = false) String tenant, 
+			@RequestParam(value = "version", required = false) Integer version) throws IOException {
+		
+		PlanningParameters parameters;
+		try {
+			parameters = profile == null || profile.trim().isEmpty() ? planningProfileService.getParameters() 
+					: planningProfileService.resolve(planningProfileService.merge(
+							planningProfileService.getParameters().toProfile(), profile));
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid profile: " + e.getMessage(), e);
+		}
+		
+		PlanningJob job;
+		if(tenant != null) {
+			if(network != null && !network.isEmpty()) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Either a network or a tenant is planned");
+			}
+			NetworkVersion networkVersion = version == null ? networkRegistry.get(tenant) 
+					: networkRegistry.get(tenant, version);
+			if(networkVersion == null) {
+				throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No network of tenant " + tenant 
+						+ (version == null ? "" : " version " + version));
+			}
+			job = planningService.submit(networkVersion, parameters);
+		} else {
+			job = planningService.submit(network == null || network.isEmpty() ? null : network.getBytes(), parameters);
+		}
+		
+		//Completed jobs are served from the cache, the rest are polled at their location
+		if(job.getStatus() == PlanningJob.Status.DONE) {
+			return ResponseEntity.ok(job);
+		}
+		return ResponseEntity.accepted().location(URI.create("/plans/" + job.getId())).body(job);
+	}
+	
+	//Body maps station headers ("<name> m" / "<name> b") to the change of their demand
+	@PostMapping("/{id}/demand")
+	public PlanningJob replan(@PathVariable String id, @RequestBody Map<String, Integer> demandDeltas) {
+		
+		PlanningJob planned = planningService.getJob(id);
+		if(planned == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No planning job " + id);
+		}
+		try {
+			PlanningJob job = planningService.replan(id, demandDeltas);
+			if(job == null) {
+				throw this.notPlanned(planned);
+			}
+			return job;
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+		}
+	}
+	
+	//Global allocation of the fleet over the routes of a finished job
+	@GetMapping("/{id}/fleet")
+	public FleetAllocation allocateFleet(@PathVariable String id, 
+			@RequestParam(value = "maxFleetSize", required = false) Integer maxFleetSize) {
+		
+		PlanningJob planned = planningService.getJob(id);
+		if(planned == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No planning job " + id);
+		}
+		try {
+			FleetAllocation allocation = planningService.allocateFleet(id, maxFleetSize);
+			if(allocation == null) {
+				throw this.notPlanned(planned);
+			}
+			return allocation;
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+		}
+	}
+	
+	//Plans of finished jobs are dropped beyond routes.planning.max-plans, submitting the job again restores it
+	private ResponseStatusException notPlanned(PlanningJob job) {
+		
+		if(job.getStatus() == PlanningJob.Status.DONE) {
+			return new ResponseStatusException(HttpStatus.GONE, "The plan of job " + job.getId() 
+					+ " was dropped, submit it again");
+		}
+		return new ResponseStatusException(HttpStatus.CONFLICT, "Planning job " + job.getId() + " has not finished");
+	}
+	
+	@GetMapping("/{id}")
+	public PlanningJob getJob(@PathVariable String id) {
+		
+		PlanningJob job = planningService.getJob(id);
+		if(job == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No planning job " + id);
+		}
+		return job;
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.hyderabad.metro.feeder.routes.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.hyderabad.metro.feeder.routes.config.PlanningProfile;
+import com.hyderabad.metro.feeder.routes.services.PlanningProfileService;
+
+@RestController
+@RequestMapping("/profile")
+public class PlanningProfileController {
+	
+	@Autowired
+	private PlanningProfileService planningProfileService;
+	
+	@GetMapping
+	public PlanningProfile getProfile() {
+		return planningProfileService.getParameters().toProfile();
+	}
+	
+	//Replaces the default profile of later planning jobs, fields left out take their defaults and unknown fields
+	//are rejected
+	@PutMapping
+	public PlanningProfile updateProfile(@RequestBody JsonNode profile) {
+		try {
+			return planningProfileService.update(planningProfileService.merge(new PlanningProfile(), profile))
+					.toProfile();
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+		}
+	}
+
+}
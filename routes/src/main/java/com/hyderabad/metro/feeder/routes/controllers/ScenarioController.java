@@ -0,0 +1,164 @@
+package com.hyderabad.metro.feeder.routes.controllers;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.NetworkVersion;
+import com.hyderabad.metro.feeder.routes.beans.Scenario;
+import com.hyderabad.metro.feeder.routes.beans.ScenarioResult;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.config.PlanningProfile;
+import com.hyderabad.metro.feeder.routes.services.NetworkRegistry;
+import com.hyderabad.metro.feeder.routes.services.PlanningProfileService;
+import com.hyderabad.metro.feeder.routes.services.ScenarioService;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+
+@RestController
+@RequestMapping("/scenarios")
+public class ScenarioController {
+	
+	private static final String DEMAND_MULTIPLIER = "demandMultiplier";
+	
+	@Autowired
+	private ScenarioService scenarioService;
+	
+	@Autowired
+	private PlanningProfileService planningProfileService;
+	
+	@Autowired
+	private NetworkSnapshotLoader networkSnapshotLoader;
+	
+	@Autowired
+	private NetworkRegistry networkRegistry;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	//Body has an optional base "profile", a list of "scenarios" ({"name", "demandMultiplier", "profile"}) and a 
+	//"sweep" mapping profile fields or demandMultiplier to values, every combination of which is one more scenario.
+	//Profiles only list the values that differ from the current profile, and unknown fields in profiles or the sweep
+	//are rejected. tenant evaluates the latest network registered at /networks instead of the bundled one.
+	@PostMapping
+	public List<ScenarioResult> evaluate(@RequestBody ObjectNode request, 
+			@RequestParam(value = "tenant", required = false) String tenant) {
+		
+		PlanningParameters current = planningProfileService.getParameters();
+		List<Scenario> scenarios = new ArrayList<>();
+		try {
+			PlanningProfile base = this.merge(current.toProfile(), request.get("profile"));
+			
+			JsonNode explicit = request.path("scenarios");
+			for(int index = 0; index < explicit.size(); index++) {
+				JsonNode scenario = explicit.get(index);
+				scenarios.add(new Scenario(scenario.path("name").asText("scenario-" + (index + 1)), 
+						PlanningParameters.of(this.merge(this.copy(base), scenario.get("profile"))), 
+						scenario.path(DEMAND_MULTIPLIER).asDouble(1.0)));
+			}
+			
+			JsonNode sweep = request.get("sweep");
+			if(sweep != null && sweep.size() > 0) {
+				this.expandSweep(base, sweep, scenarios);
+			}
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid scenarios: " + e.getMessage(), e);
+		}
+		
+		//Every scenario is evaluated on the network read with the current workbook layout
+		for(Scenario scenario: scenarios) {
+			if(!scenario.getParameters().workbookLayout.equals(current.workbookLayout)) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, 
+						"Scenario " + scenario.getName() + " changes the workbook layout of the shared network");
+			}
+		}
+		
+		NetworkSnapshot network;
+		if(tenant == null) {
+			network = networkSnapshotLoader.getSnapshot(current.workbookLayout);
+		} else {
+			NetworkVersion networkVersion = networkRegistry.get(tenant);
+			if(networkVersion == null) {
+				throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No network of tenant " + tenant);
+			}
+			network = networkVersion.getNetwork();
+		}
+		
+		try {
+			return scenarioService.evaluate(network, scenarios);
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+		}
+	}
+	
+	//Cartesian product of the sweep values, the first field varies slowest
+	private void expandSweep(PlanningProfile base, JsonNode sweep, List<Scenario> scenarios) {
+		
+		List<String> fields = new ArrayList<>();
+		List<JsonNode> values = new ArrayList<>();
+		long combinations = 1;
+		for(Iterator<Map.Entry<String, JsonNode>> iterator = sweep.fields(); iterator.hasNext();) {
+			Map.Entry<String, JsonNode> field = iterator.next();
+			if(!field.getValue().isArray() || field.getValue().size() == 0) {
+				throw new IllegalArgumentException("Sweep values of " + field.getKey() + " must be a non empty array");
+			}
+			fields.add(field.getKey());
+			values.add(field.getValue());
+			combinations *= field.getValue().size();
+			if(scenarios.size() + combinations > scenarioService.getMaxCount()) {
+				throw new IllegalArgumentException("At most " + scenarioService.getMaxCount() 
+						+ " scenarios are evaluated at once");
+			}
+		}
+		
+		int[] positions = new int[fields.size()];
+		while(true) {
+			ObjectNode profile = objectMapper.createObjectNode();
+			StringBuilder name = new StringBuilder();
+			double demandMultiplier = 1.0;
+			for(int index = 0; index < fields.size(); index++) {
+				JsonNode value = values.get(index).get(positions[index]);
+				if(DEMAND_MULTIPLIER.equals(fields.get(index))) {
+					demandMultiplier = value.asDouble();
+				} else {
+					profile.set(fields.get(index), value);
+				}
+				name.append(index == 0 ? "" : ",").append(fields.get(index)).append('=').append(value.asText());
+			}
+			scenarios.add(new Scenario(name.toString(), PlanningParameters.of(this.merge(this.copy(base), profile)), 
+					demandMultiplier));
+			
+			//Advance the last field first, like an odometer
+			int index = fields.size() - 1;
+			while(index >= 0 && ++positions[index] == values.get(index).size()) {
+				positions[index--] = 0;
+			}
+			if(index < 0) {
+				return;
+			}
+		}
+	}
+	
+	//A misspelled sweep field would otherwise give identical scenarios whose names say they differ
+	private PlanningProfile merge(PlanningProfile profile, JsonNode overrides) {
+		return planningProfileService.merge(profile, overrides);
+	}
+	
+	private PlanningProfile copy(PlanningProfile profile) {
+		return objectMapper.convertValue(profile, PlanningProfile.class);
+	}
+
+}
@@ -1,94 +1,53 @@
 package com.hyderabad.metro.feeder.routes.services;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.logging.Logger;
 
 import org.jgrapht.graph.DirectedWeightedMultigraph;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.hyderabad.metro.feeder.routes.beans.DenseGraph;
 import com.hyderabad.metro.feeder.routes.beans.Edge;
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
 import com.hyderabad.metro.feeder.routes.beans.Node;
-import com.hyderabad.metro.feeder.routes.utils.ExcelUtility;
+import com.hyderabad.metro.feeder.routes.beans.StationRegistry;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+import com.hyderabad.metro.feeder.routes.utils.PipelineMetrics;
+
+import io.micrometer.core.instrument.Timer;
 
 @Service
 public class CreateGraph {
 	
 	@Autowired
-	private ExcelUtility excelUtility;
-	
-	private final static Logger LOGGER = Logger.getLogger(CreateGraph.class.getName());
-	
-	//OD Matrix Values
-	private String ODSheetName = "Matrix";
-	private Integer startRow = 0;
-	private Integer endRow = 140;
-	private Integer startColumn = 0;
-	private Integer endColumn = 140;
-	
-	//Demand Values
-	private String demandSheetName = "Demand at each node";
-	private Integer demandStartRow = 0;
-	private Integer demandEndRow = 140;
-	private Integer demandStartColumn = 0;
-	private Integer demandEndColumn = 1;
-	
-	private List<List<Object>> ODMatrix;
-	
-	private List<List<Object>> demandData;
+	private NetworkSnapshotLoader networkSnapshotLoader;
 	
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
 	
-	public List<List<Object>> fetchDataFromMatrix() {
-		
-		List<List<Object>> matrixData = excelUtility.readData(this.ODSheetName, 
-				this.startRow, this.endRow, this.startColumn, this.endColumn);
-		
-		
-		LOGGER.info(" OD Matrix retrieved successfully");
-		
-		return matrixData;
-	}
+	private final static Logger LOGGER = Logger.getLogger(CreateGraph.class.getName());
 	
-	public List<List<Object>> fetchDemandData() {
-		
-		List<List<Object>> demandData = excelUtility.readData(this.demandSheetName, 
-				this.demandStartRow, this.demandEndRow, this.demandStartColumn, this.demandEndColumn);
-		
-		LOGGER.info("Demand Data retrieved successfully");
+	//Graphs are built from the network passed in, the service keeps no state between calls
+	public List<Node> createNodes(NetworkSnapshot network) {
 		
-		return demandData;
+		return this.createNodes(network, new StationRegistry(network));
 	}
 	
-	public List<Node> createNodes() {
+	public List<Node> createNodes(NetworkSnapshot network, StationRegistry stationRegistry) {
 		
 		List<Node> nodes = new ArrayList<Node>();
 		
-		//Using a set to avoid duplicates while collecting station names
-		Set<String> stationNames = new HashSet<String>();
-		
-		//Get the first list and extract all names from it
-		for(Object name: this.ODMatrix.get(0)) {
-			stationNames.add(name.toString());
-		}
-		
-		//Get the first element from the rest of the lists in matrix data
-		for(int index = 1; index < this.ODMatrix.size(); index++) {
-			stationNames.add(this.ODMatrix.get(index).get(0).toString());
-		}
-		
-		//Create a new Node for each name in the set and push it to nodes list
-		for(String name: stationNames) {
-			Node stationNode = null;
+		//The registry already holds one Node per distinct station name
+		for(int id = 0; id < stationRegistry.size(); id++) {
 			//Check if the string is empty and skip the step
-			if(name.isEmpty()) {
+			if(network.getStation(id).isEmpty()) {
 				continue;
-			} else {
-				stationNode = this.createNode(name);
 			}
-			nodes.add(stationNode);
+			nodes.add(stationRegistry.getNode(id));
 		}
 		
 		LOGGER.info("Station names extracted");
@@ -97,38 +56,45 @@ public class CreateGraph {
 	
 	public DirectedWeightedMultigraph<Node, Edge> createGraph() {
 		
-		this.ODMatrix = this.fetchDataFromMatrix();
+		return this.createGraph(networkSnapshotLoader.getSnapshot());
+	}
+	
+	public DirectedWeightedMultigraph<Node, Edge> createGraph(NetworkSnapshot network) {
 		
-		this.demandData = this.fetchDemandData();
+		DirectedWeightedMultigraph<Node, Edge> graph = pipelineMetrics.time("graph.create", 
+				() -> this.buildGraph(network));
+		pipelineMetrics.graphCreated(graph.vertexSet().size(), graph.edgeSet().size());
+		return graph;
+	}
+	
+	private DirectedWeightedMultigraph<Node, Edge> buildGraph(NetworkSnapshot network) {
+		
+		StationRegistry stationRegistry = new StationRegistry(network);
 		
 		DirectedWeightedMultigraph<Node, Edge> graph = 
 				new DirectedWeightedMultigraph<Node, Edge>(Edge.class);
 		
-		List<Object> columnHeaders = this.ODMatrix.get(0);
-		for(int rowIndex = 1; rowIndex<this.ODMatrix.size(); rowIndex++) {
-			
-			String rowHeader = this.ODMatrix.get(rowIndex).get(0).toString();
-			Node rowNode = this.createNode(rowHeader);
-			graph.addVertex(rowNode);
+		int size = stationRegistry.size();
+		for(int id = 0; id < size; id++) {
+			graph.addVertex(stationRegistry.getNode(id));
+		}
+		
+		for(int target = 0; target < size; target++) {
 			
-			List<Object> row =  this.ODMatrix.get(rowIndex);
+			Node rowNode = stationRegistry.getNode(target);
 			
-			for(int columnIndex = 1; columnIndex < row.size(); columnIndex++) {
+			for(int source = 0; source < size; source++) {
 				
-				String columnHeader = columnHeaders.get(columnIndex).toString();
-				Node columnNode = this.createNode(columnHeader);
-				graph.addVertex(columnNode);
+				if(source == target) {
+					continue;
+				}
 				
-				Number weight = (Number) row.get(columnIndex);
+				Node columnNode = stationRegistry.getNode(source);
+				double weight = network.getDistance(source, target);
 				
-				if(columnNode.equals(rowNode)) {
-					continue;
-				} else {
-					//LOGGER.info(columnNode.toString() + " to " + rowNode.toString());
-					Edge edge = new Edge(columnNode, rowNode, weight.doubleValue()); 
-					graph.addEdge(columnNode, rowNode, edge);
-					graph.setEdgeWeight(edge, weight.doubleValue());
-				}				
+				Edge edge = new Edge(columnNode, rowNode, weight); 
+				graph.addEdge(columnNode, rowNode, edge);
+				graph.setEdgeWeight(edge, weight);
 			}
 			
 		}
@@ -137,26 +103,80 @@ public class CreateGraph {
 		return graph;
 	}
 	
-	public Node createNode(String name) {
-		Node stationNode = null;
+	public DenseGraph createDenseGraph() {
+		
+		return this.createDenseGraph(networkSnapshotLoader.getSnapshot());
+	}
+	
+	//Complete graph over the distance matrix without materializing the N^2 edges
+	public DenseGraph createDenseGraph(NetworkSnapshot network) {
+		
+		Timer.Sample sample = pipelineMetrics.startSample();
+		
+		DenseGraph graph = new DenseGraph(network, new StationRegistry(network));
+		
+		pipelineMetrics.stopSample(sample, "graph.dense");
+		long size = network.size();
+		pipelineMetrics.graphCreated(size, size * (size - 1));
+		
+		LOGGER.info("Dense graph created!");
+		return graph;
+	}
+	
+	//Sparse graph mode for networks too large for the complete graph. Only edges route generation can pick
+	//under the route limits of parameters are kept, at most parameters.neighbours per stop when it is positive.
+	public NeighbourIndex createNeighbourIndex(NetworkSnapshot network, PlanningParameters parameters) {
+		
+		Timer.Sample sample = pipelineMetrics.startSample();
 		
-		Integer demandAtNode = null;
+		NeighbourIndex neighbourIndex = NeighbourIndex.nearest(network, new StationRegistry(network), 
+				parameters.neighbours, parameters.minDistance, parameters.maxDistance);
+		
+		pipelineMetrics.stopSample(sample, "graph.sparse");
+		pipelineMetrics.graphCreated(neighbourIndex.size(), neighbourIndex.edgeCount());
+		
+		LOGGER.info("Sparse graph created with " + neighbourIndex.edgeCount() + " edges");
+		return neighbourIndex;
+	}
+	
+	//The edges of createNeighbourIndex as a JGraphT graph
+	public DirectedWeightedMultigraph<Node, Edge> createSparseGraph(NetworkSnapshot network, 
+			PlanningParameters parameters) {
 		
-		List<Object> demandList = this.demandData.stream()
-		.filter(row -> row.contains(name))
-		.findAny()
-		.orElse(null);
+		NeighbourIndex neighbourIndex = this.createNeighbourIndex(network, parameters);
 		
-		if(demandList != null) {
-			demandAtNode = (Integer) demandList.get(1);
-		} else {
-			demandAtNode = 0;
+		DirectedWeightedMultigraph<Node, Edge> graph = 
+				new DirectedWeightedMultigraph<Node, Edge>(Edge.class);
+		
+		for(int id = 0; id < neighbourIndex.size(); id++) {
+			graph.addVertex(neighbourIndex.getNode(id));
 		}
 		
-		if(name.endsWith(" b")) {   //Check if the name ends with " b"
-			stationNode = new Node(name.substring(0, name.length() - 2), new Boolean(false), demandAtNode);
-		} else {
-			stationNode = new Node(name.substring(0, name.length() - 2), new Boolean(true), demandAtNode);
+		for(int source = 0; source < neighbourIndex.size(); source++) {
+			
+			Node sourceNode = neighbourIndex.getNode(source);
+			
+			for(int position = neighbourIndex.getStart(source); position < neighbourIndex.getEnd(source); position++) {
+				
+				Node targetNode = neighbourIndex.getNode(neighbourIndex.getNeighbour(position));
+				double weight = neighbourIndex.getDistance(position);
+				
+				Edge edge = new Edge(sourceNode, targetNode, weight);
+				graph.addEdge(sourceNode, targetNode, edge);
+				graph.setEdgeWeight(edge, weight);
+			}
+		}
+		
+		return graph;
+	}
+	
+	public Node createNode(StationRegistry stationRegistry, String name) {
+		
+		Node stationNode = stationRegistry.getNode(name);
+		
+		//Stations missing from the network have no demand
+		if(stationNode == null) {
+			stationNode = StationRegistry.createNode(-1, name, 0);
 		}
 		return stationNode;
 	}
@@ -0,0 +1,292 @@
+package com.hyderabad.metro.feeder.routes.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ObjDoubleConsumer;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import org.jgrapht.Graph;
+import org.jgrapht.alg.interfaces.ManyToManyShortestPathsAlgorithm.ManyToManyShortestPaths;
+import org.jgrapht.alg.shortestpath.CHManyToManyShortestPaths;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.traverse.ClosestFirstIterator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.RoadDistanceMatrix;
+import com.hyderabad.metro.feeder.routes.beans.RoadNetwork;
+import com.hyderabad.metro.feeder.routes.utils.PipelineMetrics;
+import com.hyderabad.metro.feeder.routes.utils.RoadNetworkReader;
+
+//Stop to stop distances of the network computed as shortest paths on a road network instead of taken from the
+//OD Matrix. Distances of stops searched before are cached per road network, so new stops only cost their own
+//searches.
+@Service
+public class DistanceMatrixService {
+
+	private final static Logger LOGGER = Logger.getLogger(DistanceMatrixService.class.getName());
+
+	public final static String DIJKSTRA = "dijkstra";
+
+	public final static String CONTRACTION_HIERARCHIES = "ch";
+
+	@Autowired
+	private RoadNetworkReader roadNetworkReader;
+
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
+
+	//Edge list of the road network, empty keeps the distances of the network
+	@Value("${routes.road-network.edges:}")
+	private String edges = "";
+
+	//Road node of every station
+	@Value("${routes.road-network.stops:}")
+	private String stops = "";
+
+	//dijkstra or ch. Contraction hierarchies pay off when the same road network serves many full matrices, the
+	//hierarchy is kept with the road network. Many to many searches on it cost a search per cached stop as well,
+	//so added stops are cheaper with Dijkstra.
+	@Value("${routes.road-network.algorithm:dijkstra}")
+	private String algorithm = DIJKSTRA;
+
+	//Searches run concurrently, 0 uses every processor
+	@Value("${routes.road-network.parallelism:0}")
+	private int parallelism = 0;
+
+	//Road network of the configured edge list and the modification time it was read at
+	private RoadNetwork roadNetwork;
+
+	private FileTime roadNetworkTime;
+
+	//network with the distances of the configured road network, or network itself when there is none
+	public NetworkSnapshot withRoadDistances(NetworkSnapshot network) {
+		if(this.edges.isEmpty()) {
+			return network;
+		}
+		if(this.stops.isEmpty()) {
+			throw new IllegalStateException("routes.road-network.stops is required with routes.road-network.edges");
+		}
+		try {
+			return this.withRoadDistances(network, this.getRoadNetwork(),
+					roadNetworkReader.readStops(Paths.get(this.stops)));
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to read the road network " + this.edges, e);
+		}
+	}
+
+	//Identifies the configured edge list and stops, empty without a road network. Networks read before a change
+	//of either have to be given their road distances again.
+	public String getRoadNetworkKey() {
+		if(this.edges.isEmpty() || this.stops.isEmpty()) {
+			return "";
+		}
+		try {
+			return this.getRoadNetwork().getDigest() + ";" + Files.getLastModifiedTime(Paths.get(this.stops));
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to read the road network " + this.edges, e);
+		}
+	}
+
+	//The edge list is read again when it changes, which starts a new distance cache
+	public synchronized RoadNetwork getRoadNetwork() throws IOException {
+		Path file = Paths.get(this.edges);
+		FileTime time = Files.getLastModifiedTime(file);
+		if(this.roadNetwork == null || !time.equals(this.roadNetworkTime)) {
+			this.roadNetwork = pipelineMetrics.time("road.read", () -> {
+				try {
+					return roadNetworkReader.read(file);
+				} catch (IOException e) {
+					throw new IllegalStateException("Failed to read the road network " + file, e);
+				}
+			});
+			this.roadNetworkTime = time;
+		}
+		return this.roadNetwork;
+	}
+
+	//Stations missing from stopNodes keep the distances of network
+	public NetworkSnapshot withRoadDistances(NetworkSnapshot network, RoadNetwork road, Map<String, Long> stopNodes) {
+
+		int size = network.size();
+		List<Long> nodes = new ArrayList<>(size);
+		int[] indexes = new int[size];
+		Map<Long, Integer> nodeIndexes = new HashMap<>();
+		int unmapped = 0;
+		for(int id = 0; id < size; id++) {
+			Long node = stopNodes.get(network.getStation(id));
+			if(node == null) {
+				indexes[id] = -1;
+				unmapped++;
+				continue;
+			}
+			if(!road.getGraph().containsVertex(node)) {
+				throw new IllegalArgumentException("Road node " + node + " of " + network.getStation(id)
+						+ " is not in the road network");
+			}
+			Integer index = nodeIndexes.get(node);
+			if(index == null) {
+				index = nodes.size();
+				nodeIndexes.put(node, index);
+				nodes.add(node);
+			}
+			indexes[id] = index;
+		}
+		if(unmapped > 0) {
+			LOGGER.warning(unmapped + " stations have no road node, their distances are kept");
+		}
+
+		double[] roadDistances = this.distances(road, nodes);
+		double[] distances = new double[size * size];
+		for(int source = 0; source < size; source++) {
+			for(int target = 0; target < size; target++) {
+				distances[source * size + target] = indexes[source] < 0 || indexes[target] < 0 || source == target
+						? network.getDistance(source, target)
+						: roadDistances[indexes[source] * nodes.size() + indexes[target]];
+			}
+		}
+		return network.withDistances(distances);
+	}
+
+	public double[] distances(RoadNetwork road, List<Long> nodes) {
+		return this.distances(road, nodes, this.algorithm);
+	}
+
+	//Flat nodes.size() * nodes.size() matrix of the road distances between nodes, infinite when unreachable.
+	//algorithm is dijkstra or ch and only applies to the nodes that are not cached yet.
+	public double[] distances(RoadNetwork road, List<Long> nodes, String algorithm) {
+
+		RoadDistanceMatrix matrix = road.getDistanceMatrix();
+		synchronized (matrix) {
+			List<Long> added = new ArrayList<>();
+			for(Long node: new LinkedHashSet<>(nodes)) {
+				if(matrix.indexOf(node) < 0) {
+					added.add(node);
+				}
+			}
+			pipelineMetrics.cacheAccess("road-distances", added.isEmpty());
+			if(!added.isEmpty()) {
+				boolean contracted = CONTRACTION_HIERARCHIES.equals(algorithm);
+				pipelineMetrics.time("road.distances", () -> this.search(road, matrix, added, contracted));
+			}
+
+			int size = nodes.size();
+			int[] indexes = new int[size];
+			for(int index = 0; index < size; index++) {
+				indexes[index] = matrix.indexOf(nodes.get(index));
+			}
+			double[] distances = new double[size * size];
+			for(int source = 0; source < size; source++) {
+				for(int target = 0; target < size; target++) {
+					distances[source * size + target] = matrix.getDistance(indexes[source], indexes[target]);
+				}
+			}
+			return distances;
+		}
+	}
+
+	//Searches the rows of the added nodes to every node, and the columns of the cached nodes to the added ones
+	private void search(RoadNetwork road, RoadDistanceMatrix matrix, List<Long> added, boolean contracted) {
+
+		int start = matrix.add(added);
+		int size = matrix.size();
+		Set<Long> cachedNodes = new LinkedHashSet<>();
+		Set<Long> allNodes = new LinkedHashSet<>();
+		for(int index = 0; index < size; index++) {
+			if(index < start) {
+				cachedNodes.add(matrix.getNode(index));
+			}
+			allNodes.add(matrix.getNode(index));
+		}
+
+		int parallelism = this.parallelism > 0 ? this.parallelism : Runtime.getRuntime().availableProcessors();
+		LOGGER.info("Searching road distances of " + added.size() + " new stops to " + size + " stops"
+				+ (contracted ? " with contraction hierarchies" : ""));
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			if(contracted) {
+				CHManyToManyShortestPaths<Long, DefaultWeightedEdge> paths =
+						new CHManyToManyShortestPaths<>(road.getContractionHierarchy(parallelism));
+				//Every task searches a slice of the sources, the hierarchy is only read
+				List<Long> cached = new ArrayList<>(cachedNodes);
+				int slices = Math.max(1, Math.min(parallelism, added.size() + cached.size()));
+				Set<Long> addedNodes = new LinkedHashSet<>(added);
+				pool.submit(() -> IntStream.range(0, slices).parallel().forEach(slice -> {
+					Set<Long> addedSlice = this.slice(added, slice, slices);
+					if(!addedSlice.isEmpty()) {
+						this.copy(paths.getManyToManyPaths(addedSlice, allNodes), matrix);
+					}
+					Set<Long> cachedSlice = this.slice(cached, slice, slices);
+					if(!cachedSlice.isEmpty()) {
+						this.copy(paths.getManyToManyPaths(cachedSlice, addedNodes), matrix);
+					}
+				})).get();
+			} else {
+				//One forward search per added node for its row and one on the reversed graph for its column
+				pool.submit(() -> IntStream.range(0, added.size()).parallel().forEach(index -> {
+					int row = matrix.indexOf(added.get(index));
+					this.dijkstra(road.getGraph(), added.get(index), allNodes, 
+							(target, distance) -> matrix.setDistance(row, matrix.indexOf(target), distance));
+					if(!cachedNodes.isEmpty()) {
+						this.dijkstra(road.getReversedGraph(), added.get(index), cachedNodes, 
+								(source, distance) -> matrix.setDistance(matrix.indexOf(source), row, distance));
+					}
+				})).get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Road distance search was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Road distance search failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	//Settles nodes closest first until every target is reached, unreachable targets are infinite.
+	//Tasks write disjoint cells of the matrix.
+	private void dijkstra(Graph<Long, DefaultWeightedEdge> graph, Long source, Set<Long> targets, 
+			ObjDoubleConsumer<Long> distances) {
+		ClosestFirstIterator<Long, DefaultWeightedEdge> iterator = new ClosestFirstIterator<>(graph, source);
+		Set<Long> unreached = new HashSet<>(targets);
+		while(!unreached.isEmpty() && iterator.hasNext()) {
+			Long node = iterator.next();
+			if(unreached.remove(node)) {
+				distances.accept(node, iterator.getShortestPathLength(node));
+			}
+		}
+		for(Long target: unreached) {
+			distances.accept(target, Double.POSITIVE_INFINITY);
+		}
+	}
+
+	private Set<Long> slice(List<Long> nodes, int slice, int slices) {
+		return new LinkedHashSet<>(nodes.subList(nodes.size() * slice / slices, nodes.size() * (slice + 1) / slices));
+	}
+
+	private void copy(ManyToManyShortestPaths<Long, DefaultWeightedEdge> paths, RoadDistanceMatrix matrix) {
+		for(Long source: paths.getSources()) {
+			int sourceIndex = matrix.indexOf(source);
+			for(Long target: paths.getTargets()) {
+				matrix.setDistance(sourceIndex, matrix.indexOf(target), paths.getWeight(source, target));
+			}
+		}
+	}
+
+}
@@ -1,10 +1,11 @@
 package com.hyderabad.metro.feeder.routes.services;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.IntConsumer;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -13,83 +14,146 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.hyderabad.metro.feeder.routes.beans.Edge;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
 import com.hyderabad.metro.feeder.routes.beans.Node;
-import com.hyderabad.metro.feeder.routes.utils.ExcelUtility;
+import com.hyderabad.metro.feeder.routes.beans.Route;
+import com.hyderabad.metro.feeder.routes.beans.RouteMetrics;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+import com.hyderabad.metro.feeder.routes.utils.PipelineMetrics;
 
 @Service
 public class FleetAdjustmentService {
 	
 	@Autowired
-	private ExcelUtility excelUtility;
+	private NetworkSnapshotLoader networkSnapshotLoader;
 	
 	private final static Logger LOGGER = Logger.getLogger(FleetAdjustmentService.class.getName());
 	
-	private final static Integer speedOfTheBus = 30; //Kmph
+	//Speed, dwell time, costs and capacities of the formulas, see PlanningProfile
+	@Autowired
+	private PlanningProfileService planningProfileService;
 	
-	private final static Double dwellTime = new Double((20/60)/60); //20 Seconds converted to Hours
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
 	
-	private final static Integer unitWaitingCost = 108; //Rupees per Hour
+	public Map<Node, Integer> compute(Map<Node, Graph<Node, Edge>> routes) {
+		
+		return this.computeFromMetrics(this.routeMetrics(routes));
+	}
 	
-	private final static Integer unitVehicleCost = 760; //Rupees per Hour
+	public Map<Node, Integer> compute(NetworkSnapshot network, Map<Node, Graph<Node, Edge>> routes) {
+		
+		return this.computeFromMetrics(this.routeMetrics(network, routes));
+	}
 	
-	private final static Integer multiplicationFactor = 8; //Based on the sample size
+	public Map<Node, Integer> computeFromMetrics(Map<Node, RouteMetrics> routeMetrics) {
+		
+		return this.computeFromMetrics(routeMetrics, planningProfileService.getParameters());
+	}
 	
-	private final static Integer busCapacity = 50; //Bus Capacity
+	public Map<Node, Integer> computeFromMetrics(Map<Node, RouteMetrics> routeMetrics, PlanningParameters parameters) {
+		
+		//Stages never overlap, so their timers add up to the whole adjustment
+		Map<Node, Double> headWay = pipelineMetrics.time("fleet.headway", 
+				() -> this.headWayCalculation(routeMetrics, parameters));
+		
+		Map<Node, Integer> fleetSizes = pipelineMetrics.time("fleet.size", 
+				() -> this.fleetSizeCalculation(routeMetrics, headWay, parameters));
+		
+		Map<Node, Double> adjustedHeadWay = pipelineMetrics.time("fleet.headway.adjustment", 
+				() -> this.headWayAdjustment(fleetSizes, routeMetrics, parameters));
+		
+		return pipelineMetrics.time("fleet.size.adjustment", 
+				() -> this.fleetSizeAdjustment(routeMetrics, fleetSizes, adjustedHeadWay, parameters));
+	}
 	
-	private final static Integer maxBusCapacity = 60; //Max Bus Capacity
+	public Map<Node, RouteMetrics> routeMetrics(Map<Node, Graph<Node, Edge>> routes) {
+		
+		return this.routeMetrics(this.readTravelDemandMatrix(), routes);
+	}
 	
-	private final static Integer maxFleetSize = 74; //Buses per hour
+	public Map<Node, RouteMetrics> routeMetrics(NetworkSnapshot network, Map<Node, Graph<Node, Edge>> routes) {
+		
+		PlanningParameters parameters = planningProfileService.getParameters();
+		return pipelineMetrics.time("fleet.metrics", () -> {
+			Map<Node, RouteMetrics> routeMetrics = new LinkedHashMap<>();
+			routes.forEach((node, route) -> routeMetrics.put(node, this.computeMetrics(network, route, parameters)));
+			return routeMetrics;
+		});
+	}
 	
-	//Travel Demand Matrix
-	private String sheetName = "Travel Demand Matrix";
-	private Integer startRow = 0;
-	private Integer endRow = 141;
-	private Integer startColumn = 0;
-	private Integer endColumn = 141;
+	public Map<Node, RouteMetrics> routeMetricsOfRoutes(Map<Node, Route> routes) {
+		
+		return this.routeMetricsOfRoutes(this.readTravelDemandMatrix(), routes);
+	}
 	
-	private List<List<Object>> travelDemandMatrix;
+	public Map<Node, RouteMetrics> routeMetricsOfRoutes(NetworkSnapshot network, Map<Node, Route> routes) {
+		
+		return this.routeMetricsOfRoutes(network, routes, planningProfileService.getParameters());
+	}
 	
-	public Map<Node, Integer> compute(Map<Node, Graph<Node, Edge>> routes) {
+	public Map<Node, RouteMetrics> routeMetricsOfRoutes(NetworkSnapshot network, Map<Node, Route> routes, 
+			PlanningParameters parameters) {
 		
-		Map<Node, Integer> fleetSizes = this.fleetSizeCalculation(routes);
+		return pipelineMetrics.time("fleet.metrics", () -> {
+			Map<Node, RouteMetrics> routeMetrics = new LinkedHashMap<>();
+			routes.forEach((node, route) -> routeMetrics.put(node, this.computeMetrics(network, route, parameters)));
+			return routeMetrics;
+		});
+	}
+	
+	//Single pass over the edges of the route for its length and travel demand
+	public RouteMetrics computeMetrics(NetworkSnapshot network, Graph<Node, Edge> route, PlanningParameters parameters) {
+		
+		MetricsAccumulator accumulator = new MetricsAccumulator(network, parameters);
+		for(Edge edge: route.edgeSet()) {
+			accumulator.addLeg(edge.getSource(), edge.getTarget(), edge.getWeight());
+		}
+		return accumulator.toMetrics(route.vertexSet().size());
+	}
+	
+	public RouteMetrics computeMetrics(NetworkSnapshot network, Route route, PlanningParameters parameters) {
 		
-		Integer totalFleetSize = fleetSizes.values().stream().mapToInt(Integer::intValue).sum();
+		MetricsAccumulator accumulator = new MetricsAccumulator(network, parameters);
+		for(int index = 1; index < route.getStopCount(); index++) {
+			accumulator.addLeg(route.getStop(index - 1), route.getStop(index), route.getLegDistance(index - 1));
+		}
+		return accumulator.toMetrics(route.getStopCount());
+	}
+	
+	public Map<Node, Integer> fleetSizeCalculation(Map<Node, RouteMetrics> routeMetrics, PlanningParameters parameters) {
 		
-		Map<Node, Double> adjustedHeadWay = this.headWayAdjustment(fleetSizes, routes);
+		Map<Node, Double> headWay = pipelineMetrics.time("fleet.headway", 
+				() -> this.headWayCalculation(routeMetrics, parameters));
 		
-		return this.fleetSizeAdjustment(routes, fleetSizes, adjustedHeadWay);
+		return this.fleetSizeCalculation(routeMetrics, headWay, parameters);
 	}
 	
-	public Map<Node, Integer> fleetSizeCalculation(Map<Node, Graph<Node, Edge>> routes) {
-		
-		Map<Node, Double> headWay = this.headWayCalculation(routes);
+	public Map<Node, Integer> fleetSizeCalculation(Map<Node, RouteMetrics> routeMetrics, Map<Node, Double> headWay, 
+			PlanningParameters parameters) {
 		
-		Set<Node> originNodes = routes.keySet();
+		Set<Node> originNodes = routeMetrics.keySet();
 		
 		Map<Node, Integer> fleetSizeValues = originNodes.stream()
 				.collect(Collectors.toMap(node -> node, node -> {
 			
-			Graph<Node, Edge> graph = routes.get(node);
-			
-			Double totalDistanceOfRoute = graph.edgeSet().stream()
-					.mapToDouble(f -> f.getWeight()).sum();
-			
-			Integer numberOfStops = graph.vertexSet().size();
+			RouteMetrics metrics = routeMetrics.get(node);
 			
 			Double headWayValue = headWay.get(node);
 			
-			Double numerator = 2 * (totalDistanceOfRoute + (FleetAdjustmentService.dwellTime
-					* numberOfStops * FleetAdjustmentService.speedOfTheBus));
+			double numerator = parameters.cycleDistance(metrics.getLength(), metrics.getStopCount());
 			
-			Double denominator = headWayValue * FleetAdjustmentService.speedOfTheBus;
+			double denominator = headWayValue * parameters.speedOfTheBus;
 			
 			return new Double(Math.ceil(numerator/denominator)).intValue();
-		}));
+		}, (first, second) -> first, LinkedHashMap::new));
 		
 		return fleetSizeValues;		
 	}
 	
-	public Map<Node, Double> headWayAdjustment(Map<Node, Integer> fleetSizes, Map<Node, Graph<Node, Edge>> routes) {
+	public Map<Node, Double> headWayAdjustment(Map<Node, Integer> fleetSizes, Map<Node, RouteMetrics> routeMetrics, 
+			PlanningParameters parameters) {
 		
 		Set<Node> nodes = fleetSizes.keySet();
 		
@@ -99,197 +163,208 @@ public class FleetAdjustmentService {
 			//Reduce each current fleet size value by 1
 			Integer reducedFleetSize = fleetSizes.get(node) - 1;
 			
-			Graph<Node, Edge> route = routes.get(node);
+			RouteMetrics metrics = routeMetrics.get(node);
 			
-			Double totalDistanceOfRoute = route.edgeSet().stream()
-					.mapToDouble(f -> f.getWeight()).sum();
+			double numerator = parameters.cycleDistance(metrics.getLength(), metrics.getStopCount());
 			
-			Integer numberOfStops = route.vertexSet().size();
-			
-			Double numerator = 2 * (totalDistanceOfRoute + (FleetAdjustmentService.dwellTime
-					* numberOfStops * FleetAdjustmentService.speedOfTheBus));
-			
-			Integer denominator = reducedFleetSize * FleetAdjustmentService.speedOfTheBus;
+			double denominator = reducedFleetSize * parameters.speedOfTheBus;
 			
 			//Calculate Headway by substituting reduced fleet size value in Fleet size formula
 			return numerator/denominator;
-		}));
+		}, (first, second) -> first, LinkedHashMap::new));
 		
 		return adjustedHeadWay;
 	}
 	
-	public Map<Node, Integer> fleetSizeAdjustment(Map<Node, Graph<Node, Edge>> routes, 
-			Map<Node, Integer> currentFleetSizes, Map<Node, Double> adjustedHeadWay) {
+	public Map<Node, Integer> fleetSizeAdjustment(Map<Node, RouteMetrics> routeMetrics, 
+			Map<Node, Integer> currentFleetSizes, Map<Node, Double> adjustedHeadWay, PlanningParameters parameters) {
 		
-		Set<Node> originNodes = routes.keySet();
+		Set<Node> originNodes = routeMetrics.keySet();
 		
 		Map<Node, Integer> adjustedFleetSizes;		
 		
 		adjustedFleetSizes = originNodes.stream()
 		.collect(Collectors.toMap(node -> node, node -> {
 	
-			Integer highestDemandValue = this.getTravelDemandForRoute(routes.get(node)).stream()
-			.collect(Collectors.summarizingInt(Integer::intValue)).getMax();
+			Integer highestDemandValue = routeMetrics.get(node).getPeakDemand();
 			
 			//Use adjusted headway in Headway 2 formula to find the increased bus capacity
 			Double capacity = highestDemandValue * adjustedHeadWay.get(node);
 			
 			//Check if the capacity calculated using adjusted headway is greater than max bus capacity
-			if(capacity > FleetAdjustmentService.maxBusCapacity) {
+			if(capacity > parameters.maxBusCapacity) {
 				//Set current fleet size value
 				return currentFleetSizes.get(node);
 			} 	
 			return currentFleetSizes.get(node) - 1;	
-		}));
+		}, (first, second) -> first, LinkedHashMap::new));
 		
 		return adjustedFleetSizes;		
 	}
 	
-	public Map<Node, Double> headWayCalculation(Map<Node, Graph<Node, Edge>> routes) {
-		Map<Node, Double> headWay1 = this.headWayCalculation1(routes);
+	public Map<Node, Double> headWayCalculation(Map<Node, RouteMetrics> routeMetrics, PlanningParameters parameters) {
+		Map<Node, Double> headWay1 = this.headWayCalculation1(routeMetrics, parameters);
 		
-		Map<Node, Double> headWay2 = this.headWayCalculation2(routes);
+		Map<Node, Double> headWay2 = this.headWayCalculation2(routeMetrics, parameters);
 		
 		Set<Node> originNodes = headWay1.keySet();
 		
 		Map<Node, Double> headWay = originNodes.stream()
 				.collect(Collectors.toMap(node -> node, node -> {
 					return Math.min(headWay1.get(node), headWay2.get(node));
-				}));
+				}, (first, second) -> first, LinkedHashMap::new));
 		return headWay;		
 	}
 	
-	public Map<Node, Double> headWayCalculation1(Map<Node, Graph<Node, Edge>> routes) {
+	public Map<Node, Double> headWayCalculation1(Map<Node, RouteMetrics> routeMetrics, PlanningParameters parameters) {
 		
-		this.readTravelDemandMatrix();
+		Map<Node, Double> passengersPerRoute = this.passengersPerRoute(routeMetrics);
 		
-		Map<Node, Double> passengersPerRoute = this.passengersPerRoute(routes);
-		
-		Set<Node> originNodes = routes.keySet();
+		Set<Node> originNodes = routeMetrics.keySet();
 		
 		Map<Node, Double> result = originNodes.stream()
 		.collect(Collectors.toMap(node -> node, node -> {
 			
-			Graph<Node, Edge> graph = routes.get(node);
-			
-			Double lengthOfRoute = graph.edgeSet().stream()
-					.mapToDouble(f -> f.getWeight()).sum();
+			RouteMetrics metrics = routeMetrics.get(node);
 			
-			Double numerator = ((FleetAdjustmentService.dwellTime * 
-					graph.vertexSet().size() * FleetAdjustmentService.speedOfTheBus) + lengthOfRoute);
-			numerator = 2 * FleetAdjustmentService.unitVehicleCost * numerator;
+			double numerator = (parameters.dwellDistancePerStop * metrics.getStopCount()) + metrics.getLength();
+			numerator = parameters.roundTripVehicleCost * numerator;
 			
-			Double denominator = FleetAdjustmentService.unitWaitingCost 
-					* FleetAdjustmentService.speedOfTheBus
-					* passengersPerRoute.get(node);
+			double denominator = parameters.waitingCostPerSpeed * passengersPerRoute.get(node);
 			
 			return Math.sqrt(numerator/denominator);
-		}));
+		}, (first, second) -> first, LinkedHashMap::new));
 		
 		return result;
 	}
 	
-	public Double findTravelTime(Graph<Node, Edge> route) {
-		
-		Set<Edge> edges = route.edgeSet();
-		
-		//Sum of the distances in all edges in a route
-		Double totalDistance = edges.stream()
-		.mapToDouble(f -> f.getWeight()).sum();
-		
-		//Time = Distance/Speed
-		Double timePerRoute = totalDistance/FleetAdjustmentService.speedOfTheBus;
+	public Double findTravelTime(RouteMetrics metrics) {
 		
 		//e^(-time)
-		return Math.exp(timePerRoute * -1);
+		return Math.exp(metrics.getTravelTime() * -1);
 	}
 	
-	public Map<Node, Double> passengersPerRoute (Map<Node, Graph<Node, Edge>> routes) {
+	public Map<Node, Double> passengersPerRoute (Map<Node, RouteMetrics> routeMetrics) {
 		
-		Set<Node> originNodes = routes.keySet();
+		Set<Node> originNodes = routeMetrics.keySet();
 		
 		Map<Node, Double> travelTimePerRoute = originNodes.stream()
 				.collect(Collectors.toMap(node -> node, node -> {
-					return this.findTravelTime(routes.get(node));
-				}));
+					return this.findTravelTime(routeMetrics.get(node));
+				}, (first, second) -> first, LinkedHashMap::new));
 		
 		Double totalTravelTime = travelTimePerRoute.values().stream()
 		.mapToDouble(f -> f.doubleValue()).sum();
 		
 		Map<Node, Double> passengersPerRoute = originNodes.stream()
 				.collect(Collectors.toMap(node -> node, node -> {
-					Integer travelDemand = this.getTravelDemandForRoute(routes.get(node))
-							.stream().mapToInt(demand -> demand.intValue()).sum();
+					Integer travelDemand = routeMetrics.get(node).getDemandSum();
 					Double travelTime = travelTimePerRoute.get(node);			
 					return ((travelTime/totalTravelTime)*travelDemand);
-				}));
+				}, (first, second) -> first, LinkedHashMap::new));
 		
 		return passengersPerRoute;
 	}
 	
 	
 	
-	public Map<Node, Double> headWayCalculation2(Map<Node, Graph<Node, Edge>> routes) {
-		Set<Node> originNodes = routes.keySet();
+	public Map<Node, Double> headWayCalculation2(Map<Node, RouteMetrics> routeMetrics, PlanningParameters parameters) {
+		Set<Node> originNodes = routeMetrics.keySet();
 		
 		Map<Node, Double> headWay = originNodes.stream()
 				.collect(Collectors.toMap(node -> node, node -> {
 			
-			Integer highestDemandValue = this.getTravelDemandForRoute(routes.get(node)).stream()
-					.collect(Collectors.summarizingInt(Integer::intValue)).getMax();
+			Integer highestDemandValue = routeMetrics.get(node).getPeakDemand();
 			
-			Double headWayValue = new Double(FleetAdjustmentService.busCapacity/highestDemandValue);
+			//Integer division, as the headways have always been computed
+			Double headWayValue = new Double(parameters.busCapacity/highestDemandValue);
 			
 			return headWayValue;
 			
-		}));
+		}, (first, second) -> first, LinkedHashMap::new));
 		
 		return headWay;
 	}
 	
-	public void readTravelDemandMatrix() {
+	//The service keeps no network of its own, so concurrent calls never see each other's matrix
+	public NetworkSnapshot readTravelDemandMatrix() {
 		
-		this.travelDemandMatrix = excelUtility.readData(this.sheetName, this.startRow, 
-				this.endRow, this.startColumn, this.endColumn);
+		NetworkSnapshot travelDemandMatrix = networkSnapshotLoader.getSnapshot();
 		
 		LOGGER.info("Travel Demand Matrix retrieved successfully");
+		return travelDemandMatrix;
 	}
 	
 	public List<Integer> getTravelDemandForRoute(Graph<Node, Edge> route) {
 		
-		Set<Edge> edges = route.edgeSet();
+		return this.getTravelDemandForRoute(this.readTravelDemandMatrix(), route);
+	}
+	
+	public List<Integer> getTravelDemandForRoute(NetworkSnapshot travelDemandMatrix, Graph<Node, Edge> route) {
 		
 		List<Integer> travelDemandForRoute = new ArrayList<>();
 		
-		 edges.stream().forEach(edge -> {
-			List<Object> destinations = this.travelDemandMatrix.get(0);
-			
-			for(int destinationIndex = 1; destinationIndex < destinations.size(); destinationIndex++) {
-				
-				String destination = destinations.get(destinationIndex).toString();
-				destination = destination.substring(0, destination.length() - 2);
-				
-				if(destination.equals(edge.getTarget().name)) {
-					
-					for(int index=1; index < this.travelDemandMatrix.size(); index++) {
-						
-						String source = this.travelDemandMatrix.get(index).get(0).toString();
-						source = source.substring(0, source.length() - 2);
-						
-						if(source.equals(edge.getSource().name)) {
-							
-							if(this.travelDemandMatrix.get(index).get(destinationIndex) instanceof Integer) {
-								travelDemandForRoute.add(((Integer) this.travelDemandMatrix
-										.get(index).get(destinationIndex) + 1) * FleetAdjustmentService.multiplicationFactor);
-							}
-						}
-					}
-				}
-			}			
-			travelDemandForRoute.add(FleetAdjustmentService.multiplicationFactor);
+		int multiplicationFactor = planningProfileService.getParameters().multiplicationFactor;
+		route.edgeSet().stream().forEach(edge -> {
+			this.travelDemandOfLeg(travelDemandMatrix, edge.getSource(), edge.getTarget(), 
+					multiplicationFactor, travelDemandForRoute::add);
 		});
 		
 		return travelDemandForRoute;		
-	}	
+	}
+	
+	//Passes the scaled OD demand of the leg, when present, followed by the base demand of every leg
+	private void travelDemandOfLeg(NetworkSnapshot network, Node source, Node target, int multiplicationFactor, 
+			IntConsumer consumer) {
+		
+		//Travel Demand Matrix is indexed by the station IDs of the route nodes
+		int travelDemand = network.getTravelDemand(source.id, target.id);
+		if(travelDemand != NetworkSnapshot.NO_DEMAND) {
+			consumer.accept((travelDemand + 1) * multiplicationFactor);
+		}
+		consumer.accept(multiplicationFactor);
+	}
+	
+	private class MetricsAccumulator implements IntConsumer {
+		
+		private final NetworkSnapshot network;
+		
+		private final PlanningParameters parameters;
+		
+		private double length;
+		
+		//Kahan compensation reduces the rounding error accumulated over many legs
+		private double compensation;
+		
+		private int demandSum;
+		
+		private int peakDemand = Integer.MIN_VALUE;
+		
+		MetricsAccumulator(NetworkSnapshot network, PlanningParameters parameters) {
+			this.network = network;
+			this.parameters = parameters;
+		}
+		
+		void addLeg(Node source, Node target, double distance) {
+			double value = distance - this.compensation;
+			double sum = this.length + value;
+			this.compensation = (sum - this.length) - value;
+			this.length = sum;
+			FleetAdjustmentService.this.travelDemandOfLeg(this.network, source, target, 
+					this.parameters.multiplicationFactor, this);
+		}
+		
+		@Override
+		public void accept(int demand) {
+			this.demandSum += demand;
+			this.peakDemand = Math.max(this.peakDemand, demand);
+		}
+		
+		RouteMetrics toMetrics(int stopCount) {
+			return new RouteMetrics(this.length, stopCount, this.length / this.parameters.speedOfTheBus, 
+					this.demandSum, this.peakDemand);
+		}
+		
+	}
 
 }
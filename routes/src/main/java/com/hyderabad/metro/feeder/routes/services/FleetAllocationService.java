@@ -0,0 +1,138 @@
+package com.hyderabad.metro.feeder.routes.services;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.hyderabad.metro.feeder.routes.beans.FleetAllocation;
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.RouteAllocation;
+import com.hyderabad.metro.feeder.routes.beans.RouteMetrics;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+
+//Distributes at most maxFleetSize buses over all routes for the lowest total waiting plus vehicle cost.
+//With f buses on a route of cycle time T carrying P passengers the cost per hour is
+//unitVehicleCost * f + unitWaitingCost * P * T / f, whose continuous optimum is headWayCalculation1.
+@Service
+public class FleetAllocationService {
+	
+	@Autowired
+	private FleetAdjustmentService fleetAdjustmentService;
+	
+	private final static Logger LOGGER = Logger.getLogger(FleetAllocationService.class.getName());
+	
+	public FleetAllocation allocate(Map<Node, RouteMetrics> routeMetrics, PlanningParameters parameters) {
+		
+		Map<Node, Double> passengersPerRoute = fleetAdjustmentService.passengersPerRoute(routeMetrics);
+		
+		int count = routeMetrics.size();
+		Node[] origins = new Node[count];
+		double[] cycleTimes = new double[count];
+		double[] waitingCosts = new double[count];
+		int[] minimums = new int[count];
+		int[] optimums = new int[count];
+		int[] fleetSizes = new int[count];
+		
+		int index = 0;
+		int totalFleetSize = 0;
+		for(Map.Entry<Node, RouteMetrics> entry: routeMetrics.entrySet()) {
+			RouteMetrics metrics = entry.getValue();
+			origins[index] = entry.getKey();
+			//A route without legs has nothing to serve
+			if(metrics.getStopCount() > 1) {
+				cycleTimes[index] = parameters.cycleDistance(metrics.getLength(), metrics.getStopCount()) 
+						/ parameters.speedOfTheBus;
+				double passengers = passengersPerRoute.get(entry.getKey());
+				waitingCosts[index] = parameters.unitWaitingCost * (Double.isNaN(passengers) ? 0.0 : passengers) 
+						* cycleTimes[index];
+				//Headway may not exceed maxBusCapacity / peak demand
+				minimums[index] = Math.max(1, (int) Math.ceil(
+						cycleTimes[index] * Math.max(metrics.getPeakDemand(), 0) / parameters.maxBusCapacity));
+				optimums[index] = Math.max(minimums[index], this.optimalFleetSize(waitingCosts[index], parameters));
+			}
+			fleetSizes[index] = minimums[index];
+			totalFleetSize += minimums[index];
+			index++;
+		}
+		
+		boolean feasible = totalFleetSize <= parameters.maxFleetSize;
+		
+		//Marginal benefit of one more bus only decreases with the fleet size, so handing out buses to the
+		//largest benefit first gives the cheapest allocation of every total fleet size
+		PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(count, 1), (first, second) -> Double.compare(
+				this.marginalBenefit(waitingCosts[second], fleetSizes[second], parameters), 
+				this.marginalBenefit(waitingCosts[first], fleetSizes[first], parameters)));
+		for(index = 0; index < count; index++) {
+			if(fleetSizes[index] < optimums[index]) {
+				heap.add(index);
+			}
+		}
+		while(totalFleetSize < parameters.maxFleetSize && !heap.isEmpty()) {
+			int route = heap.poll();
+			fleetSizes[route]++;
+			totalFleetSize++;
+			if(fleetSizes[route] < optimums[route]) {
+				heap.add(route);
+			}
+		}
+		
+		List<RouteAllocation> routes = new ArrayList<>(count);
+		Set<FleetAllocation.Constraint> bindingConstraints = EnumSet.noneOf(FleetAllocation.Constraint.class);
+		double totalCost = 0.0;
+		for(index = 0; index < count; index++) {
+			int fleetSize = fleetSizes[index];
+			FleetAllocation.Constraint constraint = FleetAllocation.Constraint.NONE;
+			if(fleetSize < optimums[index]) {
+				constraint = FleetAllocation.Constraint.MAX_FLEET_SIZE;
+			} else if(fleetSize > 0 && fleetSize == minimums[index] 
+					&& minimums[index] > this.optimalFleetSize(waitingCosts[index], parameters)) {
+				constraint = FleetAllocation.Constraint.CAPACITY;
+			}
+			if(constraint != FleetAllocation.Constraint.NONE) {
+				bindingConstraints.add(constraint);
+			}
+			double cost = this.cost(waitingCosts[index], fleetSize, parameters);
+			totalCost += cost;
+			routes.add(new RouteAllocation(origins[index].name, fleetSize, minimums[index], optimums[index], 
+					fleetSize == 0 ? 0.0 : 60 * cycleTimes[index] / fleetSize, cost, constraint));
+		}
+		if(!feasible) {
+			bindingConstraints.add(FleetAllocation.Constraint.MAX_FLEET_SIZE);
+			LOGGER.warning("Capacity needs " + totalFleetSize + " buses, more than the fleet of " 
+					+ parameters.maxFleetSize);
+		}
+		
+		return new FleetAllocation(routes, totalFleetSize, parameters.maxFleetSize, totalCost, feasible, 
+				new ArrayList<>(bindingConstraints));
+	}
+	
+	private double cost(double waitingCost, int fleetSize, PlanningParameters parameters) {
+		return fleetSize == 0 ? 0.0 : parameters.unitVehicleCost * fleetSize + waitingCost / fleetSize;
+	}
+	
+	//Cost saved by going from fleetSize to fleetSize + 1 buses
+	private double marginalBenefit(double waitingCost, int fleetSize, PlanningParameters parameters) {
+		return waitingCost / ((double) fleetSize * (fleetSize + 1)) - parameters.unitVehicleCost;
+	}
+	
+	//Smallest fleet size from which one more bus no longer lowers the cost, f (f + 1) >= waitingCost / vehicleCost
+	private int optimalFleetSize(double waitingCost, PlanningParameters parameters) {
+		double ratio = waitingCost / parameters.unitVehicleCost;
+		int fleetSize = Math.max(1, (int) Math.ceil((Math.sqrt(1 + 4 * ratio) - 1) / 2));
+		while(this.marginalBenefit(waitingCost, fleetSize, parameters) > 0) {
+			fleetSize++;
+		}
+		while(fleetSize > 1 && this.marginalBenefit(waitingCost, fleetSize - 1, parameters) <= 0) {
+			fleetSize--;
+		}
+		return fleetSize;
+	}
+
+}
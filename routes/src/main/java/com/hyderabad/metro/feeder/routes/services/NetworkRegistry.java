@@ -0,0 +1,227 @@
+package com.hyderabad.metro.feeder.routes.services;
+
+import java.io.ByteArrayInputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.NetworkVersion;
+import com.hyderabad.metro.feeder.routes.config.WorkbookLayout;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+import com.hyderabad.metro.feeder.routes.utils.PipelineMetrics;
+
+//Versioned networks of every tenant (city) served by this instance. Versions are immutable, so planning runs
+//against any of them concurrently. The least recently used versions are evicted beyond max-entries or max-bytes.
+@Service
+public class NetworkRegistry {
+
+	//Tenant of the bundled Matrix.xlsx, registered on first use
+	public final static String DEFAULT_TENANT = "default";
+
+	private final static Pattern TENANT = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+	@Autowired
+	private NetworkSnapshotLoader networkSnapshotLoader;
+
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
+
+	private final static Logger LOGGER = Logger.getLogger(NetworkRegistry.class.getName());
+
+	@Value("${routes.networks.max-entries:16}")
+	private int maxEntries = 16;
+
+	@Value("${routes.networks.max-bytes:268435456}")
+	private long maxBytes = 256L * 1024 * 1024;
+
+	//Versions keyed by "<tenant>@<version>" in access order, guarded by this
+	private final LinkedHashMap<String, NetworkVersion> versions = new LinkedHashMap<>(16, 0.75f, true);
+
+	//Latest version of every tenant, kept after eviction so that version numbers never repeat
+	private final Map<String, Integer> latest = new HashMap<>();
+
+	private long totalBytes;
+
+	//Called with every evicted or removed version once the registry no longer holds it
+	private final List<Consumer<NetworkVersion>> evictionListeners = new CopyOnWriteArrayList<>();
+
+	//Parses an uploaded network outside the lock, then registers it
+	public NetworkVersion register(String tenant, byte[] network, WorkbookLayout layout) {
+
+		this.checkTenant(tenant);
+		return this.register(tenant, networkSnapshotLoader.loadSnapshot(new ByteArrayInputStream(network), layout));
+	}
+
+	//Registering the network of the latest version again returns that version
+	public NetworkVersion register(String tenant, NetworkSnapshot network) {
+
+		this.checkTenant(tenant);
+		String digest = this.digest(network);
+		NetworkVersion version;
+		List<NetworkVersion> evicted;
+		synchronized (this) {
+			Integer current = this.latest.get(tenant);
+			if(current != null) {
+				NetworkVersion latestVersion = this.versions.get(this.key(tenant, current));
+				if(latestVersion != null && latestVersion.getDigest().equals(digest)) {
+					return latestVersion;
+				}
+			}
+			version = new NetworkVersion(tenant, current == null ? 1 : current + 1, digest, network);
+			this.latest.put(tenant, version.getVersion());
+			this.versions.put(this.key(tenant, version.getVersion()), version);
+			this.totalBytes += version.getSizeBytes();
+			evicted = this.evict();
+			LOGGER.info("Network " + tenant + " version " + version.getVersion() + " registered with "
+					+ network.size() + " stations");
+		}
+		this.evicted(evicted);
+		return version;
+	}
+
+	//Latest version of tenant, null when the tenant is unknown or its latest version was evicted
+	public NetworkVersion get(String tenant) {
+
+		NetworkVersion version;
+		synchronized (this) {
+			Integer current = this.latest.get(tenant);
+			version = current == null ? null : this.versions.get(this.key(tenant, current));
+		}
+		pipelineMetrics.cacheAccess("networks", version != null);
+		if(version == null && DEFAULT_TENANT.equals(tenant)) {
+			return this.register(DEFAULT_TENANT, networkSnapshotLoader.getSnapshot());
+		}
+		return version;
+	}
+
+	public NetworkVersion get(String tenant, int version) {
+
+		NetworkVersion networkVersion;
+		synchronized (this) {
+			networkVersion = this.versions.get(this.key(tenant, version));
+		}
+		pipelineMetrics.cacheAccess("networks", networkVersion != null);
+		return networkVersion;
+	}
+
+	//Loaded versions ordered by tenant and version, without touching their recency
+	public synchronized List<NetworkVersion> list() {
+
+		List<NetworkVersion> list = new ArrayList<>(this.versions.values());
+		list.sort(Comparator.comparing(NetworkVersion::getTenant).thenComparingInt(NetworkVersion::getVersion));
+		return list;
+	}
+
+	//Drops every version of tenant, returns false when nothing was loaded
+	public boolean remove(String tenant) {
+
+		List<NetworkVersion> removed = new ArrayList<>();
+		synchronized (this) {
+			for(Iterator<NetworkVersion> iterator = this.versions.values().iterator(); iterator.hasNext();) {
+				NetworkVersion version = iterator.next();
+				if(version.getTenant().equals(tenant)) {
+					this.totalBytes -= version.getSizeBytes();
+					iterator.remove();
+					removed.add(version);
+				}
+			}
+		}
+		this.evicted(removed);
+		return !removed.isEmpty();
+	}
+
+	//Whether a loaded version of any tenant has the network of digest
+	public synchronized boolean contains(String digest) {
+
+		for(NetworkVersion version: this.versions.values()) {
+			if(version.getDigest().equals(digest)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//Lets state derived from versions, like plans, be released together with them
+	public void addEvictionListener(Consumer<NetworkVersion> listener) {
+		this.evictionListeners.add(listener);
+	}
+
+	//The version just registered is never evicted, even when it alone exceeds max-bytes
+	private List<NetworkVersion> evict() {
+
+		List<NetworkVersion> evicted = new ArrayList<>();
+		Iterator<NetworkVersion> iterator = this.versions.values().iterator();
+		while(this.versions.size() > 1 && (this.versions.size() > this.maxEntries || this.totalBytes > this.maxBytes)) {
+			NetworkVersion eldest = iterator.next();
+			this.totalBytes -= eldest.getSizeBytes();
+			iterator.remove();
+			evicted.add(eldest);
+			LOGGER.info("Network " + eldest.getTenant() + " version " + eldest.getVersion() + " evicted");
+		}
+		return evicted;
+	}
+
+	//Listeners run outside the lock of the registry
+	private void evicted(List<NetworkVersion> evicted) {
+		for(NetworkVersion version: evicted) {
+			this.evictionListeners.forEach(listener -> listener.accept(version));
+		}
+	}
+
+	private void checkTenant(String tenant) {
+		if(tenant == null || !TENANT.matcher(tenant).matches()) {
+			throw new IllegalArgumentException("Tenant names are 1 to 64 letters, digits, '-' or '_'");
+		}
+	}
+
+	private String key(String tenant, int version) {
+		return tenant + "@" + version;
+	}
+
+	private String digest(NetworkSnapshot network) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			int size = network.size();
+			for(int id = 0; id < size; id++) {
+				digest.update(network.getStation(id).getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+			}
+			ByteBuffer row = ByteBuffer.allocate(size * (Double.BYTES + Integer.BYTES) + Integer.BYTES);
+			for(int source = 0; source < size; source++) {
+				((Buffer) row).clear();
+				row.putInt(network.getDemand(source));
+				for(int target = 0; target < size; target++) {
+					row.putDouble(network.getDistance(source, target));
+					row.putInt(network.getTravelDemand(source, target));
+				}
+				digest.update(row.array(), 0, row.position());
+			}
+			StringBuilder hash = new StringBuilder();
+			for(byte value: digest.digest()) {
+				hash.append(String.format("%02x", value));
+			}
+			return hash.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.hyderabad.metro.feeder.routes.services;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.config.PlanningProfile;
+
+//Parameters used when a request brings none, replaceable at runtime without a restart
+@Service
+public class PlanningProfileService {
+	
+	//Bound from routes.planning.profile.*, absent outside of a Spring Boot application
+	@Autowired(required = false)
+	private PlanningProfile planningProfile;
+	
+	//The Spring Boot mapper, a plain one when the services run without Spring Boot
+	@Autowired(required = false)
+	private ObjectMapper objectMapper;
+	
+	private final static Logger LOGGER = Logger.getLogger(PlanningProfileService.class.getName());
+	
+	private final AtomicReference<PlanningParameters> current = new AtomicReference<>(PlanningParameters.defaults());
+	
+	@PostConstruct
+	public void start() {
+		if(this.planningProfile != null) {
+			this.current.set(PlanningParameters.of(this.planningProfile));
+		}
+		if(this.objectMapper == null) {
+			this.objectMapper = new ObjectMapper();
+		}
+	}
+	
+	public PlanningParameters getParameters() {
+		return this.current.get();
+	}
+	
+	//Profile sent with a request, null plans with the current parameters
+	public PlanningParameters resolve(PlanningProfile profile) {
+		return profile == null ? this.current.get() : PlanningParameters.of(profile);
+	}
+	
+	//profile with the fields of overrides, a JSON object of profile fields. Spring Boot ignores unknown fields, 
+	//here they are rejected so that a misspelled field is never planned with its default.
+	public PlanningProfile merge(PlanningProfile profile, JsonNode overrides) {
+		if(overrides == null || overrides.isNull()) {
+			return profile;
+		}
+		try {
+			return this.objectMapper.readerForUpdating(profile)
+					.with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).readValue(overrides);
+		} catch (UnrecognizedPropertyException e) {
+			throw new IllegalArgumentException("Unknown profile field " + e.getPath().stream()
+					.map(JsonMappingException.Reference::getFieldName).collect(Collectors.joining(".")), e);
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+	
+	public PlanningProfile merge(PlanningProfile profile, String overrides) {
+		try {
+			return this.merge(profile, this.objectMapper.readTree(overrides));
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+	
+	//Jobs that already started keep the parameters they were started with
+	public PlanningParameters update(PlanningProfile profile) {
+		PlanningParameters parameters = PlanningParameters.of(profile);
+		this.current.set(parameters);
+		LOGGER.info("Planning profile updated: " + parameters);
+		return parameters;
+	}
+
+}
@@ -0,0 +1,333 @@
+package com.hyderabad.metro.feeder.routes.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import com.hyderabad.metro.feeder.routes.beans.FleetAllocation;
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.beans.NetworkPlan;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.NetworkVersion;
+import com.hyderabad.metro.feeder.routes.beans.PlanResult;
+import com.hyderabad.metro.feeder.routes.beans.PlanningJob;
+import com.hyderabad.metro.feeder.routes.beans.RouteSummary;
+import com.hyderabad.metro.feeder.routes.beans.StationRegistry;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.config.PlanningProfile;
+import com.hyderabad.metro.feeder.routes.utils.ExcelUtility;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+import com.hyderabad.metro.feeder.routes.utils.PipelineMetrics;
+
+import io.micrometer.core.instrument.Timer;
+
+//Runs graph build, route generation and fleet adjustment as background jobs, one job per distinct input
+@Service
+public class PlanningService {
+	
+	@Autowired
+	private NetworkSnapshotLoader networkSnapshotLoader;
+	
+	@Autowired
+	private CreateGraph createGraph;
+	
+	@Autowired
+	private ReplanningService replanningService;
+	
+	@Autowired
+	private PlanningProfileService planningProfileService;
+	
+	@Autowired
+	private FleetAllocationService fleetAllocationService;
+	
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
+	
+	@Autowired
+	private NetworkRegistry networkRegistry;
+
+	@Autowired
+	private DistanceMatrixService distanceMatrixService;
+	
+	private final static Logger LOGGER = Logger.getLogger(PlanningService.class.getName());
+	
+	//Number of planning jobs that run at the same time
+	@Value("${routes.planning.threads:2}")
+	private int threads = 2;
+	
+	@Value("${routes.generation.parallelism:1}")
+	private int parallelism = 1;
+	
+	//Jobs and plans kept for later requests, the least recently used are dropped beyond either bound.
+	//Plans hold their network and neighbour index, so they are bounded much lower than jobs.
+	@Value("${routes.planning.max-jobs:1024}")
+	private int maxJobs = 1024;
+	
+	@Value("${routes.planning.max-plans:32}")
+	private int maxPlans = 32;
+	
+	//Jobs keyed by the SHA-256 of the workbook and the parameters, a resubmission returns the same job
+	private final Map<String, PlanningJob> jobs = Collections.synchronizedMap(
+			new LinkedHashMap<String, PlanningJob>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PlanningJob> eldest) {
+			return this.size() > PlanningService.this.maxJobs;
+		}
+	});
+	
+	//Plan of finished jobs, the starting point of their replans. Plans of registered networks are also dropped 
+	//when the registry evicts the network, so that its bounds free the memory of the network.
+	private final Map<String, RetainedPlan> plans = Collections.synchronizedMap(
+			new LinkedHashMap<String, RetainedPlan>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, RetainedPlan> eldest) {
+			return this.size() > PlanningService.this.maxPlans;
+		}
+	});
+	
+	private ExecutorService executor;
+	
+	private volatile byte[] defaultWorkbook;
+	
+	@PostConstruct
+	public void start() {
+		this.executor = Executors.newFixedThreadPool(this.threads);
+		networkRegistry.addEvictionListener(this::networkEvicted);
+	}
+	
+	@PreDestroy
+	public void stop() {
+		this.executor.shutdownNow();
+	}
+	
+	//workbook is the uploaded Matrix.xlsx, null plans the bundled network
+	public PlanningJob submit(byte[] workbook) {
+		
+		return this.submit(workbook, planningProfileService.getParameters());
+	}
+	
+	public PlanningJob submit(byte[] workbook, PlanningParameters parameters) {
+		
+		String id = this.inputHash(workbook == null ? this.getDefaultWorkbook() : workbook, parameters);
+		
+		return this.submit(id, () -> workbook == null ? networkSnapshotLoader.getSnapshot(parameters.workbookLayout) 
+				: networkSnapshotLoader.loadSnapshot(new ByteArrayInputStream(workbook), parameters.workbookLayout), 
+				null, parameters);
+	}
+	
+	//Plans a registered network version, the job is keyed by the digest of the network instead of a workbook
+	public PlanningJob submit(NetworkVersion network, PlanningParameters parameters) {
+		
+		String id = this.hash((parameters + ";network;" + network.getDigest()).getBytes(StandardCharsets.UTF_8));
+		
+		return this.submit(id, network::getNetwork, network.getDigest(), parameters);
+	}
+	
+	//networkDigest is the digest of the registered network, null for workbooks
+	private PlanningJob submit(String id, Supplier<NetworkSnapshot> network, String networkDigest, 
+			PlanningParameters parameters) {
+		
+		//Failed jobs, and finished jobs whose plan was dropped, are replaced so that a resubmission runs them again
+		return this.jobs.compute(id, (key, existing) -> {
+			if(existing != null && existing.getStatus() != PlanningJob.Status.FAILED 
+					&& (existing.getStatus() != PlanningJob.Status.DONE || this.plans.containsKey(key))) {
+				pipelineMetrics.cacheAccess("plans", true);
+				return existing;
+			}
+			pipelineMetrics.cacheAccess("plans", false);
+			PlanningJob job = new PlanningJob(key);
+			this.executor.execute(() -> this.run(job, network, networkDigest, parameters));
+			return job;
+		});
+	}
+	
+	public PlanningJob getJob(String id) {
+		return this.jobs.get(id);
+	}
+	
+	//Applies demand deltas, keyed by station header ("<name> m" / "<name> b"), to a finished job, null when the
+	//job has not finished or its plan was dropped. Replans only take milliseconds, so they run on the calling 
+	//thread and return a finished job.
+	public PlanningJob replan(String id, Map<String, Integer> demandDeltas) {
+		
+		RetainedPlan retained = this.plans.get(id);
+		if(retained == null) {
+			return null;
+		}
+		NetworkPlan plan = retained.plan;
+		
+		StationRegistry stationRegistry = new StationRegistry(plan.getNetwork());
+		Map<Integer, Integer> stationDeltas = new TreeMap<>();
+		demandDeltas.forEach((station, delta) -> {
+			Integer stationId = stationRegistry.getId(station);
+			if(stationId == null || delta == null) {
+				throw new IllegalArgumentException("Unknown station " + station);
+			}
+			stationDeltas.merge(stationId, delta, Integer::sum);
+		});
+		
+		String replanId = this.hash(("replan;" + id + ";" + stationDeltas).getBytes(StandardCharsets.UTF_8));
+		PlanningJob existing = this.jobs.get(replanId);
+		pipelineMetrics.cacheAccess("replans", existing != null && this.plans.containsKey(replanId));
+		if(existing != null && this.plans.containsKey(replanId)) {
+			return existing;
+		}
+		
+		//Replanned outside the locks of the maps, concurrent equal replans publish the first job. The plan is 
+		//published first so that the job is never seen without it.
+		PlanningJob job = new PlanningJob(replanId);
+		long start = System.currentTimeMillis();
+		NetworkPlan replan = pipelineMetrics.time("replan", () -> replanningService.replan(plan, stationDeltas));
+		job.done(this.toResult(replan, System.currentTimeMillis() - start));
+		this.plans.put(replanId, new RetainedPlan(replan, retained.networkDigest));
+		PlanningJob published = this.jobs.putIfAbsent(replanId, job);
+		return published == null ? job : published;
+	}
+	
+	//Distributes maxFleetSize buses over the routes of a finished job, null when the job has not finished.
+	//maxFleetSize overrides the fleet limit of the job parameters when it is not null.
+	public FleetAllocation allocateFleet(String id, Integer maxFleetSize) {
+		
+		RetainedPlan retained = this.plans.get(id);
+		if(retained == null) {
+			return null;
+		}
+		NetworkPlan plan = retained.plan;
+		PlanningParameters parameters = maxFleetSize == null ? plan.getParameters() 
+				: this.withMaxFleetSize(plan.getParameters(), maxFleetSize);
+		return pipelineMetrics.time("fleet.allocation", 
+				() -> fleetAllocationService.allocate(plan.getRouteMetrics(), parameters));
+	}
+	
+	private PlanningParameters withMaxFleetSize(PlanningParameters parameters, int maxFleetSize) {
+		
+		PlanningProfile profile = parameters.toProfile();
+		profile.setMaxFleetSize(maxFleetSize);
+		return PlanningParameters.of(profile);
+	}
+	
+	//Every job reads its own network and parameters, so jobs of different tenants never share state
+	private void run(PlanningJob job, Supplier<NetworkSnapshot> networkSupplier, String networkDigest, 
+			PlanningParameters parameters) {
+		
+		job.running();
+		Timer.Sample sample = pipelineMetrics.startSample();
+		try {
+			long start = System.currentTimeMillis();
+			NetworkSnapshot network = networkSupplier.get();
+			
+			NeighbourIndex neighbourIndex = parameters.sparseGraph ? createGraph.createNeighbourIndex(network, parameters) 
+					: NeighbourIndex.of(createGraph.createDenseGraph(network));
+			NetworkPlan plan = replanningService.plan(network, neighbourIndex, parameters, this.parallelism);
+			//Jobs dropped while they ran are no longer requested, networks evicted while they were planned take 
+			//the plan with them
+			if(this.jobs.containsKey(job.getId())) {
+				this.plans.put(job.getId(), new RetainedPlan(plan, networkDigest));
+				if(networkDigest != null && !networkRegistry.contains(networkDigest)) {
+					this.plans.remove(job.getId());
+				}
+			}
+			job.done(this.toResult(plan, System.currentTimeMillis() - start));
+			LOGGER.info("Planning job " + job.getId() + " done");
+		} catch (Exception e) {
+			LOGGER.log(Level.WARNING, "Planning job " + job.getId() + " failed", e);
+			job.failed(e.getCause() == null ? e.getMessage() : e.getMessage() + ": " + e.getCause().getMessage());
+		} finally {
+			pipelineMetrics.stopSample(sample, "plan");
+		}
+	}
+	
+	//Plans and replans of a network evicted from the registry, unless another tenant still has the same network.
+	//Their jobs are kept, submitting them again plans the network again.
+	private void networkEvicted(NetworkVersion version) {
+		
+		if(networkRegistry.contains(version.getDigest())) {
+			return;
+		}
+		synchronized (this.plans) {
+			this.plans.values().removeIf(retained -> version.getDigest().equals(retained.networkDigest));
+		}
+	}
+	
+	private PlanResult toResult(NetworkPlan plan, long computeMillis) {
+		
+		List<RouteSummary> summaries = new ArrayList<>(plan.getRoutes().size());
+		plan.getRoutes().forEach((origin, route) -> summaries.add(
+				new RouteSummary(route, plan.getRouteMetrics().get(origin), plan.getFleetSizes().get(origin))));
+		return new PlanResult(plan.getNetwork().size(), summaries, plan.getChanges(), computeMillis);
+	}
+	
+	//Parameters and the road network are part of the key so that results of other parameters or road distances are
+	//never served
+	private String inputHash(byte[] workbook, PlanningParameters parameters) {
+		String key = parameters + ";" + distanceMatrixService.getRoadNetworkKey() + ";";
+		return this.hash(key.getBytes(StandardCharsets.UTF_8), workbook);
+	}
+	
+	private String hash(byte[]... inputs) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for(byte[] input: inputs) {
+				digest.update(input);
+			}
+			StringBuilder hash = new StringBuilder();
+			for(byte value: digest.digest()) {
+				hash.append(String.format("%02x", value));
+			}
+			return hash.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+	
+	private byte[] getDefaultWorkbook() {
+		byte[] current = this.defaultWorkbook;
+		if(current == null) {
+			try (InputStream is = new ClassPathResource(ExcelUtility.WORKBOOK_PATH).getInputStream()) {
+				current = StreamUtils.copyToByteArray(is);
+			} catch (IOException e) {
+				throw new IllegalStateException("Failed to read " + ExcelUtility.WORKBOOK_PATH, e);
+			}
+			this.defaultWorkbook = current;
+		}
+		return current;
+	}
+
+	private static class RetainedPlan {
+		
+		private final NetworkPlan plan;
+		
+		//Digest of the registered network the plan derives from, null for workbooks
+		private final String networkDigest;
+		
+		RetainedPlan(NetworkPlan plan, String networkDigest) {
+			this.plan = plan;
+			this.networkDigest = networkDigest;
+		}
+		
+	}
+
+}
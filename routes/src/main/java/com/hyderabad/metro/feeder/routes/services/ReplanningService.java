@@ -0,0 +1,234 @@
+package com.hyderabad.metro.feeder.routes.services;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.beans.NetworkPlan;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.Route;
+import com.hyderabad.metro.feeder.routes.beans.RouteChanges;
+import com.hyderabad.metro.feeder.routes.beans.RouteMetrics;
+import com.hyderabad.metro.feeder.routes.beans.StationRegistry;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+
+//Full plans and incremental replans after the demand of a few stations changed
+@Service
+public class ReplanningService {
+	
+	@Autowired
+	private RouteGenerationService routeGenerationService;
+	
+	@Autowired
+	private FleetAdjustmentService fleetAdjustmentService;
+	
+	@Autowired
+	private RouteImprovementService routeImprovementService;
+	
+	private final static Logger LOGGER = Logger.getLogger(ReplanningService.class.getName());
+	
+	public NetworkPlan plan(NetworkSnapshot network, NeighbourIndex neighbourIndex, PlanningParameters parameters, 
+			int parallelism) {
+		
+		Map<Node, Route> generatedRoutes = routeGenerationService.generateRoutes(neighbourIndex, parameters, 
+				parallelism, route -> {});
+		Map<Node, Route> routes = routeImprovementService.improveRoutes(network, generatedRoutes, parameters, 
+				parallelism);
+		Map<Node, RouteMetrics> routeMetrics = fleetAdjustmentService.routeMetricsOfRoutes(network, routes, parameters);
+		Map<Node, Integer> fleetSizes = fleetAdjustmentService.computeFromMetrics(routeMetrics, parameters);
+		
+		return new NetworkPlan(network, parameters, neighbourIndex, 
+				routeGenerationService.originMetros(neighbourIndex, parameters), generatedRoutes, routes, routeMetrics, 
+				fleetSizes, null);
+	}
+	
+	//demandDeltas maps station IDs to the change of their demand, demands never drop below 0.
+	//Only routes on which a station changed its eligibility as a next stop are generated again.
+	public NetworkPlan replan(NetworkPlan plan, Map<Integer, Integer> demandDeltas) {
+		
+		PlanningParameters parameters = plan.getParameters();
+		NetworkSnapshot previousNetwork = plan.getNetwork();
+		NeighbourIndex previousIndex = plan.getNeighbourIndex();
+		int size = previousNetwork.size();
+		
+		int[] demands = new int[size];
+		for(int id = 0; id < size; id++) {
+			demands[id] = previousNetwork.getDemand(id);
+		}
+		BitSet changedStations = new BitSet(size);
+		demandDeltas.forEach((id, delta) -> {
+			if(id == null || id < 0 || id >= size) {
+				throw new IllegalArgumentException("Unknown station ID " + id);
+			}
+			int demand = Math.max(0, demands[id] + delta);
+			if(demand != demands[id]) {
+				demands[id] = demand;
+				changedStations.set(id);
+			}
+		});
+		
+		//Unchanged stations keep their nodes, the distance matrix and neighbour order are shared
+		NetworkSnapshot network = previousNetwork.withDemands(demands);
+		Node[] nodes = new Node[size];
+		for(int id = 0; id < size; id++) {
+			nodes[id] = changedStations.get(id) 
+					? StationRegistry.createNode(id, network.getStation(id), demands[id]) : previousIndex.getNode(id);
+		}
+		NeighbourIndex neighbourIndex = previousIndex.withNodes(nodes);
+		BitSet originMetros = routeGenerationService.originMetros(neighbourIndex, parameters);
+		BitSet previousOrigins = plan.getOriginMetros();
+		
+		//A station only affects routes it joins or leaves as a candidate next stop
+		BitSet lostCandidacy = new BitSet(size);
+		BitSet gainedCandidacy = new BitSet(size);
+		for(int id = changedStations.nextSetBit(0); id >= 0; id = changedStations.nextSetBit(id + 1)) {
+			boolean before = routeGenerationService.isCandidate(previousIndex.getNode(id), previousOrigins);
+			boolean after = routeGenerationService.isCandidate(nodes[id], originMetros);
+			if(before && !after) {
+				lostCandidacy.set(id);
+			} else if(!before && after) {
+				gainedCandidacy.set(id);
+			}
+		}
+		
+		RouteChanges changes = new RouteChanges();
+		//Impacts are found on the generated routes, the improved routes only reorder their stops
+		Route[] previousGeneratedRoutes = new Route[size];
+		Route[] previousRoutes = new Route[size];
+		RouteMetrics[] previousMetrics = new RouteMetrics[size];
+		plan.getGeneratedRoutes().forEach((origin, route) -> previousGeneratedRoutes[origin.id] = route);
+		plan.getRoutes().forEach((origin, route) -> previousRoutes[origin.id] = route);
+		plan.getRouteMetrics().forEach((origin, metrics) -> previousMetrics[origin.id] = metrics);
+		
+		Map<Node, Route> generatedRoutes = new LinkedHashMap<>();
+		Map<Node, Route> routes = new LinkedHashMap<>();
+		Map<Node, RouteMetrics> routeMetrics = new LinkedHashMap<>();
+		for(int id = originMetros.nextSetBit(0); id >= 0; id = originMetros.nextSetBit(id + 1)) {
+			Node origin = nodes[id];
+			Route previousGeneratedRoute = previousGeneratedRoutes[id];
+			Route previousRoute = previousRoutes[id];
+			
+			Route generatedRoute;
+			Route route;
+			if(previousRoute == null) {
+				generatedRoute = routeGenerationService.routeStitching(neighbourIndex, origin, originMetros, parameters);
+				route = this.improve(network, generatedRoute, parameters);
+				changes.added(origin);
+				changes.recomputed();
+			} else if(this.isImpacted(network, parameters, previousGeneratedRoute, lostCandidacy, gainedCandidacy)) {
+				generatedRoute = routeGenerationService.routeStitching(neighbourIndex, origin, originMetros, parameters);
+				route = this.sameStops(generatedRoute, previousGeneratedRoute) 
+						? this.withNodes(previousRoute, nodes, changedStations) 
+						: this.improve(network, generatedRoute, parameters);
+				changes.recomputed();
+				if(!this.sameStops(route, previousRoute)) {
+					changes.rerouted(origin);
+				}
+			} else {
+				generatedRoute = this.withNodes(previousGeneratedRoute, nodes, changedStations);
+				route = this.withNodes(previousRoute, nodes, changedStations);
+			}
+			
+			//Metrics only depend on the stops and the Travel Demand Matrix, which demand changes leave alone
+			RouteMetrics metrics = previousRoute != null && this.sameStops(route, previousRoute) 
+					? previousMetrics[id] 
+					: fleetAdjustmentService.computeMetrics(network, route, parameters);
+			generatedRoutes.put(origin, generatedRoute);
+			routes.put(origin, route);
+			routeMetrics.put(origin, metrics);
+		}
+		for(int id = previousOrigins.nextSetBit(0); id >= 0; id = previousOrigins.nextSetBit(id + 1)) {
+			if(!originMetros.get(id)) {
+				changes.removed(previousIndex.getNode(id));
+			}
+		}
+		
+		//Fleet sizes are shared over all routes, so they are always computed from the complete metrics
+		Map<Node, Integer> fleetSizes = fleetAdjustmentService.computeFromMetrics(routeMetrics, parameters);
+		Map<Integer, Integer> previousFleetSizes = new LinkedHashMap<>();
+		plan.getFleetSizes().forEach((origin, fleetSize) -> previousFleetSizes.put(origin.id, fleetSize));
+		fleetSizes.forEach((origin, fleetSize) -> {
+			Integer previousFleetSize = previousFleetSizes.get(origin.id);
+			if(previousFleetSize != null && !Objects.equals(previousFleetSize, fleetSize)) {
+				changes.resized(origin);
+			}
+		});
+		
+		LOGGER.info("Replanned " + changedStations.cardinality() + " stations, " 
+				+ changes.getRecomputedRoutes() + " of " + routes.size() + " routes recomputed");
+		return new NetworkPlan(network, parameters, neighbourIndex, originMetros, generatedRoutes, routes, routeMetrics, 
+				fleetSizes, changes);
+	}
+	
+	private Route improve(NetworkSnapshot network, Route route, PlanningParameters parameters) {
+		return parameters.routeImprovement ? routeImprovementService.improve(network, route, parameters) : route;
+	}
+	
+	//True when a station left the route or would have been picked before one of its stops or after its last stop
+	private boolean isImpacted(NetworkSnapshot network, PlanningParameters parameters, Route route, 
+			BitSet lostCandidacy, BitSet gainedCandidacy) {
+		
+		for(int index = 1; index < route.getStopCount(); index++) {
+			if(lostCandidacy.get(route.getStopId(index))) {
+				return true;
+			}
+		}
+		
+		double minimum = parameters.minDistance;
+		double maximum = parameters.maxDistance;
+		int last = route.getStopCount() - 1;
+		for(int station = gainedCandidacy.nextSetBit(0); station >= 0; station = gainedCandidacy.nextSetBit(station + 1)) {
+			for(int index = 0; index <= last; index++) {
+				double distance = network.getDistance(route.getStopId(index), station);
+				if(distance <= minimum || route.getCumulativeDistance(index) + distance > maximum) {
+					continue;
+				}
+				if(index == last) {
+					return true;
+				}
+				//The neighbour index orders equal distances by ascending station ID
+				double legDistance = route.getLegDistance(index);
+				if(distance < legDistance || (distance == legDistance && station < route.getStopId(index + 1))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	private boolean sameStops(Route route, Route other) {
+		if(route.getStopCount() != other.getStopCount()) {
+			return false;
+		}
+		for(int index = 0; index < route.getStopCount(); index++) {
+			if(route.getStopId(index) != other.getStopId(index)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	//Unchanged route with the current node of every stop whose demand changed
+	private Route withNodes(Route route, Node[] nodes, BitSet changedStations) {
+		
+		boolean changed = false;
+		Node[] stops = new Node[route.getStopCount()];
+		double[] legDistances = new double[route.getStopCount() - 1];
+		for(int index = 0; index < stops.length; index++) {
+			stops[index] = nodes[route.getStopId(index)];
+			changed |= changedStations.get(route.getStopId(index));
+			if(index > 0) {
+				legDistances[index - 1] = route.getLegDistance(index - 1);
+			}
+		}
+		return changed ? new Route(stops, legDistances) : route;
+	}
+
+}
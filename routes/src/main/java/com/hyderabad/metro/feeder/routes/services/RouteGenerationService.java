@@ -1,120 +1,229 @@
 package com.hyderabad.metro.feeder.routes.services;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.jgrapht.Graph;
-import org.jgrapht.graph.DirectedWeightedMultigraph;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.hyderabad.metro.feeder.routes.beans.Edge;
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
 import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.Route;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.utils.PipelineMetrics;
 
 @Service
 public class RouteGenerationService {
 	
 	private final static Logger LOGGER = Logger.getLogger(RouteGenerationService.class.getName());
 	
-	public final static Double maxDistance = 25.0;
+	@Autowired
+	private PlanningProfileService planningProfileService;
 	
-	public final static Double minDistance = 1.0;
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
 	
-	public Map<Node, Graph<Node, Edge>> routeGenerationAlgorithm(
-			DirectedWeightedMultigraph<Node, Edge> graph) {
+	//Number of origin metros routed concurrently, 1 keeps generation on the calling thread
+	@Value("${routes.generation.parallelism:1}")
+	private int parallelism = 1;
+	
+	public Map<Node, Graph<Node, Edge>> routeGenerationAlgorithm(Graph<Node, Edge> graph) {
+		
+		return this.routeGenerationAlgorithm(graph, this.parallelism);
+	}
+	
+	public Map<Node, Graph<Node, Edge>> routeGenerationAlgorithm(Graph<Node, Edge> graph, int parallelism) {
+		
+		return this.routeGenerationAlgorithm(NeighbourIndex.of(graph), parallelism);
+	}
+	
+	public Map<Node, Graph<Node, Edge>> routeGenerationAlgorithm(NeighbourIndex neighbourIndex, int parallelism) {
 		
 		Map<Node, Graph<Node, Edge>> generatedRoutes = new LinkedHashMap<>();
 		
-		Set<Node> allStops = graph.vertexSet();
-		
-		//Filtering out all Bus Stop Nodes
-		Set<Node> originMetros =  allStops.stream()
-			.filter((node) -> { 
-				if(node.isMetro.equals(new Boolean(true))) {
-					if(node.demand.compareTo(7) >= 0) {
-						return true;
-					} 
-				} //Filtering metros whose demand is greater than or equal to 7
-					return false;
-			})
-			.collect(Collectors.toSet());	
-		
-		for(Node node: originMetros) {
-						
-			DirectedWeightedMultigraph<Node, Edge> routeGraph = 
-					new DirectedWeightedMultigraph<Node, Edge>(Edge.class);
-			Double routeDistance = 0.0;
-			routeGraph.addVertex(node);
-			
-			//Shallow copy of nodes and edges but graph instances are different.
-			DirectedWeightedMultigraph<Node, Edge> clonedGraph = 
-					(DirectedWeightedMultigraph<Node, Edge>) graph.clone();
-			
-			routeGraph = this.routeStitching(clonedGraph, node, originMetros, routeGraph, routeDistance);
-			
-			generatedRoutes.put(node, routeGraph);
-			
+		this.generateRoutes(neighbourIndex, parallelism)
+		.forEach((origin, route) -> generatedRoutes.put(origin, route.toGraph()));
+		
+		return generatedRoutes;
+	}
+	
+	public Map<Node, Route> generateRoutes(Graph<Node, Edge> graph) {
+		
+		return this.generateRoutes(NeighbourIndex.of(graph), this.parallelism);
+	}
+	
+	public Map<Node, Route> generateRoutes(NeighbourIndex neighbourIndex, int parallelism) {
+		
+		return this.generateRoutes(neighbourIndex, parallelism, route -> {});
+	}
+	
+	//routeListener receives every route as soon as it is complete, from the generating threads
+	public Map<Node, Route> generateRoutes(NeighbourIndex neighbourIndex, int parallelism, 
+			Consumer<Route> routeListener) {
+		
+		return this.generateRoutes(neighbourIndex, planningProfileService.getParameters(), parallelism, routeListener);
+	}
+	
+	public Map<Node, Route> generateRoutes(NeighbourIndex neighbourIndex, PlanningParameters parameters, 
+			int parallelism, Consumer<Route> routeListener) {
+		
+		Map<Node, Route> generatedRoutes = pipelineMetrics.time("routes.generate", 
+				() -> this.generate(neighbourIndex, parameters, parallelism, routeListener));
+		pipelineMetrics.routesGenerated(generatedRoutes.values());
+		return generatedRoutes;
+	}
+	
+	private Map<Node, Route> generate(NeighbourIndex neighbourIndex, PlanningParameters parameters, 
+			int parallelism, Consumer<Route> routeListener) {
+		
+		Map<Node, Route> generatedRoutes = new LinkedHashMap<>();
+		
+		//Origins in station ID order so that the output order is deterministic
+		BitSet originMetros = this.originMetros(neighbourIndex, parameters);
+		List<Node> origins = new ArrayList<>(originMetros.cardinality());
+		for(int id = originMetros.nextSetBit(0); id >= 0; id = originMetros.nextSetBit(id + 1)) {
+			origins.add(neighbourIndex.getNode(id));
+		}
+		
+		Route[] routes = new Route[origins.size()];
+		
+		if(parallelism <= 1) {
+			for(int index = 0; index < origins.size(); index++) {
+				routes[index] = this.routeStitching(neighbourIndex, origins.get(index), originMetros, parameters);
+				routeListener.accept(routes[index]);
+			}
+		} else {
+			//Each route only reads the shared index and originMetros, so origins can be routed independently
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				pool.submit(() -> IntStream.range(0, origins.size()).parallel()
+						.forEach(index -> {
+							routes[index] = this.routeStitching(neighbourIndex, origins.get(index), originMetros, 
+									parameters);
+							routeListener.accept(routes[index]);
+						}))
+				.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Route generation was interrupted", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Route generation failed", e.getCause());
+			} finally {
+				pool.shutdown();
+			}
+		}
+		
+		for(int index = 0; index < origins.size(); index++) {
+			generatedRoutes.put(origins.get(index), routes[index]);
 		}
 		LOGGER.info("Routes generated!");
 		return generatedRoutes;
 		
 	}
 	
-	public Edge findTheNextStop(Set<Edge> outGoingEdges, Set<Node> originMetros, Double routeDistance) {
-		
-		Edge nextStop = null;
-		ArrayList<Edge> edges = new ArrayList<>(outGoingEdges);
-		Collections.sort(edges);
-		
-		List<Edge> potentialEdges = edges.stream()
-				//Filtering out stops less than mininum distance and stops, adding whose distance will exceed route limit
-				.filter((edge) -> 
-				edge.getWeight() > RouteGenerationService.minDistance &&
-				(edge.getWeight() + routeDistance) <= RouteGenerationService.maxDistance)
-				//Filtering out edges whose target is a Bus Stop with 0 demand and metros which are a part of origin metros
-				.filter((edge) -> {
-					if(edge.getTarget().isMetro.equals(new Boolean(false))) {
-						if(edge.getTarget().demand.equals(new Integer(0))) {
-							return false;
-						}
-					} else if(originMetros.contains(edge.getTarget())) {
-						return false;
-					}
-					return true;
-				})
-				.collect(Collectors.toList());
-		
-		if(potentialEdges.size() > 0) {
-			nextStop = potentialEdges.get(0);
+	public BitSet originMetros(NeighbourIndex neighbourIndex) {
+		
+		return this.originMetros(neighbourIndex, planningProfileService.getParameters());
+	}
+	
+	public BitSet originMetros(NeighbourIndex neighbourIndex, PlanningParameters parameters) {
+		
+		BitSet originMetros = new BitSet(neighbourIndex.size());
+		for(int id = 0; id < neighbourIndex.size(); id++) {
+			Node node = neighbourIndex.getNode(id);
+			//Filtering out all Bus Stop Nodes and metros whose demand is less than the origin threshold
+			if(node != null && node.isMetro && node.demand >= parameters.minOriginDemand) {
+				originMetros.set(id);
+			}
+		}
+		return originMetros;
+	}
+	
+	//Bus Stops with 0 demand and metros which are a part of origin metros are never a next stop
+	public boolean isCandidate(Node node, BitSet originMetros) {
+		return node.isMetro ? !originMetros.get(node.id) : node.demand != 0;
+	}
+	
+	//Returns the index position of the nearest eligible neighbour of currentStop, or -1 if there is none
+	public int findTheNextStop(NeighbourIndex neighbourIndex, int currentStop, BitSet originMetros, 
+			double routeDistance, BitSet visitedStops, PlanningParameters parameters) {
+		
+		double minimum = parameters.minDistance;
+		double maximum = parameters.maxDistance;
+		
+		int end = neighbourIndex.getEnd(currentStop);
+		for(int position = neighbourIndex.getStart(currentStop); position < end; position++) {
+			
+			double distance = neighbourIndex.getDistance(position);
+			
+			//Neighbours are sorted by distance, so no later stop fits within the route limit either
+			if(distance + routeDistance > maximum) {
+				break;
+			}
+			
+			//Filtering out stops less than mininum distance and visited stops
+			int target = neighbourIndex.getNeighbour(position);
+			if(distance <= minimum || visitedStops.get(target)) {
+				continue;
+			}
+			
+			if(!this.isCandidate(neighbourIndex.getNode(target), originMetros)) {
+				continue;
+			}
+			return position;
 		}
 		
-		return nextStop;
+		return -1;
 	}
 	
-	public DirectedWeightedMultigraph<Node, Edge> routeStitching(
-			DirectedWeightedMultigraph<Node, Edge> completeGraph, Node currentStop, Set<Node> originMetros,
-			DirectedWeightedMultigraph<Node, Edge> routeGraph, Double routeDistance) {
-		
-		Set<Edge> outGoingEdges = completeGraph.outgoingEdgesOf(currentStop);
-		Edge nextConnection = this.findTheNextStop(outGoingEdges, originMetros, routeDistance);
-		
-		if(nextConnection != null) {
-			Node nextStop = nextConnection.getTarget();
-			routeGraph.addVertex(nextStop);
-			routeGraph.addEdge(currentStop, nextStop, nextConnection);
-			routeGraph.setEdgeWeight(nextConnection, nextConnection.getWeight());
-			routeDistance = routeDistance + nextConnection.getWeight();
-			completeGraph.removeVertex(currentStop);
-			//Recursion
-			this.routeStitching(completeGraph, nextStop, originMetros, routeGraph, routeDistance);
+	//Greedily appends the nearest eligible stop until no stop fits within the route limit
+	public Route routeStitching(NeighbourIndex neighbourIndex, Node origin, BitSet originMetros, 
+			PlanningParameters parameters) {
+		
+		//Stops already on the route, indexed by station ID. The shared index is never modified.
+		BitSet visitedStops = new BitSet(neighbourIndex.size());
+		
+		Node[] stops = new Node[16];
+		double[] legDistances = new double[16];
+		int stopCount = 0;
+		double routeDistance = 0.0;
+		
+		Node currentStop = origin;
+		while(true) {
+			if(stopCount == stops.length) {
+				stops = Arrays.copyOf(stops, stopCount * 2);
+				legDistances = Arrays.copyOf(legDistances, stopCount * 2);
+			}
+			stops[stopCount++] = currentStop;
+			
+			//Mark the current stop as visited so that no later stop can return to it
+			visitedStops.set(currentStop.id);
+			
+			int nextConnection = this.findTheNextStop(neighbourIndex, currentStop.id, originMetros, 
+					routeDistance, visitedStops, parameters);
+			if(nextConnection < 0) {
+				break;
+			}
+			
+			double distance = neighbourIndex.getDistance(nextConnection);
+			legDistances[stopCount - 1] = distance;
+			routeDistance = routeDistance + distance;
+			currentStop = neighbourIndex.getNode(neighbourIndex.getNeighbour(nextConnection));
 		}
 		
-		return routeGraph;
+		return new Route(Arrays.copyOf(stops, stopCount), Arrays.copyOf(legDistances, stopCount - 1));
 	}
 
 }
@@ -0,0 +1,321 @@
+package com.hyderabad.metro.feeder.routes.services;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.Route;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.utils.PipelineMetrics;
+
+//Shortens generated routes by reordering their stops with 2-opt and Or-opt moves. The origin stays first,
+//the set of stops is kept and every new leg has to be longer than minDistance, as in route generation.
+@Service
+public class RouteImprovementService {
+
+	//Longest segment moved by Or-opt
+	private final static int MAX_SEGMENT = 3;
+
+	//Moves have to save more than this, so that rounding never makes the search cycle
+	private final static double EPSILON = 1e-9;
+
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
+
+	private final static Logger LOGGER = Logger.getLogger(RouteImprovementService.class.getName());
+
+	//Returns routes unchanged when route improvement is disabled
+	public Map<Node, Route> improveRoutes(NetworkSnapshot network, Map<Node, Route> routes,
+			PlanningParameters parameters, int parallelism) {
+
+		if(!parameters.routeImprovement) {
+			return routes;
+		}
+		return pipelineMetrics.time("routes.improve", () -> this.improve(network, routes, parameters, parallelism));
+	}
+
+	private Map<Node, Route> improve(NetworkSnapshot network, Map<Node, Route> routes, PlanningParameters parameters,
+			int parallelism) {
+
+		List<Node> origins = routes.keySet().stream().collect(Collectors.toList());
+		Route[] improved = new Route[origins.size()];
+
+		if(parallelism <= 1) {
+			for(int index = 0; index < improved.length; index++) {
+				improved[index] = this.improve(network, routes.get(origins.get(index)), parameters);
+			}
+		} else {
+			//Every route is searched on its own copy of the distances, so routes are improved independently
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				pool.submit(() -> IntStream.range(0, improved.length).parallel()
+						.forEach(index -> improved[index] = this.improve(network, routes.get(origins.get(index)),
+								parameters)))
+				.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Route improvement was interrupted", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Route improvement failed", e.getCause());
+			} finally {
+				pool.shutdown();
+			}
+		}
+
+		Map<Node, Route> improvedRoutes = new LinkedHashMap<>();
+		double before = 0.0;
+		double after = 0.0;
+		for(int index = 0; index < improved.length; index++) {
+			Node origin = origins.get(index);
+			before += routes.get(origin).getLength();
+			after += improved[index].getLength();
+			improvedRoutes.put(origin, improved[index]);
+		}
+		LOGGER.info("Routes improved from " + before + " to " + after + " KMs");
+		return improvedRoutes;
+	}
+
+	//Returns route itself when no order of its stops is shorter
+	public Route improve(NetworkSnapshot network, Route route, PlanningParameters parameters) {
+
+		int size = route.getStopCount();
+		if(size < 3) {
+			return route;
+		}
+		long deadline = System.nanoTime() + parameters.improvementBudgetMillis * 1_000_000L;
+
+		//Flat distances between the stops of the route, stops are referred to by their position in the route
+		double[] distances = new double[size * size];
+		for(int source = 0; source < size; source++) {
+			for(int target = 0; target < size; target++) {
+				distances[source * size + target] = network.getDistance(route.getStopId(source), route.getStopId(target));
+			}
+		}
+
+		Search search = new Search(distances, size, parameters.minDistance);
+		int[] best = new int[size];
+		for(int position = 0; position < size; position++) {
+			best[position] = position;
+		}
+		double bestLength = route.getLength();
+
+		Random random = new Random(route.getOrigin().id);
+		for(int start = 0; start < parameters.improvementStarts; start++) {
+			if(start > 0 && System.nanoTime() >= deadline) {
+				break;
+			}
+			search.reset();
+			if(start > 0) {
+				search.shuffle(random);
+			}
+			search.run(deadline);
+			double length = search.length();
+			if(length < bestLength - EPSILON && length <= parameters.maxDistance && search.isValid()) {
+				bestLength = length;
+				System.arraycopy(search.order, 0, best, 0, size);
+			}
+		}
+
+		if(bestLength >= route.getLength()) {
+			return route;
+		}
+		Node[] stops = new Node[size];
+		double[] legDistances = new double[size - 1];
+		for(int position = 0; position < size; position++) {
+			stops[position] = route.getStop(best[position]);
+			if(position > 0) {
+				legDistances[position - 1] = distances[best[position - 1] * size + best[position]];
+			}
+		}
+		return new Route(stops, legDistances);
+	}
+
+	//Local search state over one route, the arrays are reused between starts
+	private static class Search {
+
+		private final double[] distances;
+
+		private final int size;
+
+		private final double minDistance;
+
+		private final int[] order;
+
+		private final int[] scratch;
+
+		//forward[k] is the length up to position k, backward[k] the length of the same legs driven in reverse
+		private final double[] forward;
+
+		private final double[] backward;
+
+		Search(double[] distances, int size, double minDistance) {
+			this.distances = distances;
+			this.size = size;
+			this.minDistance = minDistance;
+			this.order = new int[size];
+			this.scratch = new int[size];
+			this.forward = new double[size];
+			this.backward = new double[size];
+		}
+
+		void reset() {
+			for(int position = 0; position < this.size; position++) {
+				this.order[position] = position;
+			}
+		}
+
+		//The origin stays at position 0
+		void shuffle(Random random) {
+			for(int position = this.size - 1; position > 1; position--) {
+				int other = 1 + random.nextInt(position);
+				int stop = this.order[position];
+				this.order[position] = this.order[other];
+				this.order[other] = stop;
+			}
+		}
+
+		void run(long deadline) {
+			boolean improved = true;
+			while(improved && System.nanoTime() < deadline) {
+				improved = this.twoOpt() || this.orOpt();
+			}
+		}
+
+		double length() {
+			this.prefixes();
+			return this.forward[this.size - 1];
+		}
+
+		boolean isValid() {
+			for(int position = 1; position < this.size; position++) {
+				if(!this.allowed(this.order[position - 1], this.order[position])) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		//Applies the first reversal of positions i..j that shortens the route
+		private boolean twoOpt() {
+			this.prefixes();
+			int last = this.size - 1;
+			for(int i = 1; i < last; i++) {
+				int before = this.order[i - 1];
+				int first = this.order[i];
+				for(int j = i + 1; j <= last; j++) {
+					int end = this.order[j];
+					double current = this.distance(before, first) + this.forward[j] - this.forward[i];
+					double reversed = this.distance(before, end) + this.backward[j] - this.backward[i];
+					if(j < last) {
+						int after = this.order[j + 1];
+						current += this.distance(end, after);
+						reversed += this.distance(first, after);
+						if(!this.allowed(first, after)) {
+							continue;
+						}
+					}
+					if(reversed < current - EPSILON && this.allowed(before, end) && this.reversible(i, j)) {
+						for(int left = i, right = j; left < right; left++, right--) {
+							int stop = this.order[left];
+							this.order[left] = this.order[right];
+							this.order[right] = stop;
+						}
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		//Applies the first move of a segment of up to MAX_SEGMENT stops to another place that shortens the route
+		private boolean orOpt() {
+			int last = this.size - 1;
+			for(int length = 1; length <= MAX_SEGMENT; length++) {
+				for(int i = 1; i + length - 1 <= last; i++) {
+					int e = i + length - 1;
+					int before = this.order[i - 1];
+					int first = this.order[i];
+					int end = this.order[e];
+					int after = e < last ? this.order[e + 1] : -1;
+					if(after >= 0 && !this.allowed(before, after)) {
+						continue;
+					}
+					double removed = this.distance(before, first)
+							+ (after >= 0 ? this.distance(end, after) - this.distance(before, after) : 0.0);
+					for(int k = 0; k <= last; k++) {
+						if(k >= i - 1 && k <= e) {
+							continue;
+						}
+						int left = this.order[k];
+						int right = k < last ? this.order[k + 1] : -1;
+						double inserted = this.distance(left, first)
+								+ (right >= 0 ? this.distance(end, right) - this.distance(left, right) : 0.0);
+						if(inserted < removed - EPSILON && this.allowed(left, first)
+								&& (right < 0 || this.allowed(end, right))) {
+							this.move(i, e, k);
+							return true;
+						}
+					}
+				}
+			}
+			return false;
+		}
+
+		//Moves positions i..e behind position k
+		private void move(int i, int e, int k) {
+			int length = e - i + 1;
+			int position = 0;
+			for(int index = 0; index < this.size; index++) {
+				if(index >= i && index <= e) {
+					continue;
+				}
+				this.scratch[position++] = this.order[index];
+				if(index == k) {
+					System.arraycopy(this.order, i, this.scratch, position, length);
+					position += length;
+				}
+			}
+			System.arraycopy(this.scratch, 0, this.order, 0, this.size);
+		}
+
+		//The legs inside a reversed segment are driven in the other direction
+		private boolean reversible(int i, int j) {
+			for(int position = i; position < j; position++) {
+				if(!this.allowed(this.order[position + 1], this.order[position])) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void prefixes() {
+			for(int position = 1; position < this.size; position++) {
+				this.forward[position] = this.forward[position - 1]
+						+ this.distance(this.order[position - 1], this.order[position]);
+				this.backward[position] = this.backward[position - 1]
+						+ this.distance(this.order[position], this.order[position - 1]);
+			}
+		}
+
+		private boolean allowed(int source, int target) {
+			return this.distance(source, target) > this.minDistance;
+		}
+
+		private double distance(int source, int target) {
+			return this.distances[source * this.size + target];
+		}
+
+	}
+
+}
@@ -0,0 +1,209 @@
+package com.hyderabad.metro.feeder.routes.services;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.Route;
+import com.hyderabad.metro.feeder.routes.beans.RouteMetrics;
+import com.hyderabad.metro.feeder.routes.beans.Scenario;
+import com.hyderabad.metro.feeder.routes.beans.ScenarioResult;
+import com.hyderabad.metro.feeder.routes.beans.StationRegistry;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.utils.PipelineMetrics;
+
+import io.micrometer.core.instrument.Timer;
+
+//Evaluates what-if scenarios over one base network, sharing every intermediate result scenarios have in common
+@Service
+public class ScenarioService {
+	
+	@Autowired
+	private RouteGenerationService routeGenerationService;
+	
+	@Autowired
+	private FleetAdjustmentService fleetAdjustmentService;
+	
+	@Autowired
+	private RouteImprovementService routeImprovementService;
+	
+	@Autowired
+	private CreateGraph createGraph;
+	
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
+	
+	private final static Logger LOGGER = Logger.getLogger(ScenarioService.class.getName());
+	
+	//Scenarios evaluated concurrently, 0 uses every available processor
+	@Value("${routes.scenarios.parallelism:0}")
+	private int parallelism = 0;
+	
+	//Largest batch accepted at once
+	@Value("${routes.scenarios.max-count:5000}")
+	private int maxCount = 5000;
+	
+	public int getMaxCount() {
+		return this.maxCount;
+	}
+	
+	public List<ScenarioResult> evaluate(NetworkSnapshot network, List<Scenario> scenarios) {
+		
+		if(scenarios.size() > this.maxCount) {
+			throw new IllegalArgumentException("At most " + this.maxCount + " scenarios are evaluated at once, got " 
+					+ scenarios.size());
+		}
+		return this.evaluate(network, scenarios, 
+				this.parallelism > 0 ? this.parallelism : Runtime.getRuntime().availableProcessors());
+	}
+	
+	//Results are in the order of the scenarios
+	public List<ScenarioResult> evaluate(NetworkSnapshot network, List<Scenario> scenarios, int parallelism) {
+		
+		long start = System.currentTimeMillis();
+		Timer.Sample sample = pipelineMetrics.startSample();
+		
+		//The neighbour order only depends on the distances, so one index serves every demand multiplier
+		NeighbourIndex baseIndex = NeighbourIndex.of(network, new StationRegistry(network));
+		Map<Double, ScaledNetwork> networks = new ConcurrentHashMap<>();
+		networks.put(1.0, new ScaledNetwork(network, baseIndex));
+		
+		//Routes only depend on the demands and the route limits, so sweeps of the fleet parameters share them
+		Map<String, Map<Node, Route>> routeSets = new ConcurrentHashMap<>();
+		
+		ScenarioResult[] results = new ScenarioResult[scenarios.size()];
+		
+		if(parallelism <= 1) {
+			for(int index = 0; index < scenarios.size(); index++) {
+				results[index] = this.evaluate(scenarios.get(index), baseIndex, networks, routeSets);
+			}
+		} else {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				pool.submit(() -> IntStream.range(0, scenarios.size()).parallel()
+						.forEach(index -> results[index] = this.evaluate(scenarios.get(index), baseIndex, 
+								networks, routeSets)))
+				.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Scenario evaluation was interrupted", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Scenario evaluation failed", e.getCause());
+			} finally {
+				pool.shutdown();
+			}
+		}
+		
+		pipelineMetrics.stopSample(sample, "scenarios");
+		LOGGER.info(scenarios.size() + " scenarios evaluated with " + routeSets.size() + " distinct route sets in " 
+				+ (System.currentTimeMillis() - start) + " ms");
+		return Arrays.asList(results);
+	}
+	
+	private ScenarioResult evaluate(Scenario scenario, NeighbourIndex baseIndex, Map<Double, ScaledNetwork> networks, 
+			Map<String, Map<Node, Route>> routeSets) {
+		
+		PlanningParameters parameters = scenario.getParameters();
+		double multiplier = scenario.getDemandMultiplier();
+		ScaledNetwork scaled = networks.computeIfAbsent(multiplier, key -> this.scale(networks.get(1.0), key));
+		
+		String routeKey = multiplier + ";" + parameters.maxDistance + ";" + parameters.minDistance + ";" 
+				+ parameters.minOriginDemand + ";" + parameters.routeImprovement + ";" + parameters.improvementStarts 
+				+ ";" + parameters.improvementBudgetMillis + ";" + parameters.sparseGraph + ";" + parameters.neighbours;
+		Map<Node, Route> routes = routeSets.computeIfAbsent(routeKey, key -> routeImprovementService.improveRoutes(
+				scaled.network, routeGenerationService.generateRoutes(this.neighbourIndex(scaled, parameters), 
+						parameters, 1, route -> {}), parameters, 1));
+		
+		Map<Node, RouteMetrics> routeMetrics = fleetAdjustmentService.routeMetricsOfRoutes(scaled.network, routes, 
+				parameters);
+		Map<Node, Integer> fleetSizes = fleetAdjustmentService.computeFromMetrics(routeMetrics, parameters);
+		
+		return this.summarize(scenario, routeMetrics, fleetSizes);
+	}
+	
+	//Scenarios in sparse graph mode are planned on the same edges as planning jobs of their profile. The sparse 
+	//edges depend on the route limits, so they are kept per limits of every scaled network.
+	private NeighbourIndex neighbourIndex(ScaledNetwork scaled, PlanningParameters parameters) {
+		
+		if(!parameters.sparseGraph) {
+			return scaled.neighbourIndex;
+		}
+		String key = parameters.minDistance + ";" + parameters.maxDistance + ";" + parameters.neighbours;
+		return scaled.sparseIndexes.computeIfAbsent(key, 
+				limits -> createGraph.createNeighbourIndex(scaled.network, parameters));
+	}
+	
+	private ScaledNetwork scale(ScaledNetwork base, double multiplier) {
+		
+		NetworkSnapshot network = base.network.withScaledDemands(multiplier);
+		StationRegistry stationRegistry = new StationRegistry(network);
+		Node[] nodes = new Node[network.size()];
+		for(int id = 0; id < nodes.length; id++) {
+			nodes[id] = stationRegistry.getNode(id);
+		}
+		return new ScaledNetwork(network, base.neighbourIndex.withNodes(nodes));
+	}
+	
+	//Headways follow from the final fleet sizes, routes without buses have no headway
+	private ScenarioResult summarize(Scenario scenario, Map<Node, RouteMetrics> routeMetrics, 
+			Map<Node, Integer> fleetSizes) {
+		
+		PlanningParameters parameters = scenario.getParameters();
+		int totalFleetSize = 0;
+		int servedRoutes = 0;
+		double minHeadway = Double.MAX_VALUE;
+		double maxHeadway = 0.0;
+		double headwaySum = 0.0;
+		double maxRouteLength = 0.0;
+		double totalRouteLength = 0.0;
+		
+		for(Map.Entry<Node, RouteMetrics> entry: routeMetrics.entrySet()) {
+			RouteMetrics metrics = entry.getValue();
+			int fleetSize = fleetSizes.get(entry.getKey());
+			totalFleetSize += fleetSize;
+			maxRouteLength = Math.max(maxRouteLength, metrics.getLength());
+			totalRouteLength += metrics.getLength();
+			if(fleetSize > 0) {
+				double headway = 60 * parameters.cycleDistance(metrics.getLength(), metrics.getStopCount()) 
+						/ (fleetSize * parameters.speedOfTheBus);
+				minHeadway = Math.min(minHeadway, headway);
+				maxHeadway = Math.max(maxHeadway, headway);
+				headwaySum += headway;
+				servedRoutes++;
+			}
+		}
+		
+		int routeCount = routeMetrics.size();
+		return new ScenarioResult(scenario.getName(), scenario.getDemandMultiplier(), routeCount, totalFleetSize, 
+				servedRoutes == 0 ? 0.0 : minHeadway, servedRoutes == 0 ? 0.0 : headwaySum / servedRoutes, maxHeadway, 
+				routeCount == 0 ? 0.0 : totalRouteLength / routeCount, maxRouteLength, totalRouteLength);
+	}
+	
+	private static class ScaledNetwork {
+		
+		private final NetworkSnapshot network;
+		
+		private final NeighbourIndex neighbourIndex;
+		
+		private final Map<String, NeighbourIndex> sparseIndexes = new ConcurrentHashMap<>();
+		
+		ScaledNetwork(NetworkSnapshot network, NeighbourIndex neighbourIndex) {
+			this.network = network;
+			this.neighbourIndex = neighbourIndex;
+		}
+		
+	}
+
+}
@@ -0,0 +1,200 @@
+package com.hyderabad.metro.feeder.routes.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.springframework.stereotype.Service;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.config.WorkbookLayout;
+
+//Compact network file that is memory mapped instead of parsed, all numbers are little endian.
+//
+//	header          magic "MFNW", version, station count N, station table length in bytes,
+//	                SHA-256 of the source workbook (zeros when unknown)
+//	station table   N entries of a 2 byte length and the UTF-8 bytes of the header name
+//	distances       N*N doubles, source major, starting at a multiple of 8 bytes
+//	demands         N ints
+//	travel demands  N*N ints, source major, NO_DEMAND where the matrix has no integer cell
+@Service
+public class BinaryNetworkFile implements NetworkSource {
+	
+	private final static Logger LOGGER = Logger.getLogger(BinaryNetworkFile.class.getName());
+	
+	public final static int MAGIC = 0x574E464D; //"MFNW" read as a little endian int
+	
+	public final static int VERSION = 1;
+	
+	private final static int HEADER_LENGTH = 16 + 32;
+	
+	@Override
+	public String getFormat() {
+		return "binary";
+	}
+	
+	@Override
+	public boolean supports(Path path) throws IOException {
+		if(!Files.isRegularFile(path) || Files.size(path) < HEADER_LENGTH) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			while(magic.hasRemaining() && channel.read(magic) >= 0) {
+				continue;
+			}
+			return magic.getInt(0) == MAGIC;
+		}
+	}
+	
+	//Binary files hold every value as a number, nothing is malformed
+	@Override
+	public NetworkSnapshot read(Path path, WorkbookLayout layout, List<String> malformedCells) throws IOException {
+		return this.load(path);
+	}
+	
+	public void write(NetworkSnapshot network, byte[] sourceDigest, Path file) throws IOException {
+		
+		int size = network.size();
+		byte[][] names = new byte[size][];
+		int stationTableLength = 0;
+		for(int id = 0; id < size; id++) {
+			names[id] = network.getStation(id).getBytes(StandardCharsets.UTF_8);
+			if(names[id].length > 0xFFFF) {
+				throw new IllegalArgumentException("Station name too long: " + network.getStation(id));
+			}
+			stationTableLength += 2 + names[id].length;
+		}
+		
+		//Written next to the target and moved into place, so readers never see a partial file
+		Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+		try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temporary), 64 * 1024)) {
+			ByteBuffer buffer = ByteBuffer.allocate(8 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(stationTableLength);
+			buffer.put(sourceDigest == null ? new byte[32] : Arrays.copyOf(sourceDigest, 32));
+			for(int id = 0; id < size; id++) {
+				this.ensureCapacity(buffer, output, 2 + names[id].length);
+				buffer.putShort((short) names[id].length).put(names[id]);
+			}
+			for(int padding = this.distancesOffset(stationTableLength) - HEADER_LENGTH - stationTableLength; 
+					padding > 0; padding--) {
+				this.ensureCapacity(buffer, output, 1);
+				buffer.put((byte) 0);
+			}
+			for(int source = 0; source < size; source++) {
+				for(int target = 0; target < size; target++) {
+					this.ensureCapacity(buffer, output, 8);
+					buffer.putDouble(network.getDistance(source, target));
+				}
+			}
+			for(int id = 0; id < size; id++) {
+				this.ensureCapacity(buffer, output, 4);
+				buffer.putInt(network.getDemand(id));
+			}
+			for(int source = 0; source < size; source++) {
+				for(int destination = 0; destination < size; destination++) {
+					this.ensureCapacity(buffer, output, 4);
+					buffer.putInt(network.getTravelDemand(source, destination));
+				}
+			}
+			output.write(buffer.array(), 0, buffer.position());
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		LOGGER.info("Network with " + size + " stations written to " + file);
+	}
+	
+	//The matrices stay in the page cache, only the station names are copied onto the heap
+	public NetworkSnapshot load(Path file) throws IOException {
+		
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), HEADER_LENGTH))
+					.order(ByteOrder.LITTLE_ENDIAN);
+			if(header.limit() < HEADER_LENGTH || header.getInt(0) != MAGIC) {
+				throw new IOException(file + " is not a network file");
+			}
+			if(header.getInt(4) != VERSION) {
+				throw new IOException(file + " has unsupported version " + header.getInt(4));
+			}
+			int size = header.getInt(8);
+			int stationTableLength = header.getInt(12);
+			long distancesOffset = this.distancesOffset(stationTableLength);
+			long demandsOffset = distancesOffset + 8L * size * size;
+			long travelDemandsOffset = demandsOffset + 4L * size;
+			long length = travelDemandsOffset + 4L * size * size;
+			if(size < 0 || stationTableLength < 0 || channel.size() != length) {
+				throw new IOException(file + " is truncated or corrupt, expected " + length + " bytes");
+			}
+			
+			ByteBuffer stationTable = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH, stationTableLength)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			String[] stations = new String[size];
+			for(int id = 0; id < size; id++) {
+				int nameLength = stationTable.remaining() < 2 ? -1 : stationTable.getShort() & 0xFFFF;
+				if(nameLength < 0 || nameLength > stationTable.remaining()) {
+					throw new IOException(file + " is truncated or corrupt, its station table ends at station " + id);
+				}
+				byte[] name = new byte[nameLength];
+				stationTable.get(name);
+				stations[id] = new String(name, StandardCharsets.UTF_8).intern();
+			}
+			if(stationTable.hasRemaining()) {
+				throw new IOException(file + " is truncated or corrupt, its station table has " + stationTable.remaining() 
+						+ " bytes after the last station");
+			}
+			
+			//Each section is mapped on its own, so only one matrix has to fit the 2 GB limit of a mapping
+			MappedByteBuffer distances = channel.map(FileChannel.MapMode.READ_ONLY, distancesOffset, 8L * size * size);
+			MappedByteBuffer demands = channel.map(FileChannel.MapMode.READ_ONLY, demandsOffset, 4L * size);
+			MappedByteBuffer travelDemands = channel.map(FileChannel.MapMode.READ_ONLY, travelDemandsOffset, 
+					4L * size * size);
+			return new NetworkSnapshot(stations, 
+					distances.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer(), 
+					demands.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(), 
+					travelDemands.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer());
+		}
+	}
+	
+	//SHA-256 of the workbook the file was generated from, all zeros when it is unknown
+	public byte[] readSourceDigest(Path file) throws IOException {
+		
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+			while(header.hasRemaining() && channel.read(header) >= 0) {
+				continue;
+			}
+			if(header.hasRemaining() || header.order(ByteOrder.LITTLE_ENDIAN).getInt(0) != MAGIC) {
+				throw new IOException(file + " is not a network file");
+			}
+			return Arrays.copyOfRange(header.array(), 16, HEADER_LENGTH);
+		}
+	}
+	
+	private int distancesOffset(int stationTableLength) {
+		return (HEADER_LENGTH + stationTableLength + 7) & ~7;
+	}
+	
+	private void ensureCapacity(ByteBuffer buffer, OutputStream output, int bytes) throws IOException {
+		if(buffer.remaining() < bytes) {
+			output.write(buffer.array(), 0, buffer.position());
+			//Cast keeps the Java 8 signature of clear()
+			((Buffer) buffer).clear();
+		}
+	}
+
+}
@@ -0,0 +1,598 @@
+package com.hyderabad.metro.feeder.routes.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.config.WorkbookLayout;
+
+//CSV exports of a network, in a directory or a zip file. The files are memory mapped and parsed in place,
+//numbers go straight into the snapshot arrays and only station names become Strings.
+//
+//	distances.csv       header of the station names after one empty cell, then one row per station with the
+//	                    distances from every column station to the row station, like the Matrix sheet
+//	demand.csv          station name and demand per row, an optional header row
+//	travel-demand.csv   optional, like the Travel Demand Matrix sheet, stations matched without their " m" / " b"
+//	                    suffix and whole numbers of trips only
+@Service
+public class CsvNetworkSource implements NetworkSource {
+
+	public final static String DISTANCES = "distances.csv";
+
+	public final static String DEMAND = "demand.csv";
+
+	public final static String TRAVEL_DEMAND = "travel-demand.csv";
+
+	//Files are mapped in windows of this many bytes, so no line may be longer
+	private final static int WINDOW = 64 * 1024 * 1024;
+
+	//Bytes extracted from a zip at most, uploads are bounded by their compressed size only
+	@Value("${routes.network.max-extracted-bytes:1073741824}")
+	private long maxExtractedBytes = 1073741824L;
+
+	//Powers of ten that are exact doubles, see parseNumber
+	private final static double[] POWERS_OF_TEN = new double[23];
+
+	static {
+		POWERS_OF_TEN[0] = 1.0;
+		for(int exponent = 1; exponent < POWERS_OF_TEN.length; exponent++) {
+			POWERS_OF_TEN[exponent] = POWERS_OF_TEN[exponent - 1] * 10;
+		}
+	}
+
+	@Override
+	public String getFormat() {
+		return "csv";
+	}
+
+	@Override
+	public boolean supports(Path path) throws IOException {
+		if(Files.isDirectory(path)) {
+			return Files.isRegularFile(path.resolve(DISTANCES));
+		}
+		if(!Files.isRegularFile(path) || !this.isZip(path)) {
+			return false;
+		}
+		try (ZipFile zip = new ZipFile(path.toFile())) {
+			return this.findEntry(zip, DISTANCES) != null;
+		}
+	}
+
+	@Override
+	public NetworkSnapshot read(Path path, WorkbookLayout layout, List<String> malformedCells) throws IOException {
+		if(Files.isDirectory(path)) {
+			return this.readDirectory(path, malformedCells);
+		}
+		//Zip entries cannot be mapped, they are extracted next to each other first
+		Path directory = Files.createTempDirectory("metro-feeder-csv");
+		try {
+			try (ZipFile zip = new ZipFile(path.toFile())) {
+				long remaining = this.maxExtractedBytes;
+				for(String name: new String[] { DISTANCES, DEMAND, TRAVEL_DEMAND }) {
+					ZipEntry entry = this.findEntry(zip, name);
+					if(entry != null) {
+						try (InputStream is = zip.getInputStream(entry)) {
+							remaining -= this.extract(is, entry, directory.resolve(name), remaining);
+						}
+					}
+				}
+			}
+			return this.readDirectory(directory, malformedCells);
+		} finally {
+			try (Stream<Path> files = Files.list(directory)) {
+				for(Path file: (Iterable<Path>) files::iterator) {
+					Files.deleteIfExists(file);
+				}
+			}
+			Files.deleteIfExists(directory);
+		}
+	}
+
+	private NetworkSnapshot readDirectory(Path directory, List<String> malformedCells) throws IOException {
+
+		MatrixLines matrix = new MatrixLines(DISTANCES, malformedCells);
+		CsvNetworkSource.parse(directory.resolve(DISTANCES), matrix);
+		if(matrix.stations == null) {
+			throw new IllegalArgumentException(DISTANCES + " has no header row");
+		}
+		matrix.missingRows();
+
+		Path demandFile = directory.resolve(DEMAND);
+		if(!Files.isRegularFile(demandFile)) {
+			throw new IllegalArgumentException("The network has no " + DEMAND);
+		}
+		DemandLines demand = new DemandLines(matrix.stations, matrix.stationIndex, malformedCells);
+		CsvNetworkSource.parse(demandFile, demand);
+
+		TravelDemandLines travelDemand = new TravelDemandLines(matrix.stations, malformedCells);
+		Path travelDemandFile = directory.resolve(TRAVEL_DEMAND);
+		if(Files.isRegularFile(travelDemandFile)) {
+			CsvNetworkSource.parse(travelDemandFile, travelDemand);
+		}
+
+		return new NetworkSnapshot(matrix.stations, matrix.distances, demand.demands, travelDemand.travelDemands);
+	}
+
+	//Maps the file window by window, every window ends after the last complete line it holds. Other CSV inputs
+	//of the package, like road networks, are parsed with it as well.
+	static void parse(Path file, Lines lines) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = 0;
+			Fields fields = new Fields();
+			while(position < size) {
+				int length = (int) Math.min(WINDOW, size - position);
+				MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				int end = length;
+				if(position + length < size) {
+					end = CsvNetworkSource.lastLineEnd(window, length);
+					if(end == 0) {
+						throw new IllegalArgumentException(file.getFileName() + " has a line longer than " + WINDOW + " bytes");
+					}
+				}
+				int start = position == 0 ? CsvNetworkSource.skipByteOrderMark(window, end) : 0;
+				while(start < end) {
+					int lineEnd = start;
+					while(lineEnd < end && window.get(lineEnd) != '\n') {
+						lineEnd++;
+					}
+					fields.split(window, start, lineEnd > start && window.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd);
+					lines.line(fields);
+					start = lineEnd + 1;
+				}
+				position += end;
+			}
+		}
+	}
+
+	private static int lastLineEnd(ByteBuffer window, int length) {
+		for(int index = length - 1; index >= 0; index--) {
+			if(window.get(index) == '\n') {
+				return index + 1;
+			}
+		}
+		return 0;
+	}
+
+	private static int skipByteOrderMark(ByteBuffer window, int end) {
+		return end >= 3 && window.get(0) == (byte) 0xEF && window.get(1) == (byte) 0xBB && window.get(2) == (byte) 0xBF
+				? 3 : 0;
+	}
+
+	//Stops as soon as the entry grows beyond remaining bytes, sizes in the zip directory are not trusted
+	private long extract(InputStream input, ZipEntry entry, Path file, long remaining) throws IOException {
+		if(entry.getSize() > remaining) {
+			this.tooLarge();
+		}
+		byte[] buffer = new byte[64 * 1024];
+		long written = 0;
+		try (OutputStream output = Files.newOutputStream(file)) {
+			for(int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+				written += read;
+				if(written > remaining) {
+					this.tooLarge();
+				}
+				output.write(buffer, 0, read);
+			}
+		}
+		return written;
+	}
+
+	private void tooLarge() {
+		throw new IllegalArgumentException("The zipped network extracts to more than " + this.maxExtractedBytes 
+				+ " bytes");
+	}
+
+	private boolean isZip(Path path) throws IOException {
+		try (InputStream is = Files.newInputStream(path)) {
+			return is.read() == 'P' && is.read() == 'K';
+		}
+	}
+
+	//Exports are often zipped with their directory
+	private ZipEntry findEntry(ZipFile zip, String name) {
+		return zip.stream().filter(entry -> !entry.isDirectory()
+				&& (entry.getName().equals(name) || entry.getName().endsWith("/" + name))).findFirst().orElse(null);
+	}
+
+	private static String stripSuffix(String name) {
+		return name.length() < 2 ? name : name.substring(0, name.length() - 2);
+	}
+
+	//Decimal numbers of up to 15 digits and 22 powers of ten are converted with one exact multiplication or
+	//division, which rounds like Double.parseDouble. Longer numbers fall back to Double.parseDouble.
+	private static double parseNumber(ByteBuffer buffer, int start, int end) {
+		int index = start;
+		boolean negative = false;
+		if(index < end && (buffer.get(index) == '-' || buffer.get(index) == '+')) {
+			negative = buffer.get(index++) == '-';
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean anyDigit = false;
+		for(; index < end && buffer.get(index) >= '0' && buffer.get(index) <= '9'; index++) {
+			anyDigit = true;
+			if(mantissa != 0 || buffer.get(index) != '0') {
+				mantissa = mantissa * 10 + (buffer.get(index) - '0');
+				digits++;
+			}
+			if(digits > 15) {
+				return parseSlowly(buffer, start, end);
+			}
+		}
+		if(index < end && buffer.get(index) == '.') {
+			for(index++; index < end && buffer.get(index) >= '0' && buffer.get(index) <= '9'; index++) {
+				anyDigit = true;
+				if(mantissa != 0 || buffer.get(index) != '0') {
+					mantissa = mantissa * 10 + (buffer.get(index) - '0');
+					digits++;
+				}
+				exponent--;
+				if(digits > 15) {
+					return parseSlowly(buffer, start, end);
+				}
+			}
+		}
+		if(!anyDigit) {
+			return Double.NaN;
+		}
+		if(index < end && (buffer.get(index) == 'e' || buffer.get(index) == 'E')) {
+			index++;
+			boolean negativeExponent = false;
+			if(index < end && (buffer.get(index) == '-' || buffer.get(index) == '+')) {
+				negativeExponent = buffer.get(index++) == '-';
+			}
+			int value = 0;
+			boolean exponentDigit = false;
+			for(; index < end && buffer.get(index) >= '0' && buffer.get(index) <= '9'; index++) {
+				exponentDigit = true;
+				if(value > 10000) {
+					return parseSlowly(buffer, start, end);
+				}
+				value = value * 10 + (buffer.get(index) - '0');
+			}
+			if(!exponentDigit) {
+				return Double.NaN;
+			}
+			exponent += negativeExponent ? -value : value;
+		}
+		if(index != end) {
+			return Double.NaN;
+		}
+		double value;
+		if(mantissa == 0) {
+			value = 0.0;
+		} else if(exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+			value = mantissa * POWERS_OF_TEN[exponent];
+		} else if(exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+			value = mantissa / POWERS_OF_TEN[-exponent];
+		} else {
+			return parseSlowly(buffer, start, end);
+		}
+		return negative ? -value : value;
+	}
+
+	private static double parseSlowly(ByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for(int index = start; index < end; index++) {
+			bytes[index - start] = buffer.get(index);
+		}
+		try {
+			return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	//Field boundaries of the current line, the bytes stay in the mapped window
+	static class Fields {
+
+		private ByteBuffer buffer;
+
+		private int[] starts = new int[64];
+
+		private int[] ends = new int[64];
+
+		private int count;
+
+		private int line;
+
+		void split(ByteBuffer buffer, int start, int end) {
+			this.buffer = buffer;
+			this.count = 0;
+			this.line++;
+			if(start == end) {
+				return;
+			}
+			int index = start;
+			while(true) {
+				if(this.count == this.starts.length) {
+					this.starts = Arrays.copyOf(this.starts, this.count * 2);
+					this.ends = Arrays.copyOf(this.ends, this.count * 2);
+				}
+				this.starts[this.count] = index;
+				if(index < end && buffer.get(index) == '"') {
+					//Quoted fields keep their quotes until string() unescapes them
+					for(index++; index < end; index++) {
+						if(buffer.get(index) == '"') {
+							if(index + 1 < end && buffer.get(index + 1) == '"') {
+								index++;
+							} else {
+								break;
+							}
+						}
+					}
+				}
+				while(index < end && buffer.get(index) != ',') {
+					index++;
+				}
+				this.ends[this.count++] = index;
+				if(index == end) {
+					return;
+				}
+				index++;
+			}
+		}
+
+		int count() {
+			return this.count;
+		}
+
+		int line() {
+			return this.line;
+		}
+
+		boolean isBlank(int field) {
+			for(int index = this.starts[field]; index < this.ends[field]; index++) {
+				if(this.buffer.get(index) != ' ' && this.buffer.get(index) != '\t') {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		String string(int field) {
+			int start = this.starts[field];
+			int end = this.ends[field];
+			byte[] bytes = new byte[end - start];
+			int length = 0;
+			boolean quoted = end - start >= 2 && this.buffer.get(start) == '"' && this.buffer.get(end - 1) == '"';
+			for(int index = quoted ? start + 1 : start; index < (quoted ? end - 1 : end); index++) {
+				bytes[length++] = this.buffer.get(index);
+				if(quoted && this.buffer.get(index) == '"') {
+					index++;
+				}
+			}
+			String value = new String(bytes, 0, length, StandardCharsets.UTF_8);
+			return quoted ? value : value.trim();
+		}
+
+		//NaN when the field is not a number
+		double number(int field) {
+			int start = this.starts[field];
+			int end = this.ends[field];
+			while(start < end && (this.buffer.get(start) == ' ' || this.buffer.get(start) == '"')) {
+				start++;
+			}
+			while(end > start && (this.buffer.get(end - 1) == ' ' || this.buffer.get(end - 1) == '"')) {
+				end--;
+			}
+			return parseNumber(this.buffer, start, end);
+		}
+
+	}
+
+	abstract static class Lines {
+
+		private final String fileName;
+
+		private final List<String> malformedCells;
+
+		Lines(String fileName, List<String> malformedCells) {
+			this.fileName = fileName;
+			this.malformedCells = malformedCells;
+		}
+
+		abstract void line(Fields fields);
+
+		//Field numbers start at 1, like the columns of a spreadsheet
+		void malformed(Fields fields, int field, String problem) {
+			this.malformedCells.add(this.fileName + " line " + fields.line() + " field " + (field + 1) + ": " + problem);
+		}
+
+		//Problems of the file as a whole
+		void malformed(String problem) {
+			this.malformedCells.add(this.fileName + ": " + problem);
+		}
+
+		double number(Fields fields, int field) {
+			double value = fields.number(field);
+			if(Double.isNaN(value)) {
+				this.malformed(fields, field, "'" + fields.string(field) + "' is not a number");
+			}
+			return value;
+		}
+
+	}
+
+	private static class MatrixLines extends Lines {
+
+		private String[] stations;
+
+		private Map<String, Integer> stationIndex;
+
+		private double[] distances;
+
+		//Stations whose row was read, later rows of the same station are skipped
+		private final BitSet targets = new BitSet();
+
+		MatrixLines(String fileName, List<String> malformedCells) {
+			super(fileName, malformedCells);
+		}
+
+		@Override
+		void line(Fields fields) {
+			if(fields.count() == 0) {
+				return;
+			}
+			if(this.stations == null) {
+				int size = fields.count() - 1;
+				this.stations = new String[size];
+				this.stationIndex = new HashMap<>();
+				for(int id = 0; id < size; id++) {
+					this.stations[id] = fields.string(id + 1).intern();
+					this.stationIndex.putIfAbsent(this.stations[id], id);
+				}
+				this.distances = new double[size * size];
+				return;
+			}
+			String name = fields.string(0);
+			Integer target = this.stationIndex.get(name);
+			if(target == null) {
+				this.malformed(fields, 0, "unknown station '" + name + "'");
+				return;
+			}
+			if(this.targets.get(target)) {
+				this.malformed(fields, 0, "second row of station '" + name + "'");
+				return;
+			}
+			this.targets.set(target);
+			int size = this.stations.length;
+			int count = Math.min(fields.count() - 1, size);
+			for(int source = 0; source < count; source++) {
+				if(fields.isBlank(source + 1)) {
+					continue;
+				}
+				double distance = this.number(fields, source + 1);
+				this.distances[source * size + target] = Double.isNaN(distance) ? 0.0 : distance;
+			}
+		}
+
+		//Stations without a row would keep distances of 0 to every other station
+		void missingRows() {
+			for(int id = this.targets.nextClearBit(0); id < this.stations.length; id = this.targets.nextClearBit(id + 1)) {
+				this.malformed("no row for station '" + this.stations[id] + "'");
+			}
+		}
+
+	}
+
+	private static class DemandLines extends Lines {
+
+		private final Map<String, Integer> stationIndex;
+
+		private final int[] demands;
+
+		private final boolean[] demandFound;
+
+		private boolean first = true;
+
+		DemandLines(String[] stations, Map<String, Integer> stationIndex, List<String> malformedCells) {
+			super(DEMAND, malformedCells);
+			this.stationIndex = stationIndex;
+			this.demands = new int[stations.length];
+			this.demandFound = new boolean[stations.length];
+		}
+
+		@Override
+		void line(Fields fields) {
+			boolean header = this.first;
+			this.first = false;
+			if(fields.count() < 2) {
+				return;
+			}
+			//A first row that names no station is the header
+			Integer id = this.stationIndex.get(fields.string(0));
+			if(id == null) {
+				if(!header) {
+					this.malformed(fields, 0, "unknown station '" + fields.string(0) + "'");
+				}
+				return;
+			}
+			if(this.demandFound[id] || fields.isBlank(1)) {
+				return;
+			}
+			double demand = this.number(fields, 1);
+			this.demands[id] = Double.isNaN(demand) ? 0 : (int) demand;
+			this.demandFound[id] = true;
+		}
+
+	}
+
+	private static class TravelDemandLines extends Lines {
+
+		private final Map<String, Integer> stationByName = new HashMap<>();
+
+		private final int size;
+
+		private final int[] travelDemands;
+
+		private int[] destinations;
+
+		TravelDemandLines(String[] stations, List<String> malformedCells) {
+			super(TRAVEL_DEMAND, malformedCells);
+			this.size = stations.length;
+			for(int id = this.size - 1; id >= 0; id--) {
+				this.stationByName.put(stripSuffix(stations[id]), id);
+			}
+			this.travelDemands = new int[this.size * this.size];
+			Arrays.fill(this.travelDemands, NetworkSnapshot.NO_DEMAND);
+		}
+
+		@Override
+		void line(Fields fields) {
+			if(fields.count() == 0) {
+				return;
+			}
+			if(this.destinations == null) {
+				this.destinations = new int[fields.count() - 1];
+				for(int index = 0; index < this.destinations.length; index++) {
+					Integer id = this.stationByName.get(stripSuffix(fields.string(index + 1)));
+					this.destinations[index] = id == null ? -1 : id;
+				}
+				return;
+			}
+			Integer source = this.stationByName.get(stripSuffix(fields.string(0)));
+			if(source == null) {
+				return;
+			}
+			int count = Math.min(fields.count() - 1, this.destinations.length);
+			for(int index = 0; index < count; index++) {
+				if(this.destinations[index] < 0 || fields.isBlank(index + 1)) {
+					continue;
+				}
+				double travelDemand = this.number(fields, index + 1);
+				if(Double.isNaN(travelDemand)) {
+					continue;
+				}
+				if(Math.floor(travelDemand) != travelDemand) {
+					this.malformed(fields, index + 1, fields.string(index + 1) + " is not a whole number of trips");
+					continue;
+				}
+				this.travelDemands[source * this.size + this.destinations[index]] = (int) travelDemand;
+			}
+		}
+
+	}
+
+}
@@ -1,6 +1,7 @@
 package com.hyderabad.metro.feeder.routes.utils;
 
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -12,6 +13,7 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
@@ -20,36 +22,63 @@ public class ExcelUtility {
 	
 	private final static Logger LOGGER = Logger.getLogger(ExcelUtility.class.getName());
 	
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
+	
+	public final static String WORKBOOK_PATH = "/templates/Matrix.xlsx";
+	
 	public List<List<Object>> readData(String workSheetName, Integer startRow, Integer endRow, 
 			Integer startColumn, Integer endColumn) {
 		
-		FileInputStream fis = null;
+		return pipelineMetrics.time("excel.read", () -> {
+			List<List<Object>> data = new ArrayList<List<Object>>();
+			try (Workbook workbook = this.openWorkbook()) {
+				data = this.readData(workbook, workSheetName, startRow, endRow, startColumn, endColumn);
+			} catch (Exception e) {
+				LOGGER.log(Level.WARNING, e.getMessage());
+			}		
+			return data;
+		});
+	}
+	
+	//Reads a range from an already opened workbook so that several sheets can share one parse.
+	//A null or negative endRow / endColumn reads up to the last row / the last cell of the first row.
+	public List<List<Object>> readData(Workbook workbook, String workSheetName, Integer startRow, Integer endRow, 
+			Integer startColumn, Integer endColumn) {
+		
 		List<List<Object>> data = new ArrayList<List<Object>>();
-		try {
-			fis = new FileInputStream(new ClassPathResource("/templates/Matrix.xlsx").getFile());
-			Workbook workbook = WorkbookFactory.create(fis);
-			Sheet sheet = workbook.getSheet(workSheetName);
-			Row row = null;
-			
-			for(int rowIndex= startRow; rowIndex<=endRow; rowIndex++) {
-				row = sheet.getRow(rowIndex);
-				List<Object> rowData = new ArrayList<Object>();
-				for(int columnIndex = startColumn; columnIndex<= endColumn; columnIndex++) {
-					Cell cell = row.getCell(columnIndex);
-					rowData.add(this.getCellValue(cell));
-				}
-				data.add(rowData);
+		Sheet sheet = workbook.getSheet(workSheetName);
+		if(sheet == null) {
+			LOGGER.warning("The workbook has no sheet " + workSheetName);
+			return data;
+		}
+		
+		int lastRow = endRow == null || endRow < 0 ? sheet.getLastRowNum() : endRow;
+		int lastColumn = endColumn == null || endColumn < 0 ? this.lastColumn(sheet.getRow(startRow)) : endColumn;
+		for(int rowIndex= startRow; rowIndex<=lastRow; rowIndex++) {
+			Row row = sheet.getRow(rowIndex);
+			//Missing rows are read as empty cells instead of ending the read early
+			if(row == null) {
+				LOGGER.warning(workSheetName + " has no row " + (rowIndex + 1));
 			}
-		} catch (Exception e) {
-			LOGGER.log(Level.WARNING, e.getMessage());
-		} finally {
-			try {
-				fis.close();
-			}catch (Exception e) {
-				LOGGER.log(Level.WARNING, e.getMessage());
+			List<Object> rowData = new ArrayList<Object>();
+			for(int columnIndex = startColumn; columnIndex<= lastColumn; columnIndex++) {
+				Cell cell = row == null ? null : row.getCell(columnIndex);
+				rowData.add(this.getCellValue(cell));
 			}
-		}		
-		return data;		
+			data.add(rowData);
+		}
+		return data;
+	}
+	
+	private int lastColumn(Row headerRow) {
+		return headerRow == null ? -1 : headerRow.getLastCellNum() - 1;
+	}
+	
+	public Workbook openWorkbook() throws IOException {
+		try (InputStream is = new ClassPathResource(ExcelUtility.WORKBOOK_PATH).getInputStream()) {
+			return WorkbookFactory.create(is);
+		}
 	}
 	
 	private Object getCellValue(Cell cell) {
@@ -1,6 +1,11 @@
 package com.hyderabad.metro.feeder.routes.utils;
 
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -10,18 +15,78 @@ import org.jgrapht.nio.graphml.GraphMLExporter;
 import org.jgrapht.nio.DefaultAttribute;
 import org.jgrapht.nio.Attribute;
 import org.jgrapht.nio.AttributeType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.hyderabad.metro.feeder.routes.beans.Edge;
 import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.Route;
+
+import io.micrometer.core.instrument.Timer;
 
 @Service
 public class GraphExporter {
 	
 	private final static Logger LOGGER = Logger.getLogger(GraphExporter.class.getName());
 	
+	//Routes waiting for the export thread of a concurrent export
+	private final static int EXPORT_QUEUE_CAPACITY = 256;
+	
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
+	
 	public void exportGraph(Graph<Node, Edge> graph, String graphName) {
 		
+		pipelineMetrics.time("export.graphml", () -> this.exportGraph(this.createExporter(), graph, graphName));
+	}
+	
+	private void exportGraph(GraphMLExporter<Node, Edge> exporter, Graph<Node, Edge> graph, String graphName) {
+		
+		try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(graphName + ".graphml"))) {
+			exporter.exportGraph(graph, fos);
+			LOGGER.info("Graph exported!");
+		} catch (Exception e) {
+			// TODO: handle exception
+			LOGGER.warning("Failed to export graph!");
+			LOGGER.warning(e.getMessage());
+		}
+		
+	}
+	
+	public void exportRoutes(Map<Node, Graph<Node, Edge>> routes) {
+		
+		//The exporter holds no per graph state, so one instance serves every route
+		GraphMLExporter<Node, Edge> exporter = this.createExporter();
+		pipelineMetrics.time("export.graphml", () -> routes.keySet().stream()
+		.forEach(node -> {
+			this.exportGraph(exporter, routes.get(node), node.name);
+		}));
+		
+	}
+	
+	//Batch export of every route into one file
+	public void exportRoutes(Map<Node, Route> routes, RouteWriter.Format format, Path file) throws IOException {
+		
+		Timer.Sample sample = pipelineMetrics.startSample();
+		try (RouteWriter writer = RouteWriter.open(format, Files.newOutputStream(file))) {
+			for(Route route: routes.values()) {
+				writer.write(route);
+			}
+		} finally {
+			pipelineMetrics.stopSample(sample, "export." + format.name().toLowerCase());
+		}
+		LOGGER.info(routes.size() + " routes exported to " + file);
+	}
+	
+	//Starts a writer thread for routes passed to the returned queue, e.g. as they are generated.
+	//Closing the queue waits for the export and reports its failure.
+	public RouteExportQueue startExport(RouteWriter.Format format, Path file) throws IOException {
+		
+		return new RouteExportQueue(RouteWriter.open(format, Files.newOutputStream(file)), EXPORT_QUEUE_CAPACITY);
+	}
+	
+	private GraphMLExporter<Node, Edge> createExporter() {
+		
 		GraphMLExporter<Node, Edge> exporter = new GraphMLExporter<>();
 		
 		//Provides Station name + Metro / Bus Stop as ID for each node
@@ -43,27 +108,7 @@ public class GraphExporter {
 		exporter.setExportEdgeWeights(true);
 		exporter.setExportVertexLabels(true);		
 		exporter.setVertexLabelAttributeName("Demand");
-		
-		try {			
-			FileOutputStream fos = new FileOutputStream(graphName + ".graphml");			
-			exporter.exportGraph(graph, fos);
-			fos.close();
-			LOGGER.info("Graph exported!");
-		} catch (Exception e) {
-			// TODO: handle exception
-			LOGGER.warning("Failed to export graph!");
-			LOGGER.warning(e.getMessage());
-		}
-		
-	}
-	
-	public void exportRoutes(Map<Node, Graph<Node, Edge>> routes) {
-		
-		routes.keySet().stream()
-		.forEach(node -> {
-			this.exportGraph(routes.get(node), node.name);
-		});
-		
+		return exporter;
 	}
 
 }
@@ -0,0 +1,416 @@
+package com.hyderabad.metro.feeder.routes.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.util.CellReference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.config.WorkbookLayout;
+import com.hyderabad.metro.feeder.routes.services.DistanceMatrixService;
+import com.hyderabad.metro.feeder.routes.services.PlanningProfileService;
+
+import io.micrometer.core.instrument.Timer;
+
+@Service
+public class NetworkSnapshotLoader {
+
+	@Autowired
+	private BinaryNetworkFile binaryNetworkFile;
+	
+	@Autowired
+	private StreamingNetworkReader streamingNetworkReader;
+	
+	@Autowired
+	private NetworkSources networkSources;
+	
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
+	
+	@Autowired
+	private DistanceMatrixService distanceMatrixService;
+
+	//Binary copy of Matrix.xlsx that is mapped instead of parsing the workbook, empty disables it.
+	//It should live in a directory only this application writes to.
+	@Value("${routes.network.binary-file:}")
+	private String binaryFile = "";
+	
+	//Workbook, CSV directory or zip, or binary file that replaces the bundled Matrix.xlsx, empty keeps it
+	@Value("${routes.network.source:}")
+	private String source = "";
+
+	private final static Logger LOGGER = Logger.getLogger(NetworkSnapshotLoader.class.getName());
+
+	//Sheets and ranges of the workbook come from the planning profile
+	@Autowired
+	private PlanningProfileService planningProfileService;
+
+	//Snapshot of the bundled workbook, the layout and road network it was read with, and the network before its
+	//road distances
+	private volatile NetworkSnapshot snapshot;
+
+	private volatile WorkbookLayout snapshotLayout;
+
+	private String snapshotRoadNetwork;
+
+	private NetworkSnapshot network;
+
+	public NetworkSnapshot getSnapshot() {
+		return this.getSnapshot(planningProfileService.getParameters().workbookLayout);
+	}
+
+	//Parses the workbook on first use only, every service shares the same snapshot until the layout changes. Edits
+	//of the road network only replace the road distances.
+	public NetworkSnapshot getSnapshot(WorkbookLayout layout) {
+		synchronized (this) {
+			String roadNetwork = distanceMatrixService.getRoadNetworkKey();
+			boolean hit = this.snapshot != null && layout.equals(this.snapshotLayout) 
+					&& roadNetwork.equals(this.snapshotRoadNetwork);
+			pipelineMetrics.cacheAccess("snapshot", hit);
+			if(!hit) {
+				if(this.network == null || !layout.equals(this.snapshotLayout)) {
+					this.network = this.loadNetwork(layout);
+				}
+				this.snapshot = distanceMatrixService.withRoadDistances(this.network);
+				this.snapshotLayout = layout;
+				this.snapshotRoadNetwork = roadNetwork;
+			}
+			return this.snapshot;
+		}
+	}
+
+	public NetworkSnapshot loadSnapshot() {
+		return this.loadSnapshot(planningProfileService.getParameters().workbookLayout);
+	}
+
+	//Distances are replaced by road distances when a road network is configured
+	public NetworkSnapshot loadSnapshot(WorkbookLayout layout) {
+		return distanceMatrixService.withRoadDistances(this.loadNetwork(layout));
+	}
+
+	private NetworkSnapshot loadNetwork(WorkbookLayout layout) {
+		if(!this.source.isEmpty()) {
+			Timer.Sample sample = pipelineMetrics.startSample();
+			try {
+				return networkSources.read(Paths.get(this.source), layout);
+			} catch (IOException e) {
+				throw new IllegalStateException("Failed to load network from " + this.source, e);
+			} finally {
+				pipelineMetrics.stopSample(sample, "network.source");
+			}
+		}
+		if(this.binaryFile.isEmpty()) {
+			return this.loadWorkbookSnapshot(layout);
+		}
+		return this.loadBinarySnapshot(Paths.get(this.binaryFile), layout);
+	}
+
+	//The binary file is regenerated whenever its source digest no longer matches the bundled workbook and layout.
+	//The digest is public, so files that other users could have written are never mapped.
+	public NetworkSnapshot loadBinarySnapshot(Path file, WorkbookLayout layout) {
+		Timer.Sample sample = pipelineMetrics.startSample();
+		try {
+			byte[] workbookDigest = this.workbookDigest(layout);
+			if(Files.exists(file) && this.isPrivate(file) 
+					&& Arrays.equals(workbookDigest, binaryNetworkFile.readSourceDigest(file))) {
+				NetworkSnapshot network = binaryNetworkFile.load(file);
+				LOGGER.info("Network snapshot mapped from " + file + " with " + network.size() + " stations");
+				return network;
+			}
+			binaryNetworkFile.write(this.loadWorkbookSnapshot(layout), workbookDigest, file);
+			return binaryNetworkFile.load(file);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Failed to use the binary network file " + file + ", reading the workbook", e);
+			return this.loadWorkbookSnapshot(layout);
+		} finally {
+			pipelineMetrics.stopSample(sample, "network.binary");
+		}
+	}
+
+	public NetworkSnapshot loadWorkbookSnapshot() {
+		return this.loadWorkbookSnapshot(planningProfileService.getParameters().workbookLayout);
+	}
+
+	//Streams the sheets, the workbook is never held in memory as a whole
+	public NetworkSnapshot loadWorkbookSnapshot(WorkbookLayout layout) {
+		Timer.Sample sample = pipelineMetrics.startSample();
+		try (InputStream is = new ClassPathResource(ExcelUtility.WORKBOOK_PATH).getInputStream()) {
+			NetworkSnapshot network = streamingNetworkReader.read(is, layout);
+			LOGGER.info("Network snapshot loaded with " + network.size() + " stations");
+			return network;
+		} catch (Exception e) {
+			throw new IllegalStateException("Failed to load network from " + ExcelUtility.WORKBOOK_PATH, e);
+		} finally {
+			pipelineMetrics.stopSample(sample, "network.workbook");
+		}
+	}
+
+	//Parses an uploaded network in any format of NetworkSources, older .xls workbooks are opened as a whole.
+	//Uploads are read to the end of their sheets, the configured end rows and columns fit the bundled workbook 
+	//only. Malformed values reject the upload. Distances are replaced by road distances like those of the bundled
+	//network.
+	public NetworkSnapshot loadSnapshot(InputStream input, WorkbookLayout layout) {
+		return distanceMatrixService.withRoadDistances(this.readUpload(input, layout));
+	}
+
+	private NetworkSnapshot readUpload(InputStream input, WorkbookLayout layout) {
+		InputStream stream = FileMagic.prepareToCheckMagic(input);
+		WorkbookLayout detected = layout.withDetectedEnds();
+		try {
+			if(FileMagic.valueOf(stream) == FileMagic.OLE2) {
+				try (Workbook workbook = WorkbookFactory.create(stream)) {
+					List<String> malformedCells = new ArrayList<>();
+					NetworkSnapshot network = this.readSnapshot(workbook, detected, malformedCells);
+					NetworkSources.reject(malformedCells);
+					return network;
+				}
+			}
+			return networkSources.read(stream, detected);
+		} catch (Exception e) {
+			throw new IllegalArgumentException("Failed to read the network workbook: " + e.getMessage(), e);
+		}
+	}
+
+	public NetworkSnapshot readSnapshot(Workbook workbook, WorkbookLayout layout) {
+		List<String> malformedCells = new ArrayList<>();
+		NetworkSnapshot network = this.readSnapshot(workbook, layout, malformedCells);
+		NetworkSources.report(malformedCells);
+		return network;
+	}
+
+	//malformedCells receives "<sheet>!<cell>: <problem>" for every cell that could not be read, like the streamed
+	//workbooks
+	public NetworkSnapshot readSnapshot(Workbook workbook, WorkbookLayout layout, List<String> malformedCells) {
+
+		//OD Matrix, column headers define the station IDs
+		Sheet matrix = this.getSheet(workbook, layout.odSheetName);
+		Row headerRow = matrix.getRow(layout.startRow);
+		if(headerRow == null) {
+			throw new IllegalArgumentException(layout.odSheetName + " has no header row " + (layout.startRow + 1));
+		}
+		int size = layout.endColumn == WorkbookLayout.DETECT ? this.headerSize(headerRow, layout.startColumn) 
+				: layout.endColumn - layout.startColumn;
+		int endRow = layout.endRow == WorkbookLayout.DETECT ? matrix.getLastRowNum() : layout.endRow;
+		String[] stations = new String[size];
+		Map<String, Integer> stationIndex = new HashMap<>();
+		for(int id = 0; id < size; id++) {
+			stations[id] = this.getString(headerRow.getCell(layout.startColumn + 1 + id)).intern();
+			stationIndex.putIfAbsent(stations[id], id);
+		}
+
+		//Rows are targets and columns are sources of the edges, the first row of a station counts
+		double[] distances = new double[size * size];
+		BitSet targets = new BitSet(size);
+		for(int rowIndex = layout.startRow + 1; rowIndex <= endRow; rowIndex++) {
+			Row row = matrix.getRow(rowIndex);
+			if(row == null) {
+				continue;
+			}
+			Integer target = stationIndex.get(this.getString(row.getCell(layout.startColumn)));
+			if(target == null) {
+				LOGGER.warning("Skipping OD Matrix row " + rowIndex + " with an unknown station");
+				continue;
+			}
+			if(targets.get(target)) {
+				this.malformed(row.getCell(layout.startColumn), "second row of station '" + stations[target] + "'", 
+						malformedCells);
+				continue;
+			}
+			targets.set(target);
+			for(int source = 0; source < size; source++) {
+				distances[source * size + target] = this.getNumber(row.getCell(layout.startColumn + 1 + source), 
+						malformedCells);
+			}
+		}
+		for(int id = targets.nextClearBit(0); id < size; id = targets.nextClearBit(id + 1)) {
+			malformedCells.add(layout.odSheetName + ": no row for station '" + stations[id] + "'");
+		}
+
+		//Demand at each node, stations missing from the sheet have 0 demand
+		Sheet demandSheet = this.getSheet(workbook, layout.demandSheetName);
+		int[] demands = new int[size];
+		boolean[] demandFound = new boolean[size];
+		int demandEndRow = layout.demandEndRow == WorkbookLayout.DETECT ? demandSheet.getLastRowNum() : layout.demandEndRow;
+		for(int rowIndex = layout.demandStartRow; rowIndex <= demandEndRow; rowIndex++) {
+			Row row = demandSheet.getRow(rowIndex);
+			if(row == null) {
+				continue;
+			}
+			Integer id = stationIndex.get(this.getString(row.getCell(0)));
+			if(id != null && !demandFound[id]) {
+				demands[id] = (int) this.getNumber(row.getCell(1), malformedCells);
+				demandFound[id] = true;
+			}
+		}
+
+		//Travel Demand Matrix, headers are matched to stations by name without the " m" / " b" suffix
+		Map<String, Integer> stationByName = new HashMap<>();
+		for(int id = size - 1; id >= 0; id--) {
+			stationByName.put(this.stripSuffix(stations[id]), id);
+		}
+		Sheet travelDemandSheet = this.getSheet(workbook, layout.travelDemandSheetName);
+		Row destinationRow = travelDemandSheet.getRow(layout.travelDemandStartRow);
+		if(destinationRow == null) {
+			throw new IllegalArgumentException(layout.travelDemandSheetName + " has no header row " 
+					+ (layout.travelDemandStartRow + 1));
+		}
+		int destinationCount = layout.travelDemandEndColumn == WorkbookLayout.DETECT 
+				? this.headerSize(destinationRow, layout.travelDemandStartColumn) 
+				: layout.travelDemandEndColumn - layout.travelDemandStartColumn;
+		int travelDemandEndRow = layout.travelDemandEndRow == WorkbookLayout.DETECT 
+				? travelDemandSheet.getLastRowNum() : layout.travelDemandEndRow;
+		int[] destinations = new int[destinationCount];
+		for(int index = 0; index < destinationCount; index++) {
+			Integer id = stationByName.get(this.stripSuffix(this.getString(
+					destinationRow.getCell(layout.travelDemandStartColumn + 1 + index))));
+			destinations[index] = id == null ? -1 : id;
+		}
+		int[] travelDemands = new int[size * size];
+		Arrays.fill(travelDemands, NetworkSnapshot.NO_DEMAND);
+		for(int rowIndex = layout.travelDemandStartRow + 1; rowIndex <= travelDemandEndRow; rowIndex++) {
+			Row row = travelDemandSheet.getRow(rowIndex);
+			if(row == null) {
+				continue;
+			}
+			Integer source = stationByName.get(this.stripSuffix(this.getString(row.getCell(layout.travelDemandStartColumn))));
+			if(source == null) {
+				continue;
+			}
+			for(int index = 0; index < destinationCount; index++) {
+				if(destinations[index] < 0) {
+					continue;
+				}
+				Cell cell = row.getCell(layout.travelDemandStartColumn + 1 + index);
+				if(this.isBlank(cell)) {
+					continue;
+				}
+				double value = this.getNumber(cell, malformedCells);
+				//Only whole numbers are treated as travel demand
+				if(this.isNumeric(cell) && Math.floor(value) == value) {
+					travelDemands[source * size + destinations[index]] = (int) value;
+				} else if(this.isNumeric(cell)) {
+					this.malformed(cell, value + " is not a whole number of trips", malformedCells);
+				}
+			}
+		}
+
+		return new NetworkSnapshot(stations, distances, demands, travelDemands);
+	}
+
+	private Sheet getSheet(Workbook workbook, String sheetName) {
+		Sheet sheet = workbook.getSheet(sheetName);
+		if(sheet == null) {
+			throw new IllegalArgumentException("The workbook has no sheet " + sheetName);
+		}
+		return sheet;
+	}
+	
+	//Header cells after the first column, up to the first empty one
+	private int headerSize(Row headerRow, int startColumn) {
+		int size = 0;
+		while(!this.getString(headerRow.getCell(startColumn + 1 + size)).trim().isEmpty()) {
+			size++;
+		}
+		return size;
+	}
+	
+	//Owned by this user and writable by no one else, always true where POSIX permissions are not supported
+	private boolean isPrivate(Path file) throws IOException {
+		PosixFileAttributeView view = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+		if(view == null) {
+			return true;
+		}
+		Set<PosixFilePermission> permissions = view.readAttributes().permissions();
+		boolean owned = view.getOwner().getName().equals(System.getProperty("user.name"));
+		if(!owned || permissions.contains(PosixFilePermission.GROUP_WRITE) 
+				|| permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+			LOGGER.warning("The binary network file " + file + " is not private to this user, it is not mapped");
+			return false;
+		}
+		return true;
+	}
+	
+	private byte[] workbookDigest(WorkbookLayout layout) throws IOException {
+		try (InputStream is = new ClassPathResource(ExcelUtility.WORKBOOK_PATH).getInputStream()) {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(layout.toString().getBytes(StandardCharsets.UTF_8));
+			byte[] buffer = new byte[64 * 1024];
+			for(int read = is.read(buffer); read >= 0; read = is.read(buffer)) {
+				digest.update(buffer, 0, read);
+			}
+			return digest.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	private String stripSuffix(String name) {
+		return name.length() < 2 ? name : name.substring(0, name.length() - 2);
+	}
+
+	private String getString(Cell cell) {
+		if(cell == null) {
+			return "";
+		}
+		if(cell.getCellType() == CellType.STRING) {
+			return cell.getRichStringCellValue().getString();
+		}
+		return cell.toString();
+	}
+
+	//0 for blank and malformed cells, malformed ones are reported
+	private double getNumber(Cell cell, List<String> malformedCells) {
+		if(this.isNumeric(cell)) {
+			return cell.getNumericCellValue();
+		}
+		if(!this.isBlank(cell)) {
+			this.malformed(cell, "'" + this.getString(cell) + "' is not a number", malformedCells);
+		}
+		return 0.0;
+	}
+
+	//Formulas count with their cached result, as in streamed workbooks
+	private boolean isNumeric(Cell cell) {
+		return cell != null && (cell.getCellType() == CellType.NUMERIC || (cell.getCellType() == CellType.FORMULA 
+				&& cell.getCachedFormulaResultType() == CellType.NUMERIC));
+	}
+
+	private boolean isBlank(Cell cell) {
+		return cell == null || cell.getCellType() == CellType.BLANK 
+				|| (cell.getCellType() == CellType.STRING && this.getString(cell).trim().isEmpty());
+	}
+
+	private void malformed(Cell cell, String problem, List<String> malformedCells) {
+		malformedCells.add(cell.getSheet().getSheetName() + "!" 
+				+ new CellReference(cell.getRowIndex(), cell.getColumnIndex()).formatAsString() + ": " + problem);
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.hyderabad.metro.feeder.routes.utils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.config.WorkbookLayout;
+
+//One input format of networks. Sources are Spring beans, NetworkSources reads a path with the source that supports it.
+public interface NetworkSource {
+
+	String getFormat();
+
+	//Checks the content of path, not only its name
+	boolean supports(Path path) throws IOException;
+
+	//layout is only used by formats with sheets. malformedCells receives the location and the problem of every
+	//value that could not be read.
+	NetworkSnapshot read(Path path, WorkbookLayout layout, List<String> malformedCells) throws IOException;
+
+}
@@ -0,0 +1,101 @@
+package com.hyderabad.metro.feeder.routes.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.config.WorkbookLayout;
+
+//Picks the NetworkSource of a file or directory, .xlsx workbooks, CSV exports and binary network files
+@Service
+public class NetworkSources {
+
+	//Malformed values logged or rejected per network, the rest are only counted
+	private final static int LOGGED_CELLS = 20;
+
+	private final static Logger LOGGER = Logger.getLogger(NetworkSources.class.getName());
+
+	@Autowired
+	private List<NetworkSource> sources;
+
+	//null when no source reads path
+	public NetworkSource find(Path path) throws IOException {
+		for(NetworkSource source: this.sources) {
+			if(source.supports(path)) {
+				return source;
+			}
+		}
+		return null;
+	}
+
+	//Configured networks are read with their malformed values logged and left at 0
+	public NetworkSnapshot read(Path path, WorkbookLayout layout) throws IOException {
+		return this.read(path, layout, false);
+	}
+
+	private NetworkSnapshot read(Path path, WorkbookLayout layout, boolean upload) throws IOException {
+		NetworkSource source = this.find(path);
+		if(source == null) {
+			throw new IllegalArgumentException("No network source reads " + path);
+		}
+		List<String> malformedCells = new ArrayList<>();
+		NetworkSnapshot network = source.read(path, layout, malformedCells);
+		if(upload) {
+			reject(malformedCells);
+		} else {
+			report(malformedCells);
+		}
+		LOGGER.info("Network with " + network.size() + " stations read from " + source.getFormat() + " " + path);
+		return network;
+	}
+
+	//Uploads are copied to a temporary file, sources map or open files rather than streams. Uploads with
+	//malformed values are rejected, as nobody reads the log of the server that planned them.
+	public NetworkSnapshot read(InputStream input, WorkbookLayout layout) throws IOException {
+		Path file = Files.createTempFile("metro-feeder-network", ".upload");
+		try {
+			Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+			return this.read(file, layout, true);
+		} finally {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				//A mapped binary network keeps the file open on some platforms
+				file.toFile().deleteOnExit();
+			}
+		}
+	}
+
+	static void reject(List<String> malformedCells) {
+		if(malformedCells.isEmpty()) {
+			return;
+		}
+		StringBuilder message = new StringBuilder(malformedCells.size() + " malformed cells: ");
+		for(int index = 0; index < Math.min(LOGGED_CELLS, malformedCells.size()); index++) {
+			message.append(index == 0 ? "" : "; ").append(malformedCells.get(index));
+		}
+		if(malformedCells.size() > LOGGED_CELLS) {
+			message.append("; ").append(malformedCells.size() - LOGGED_CELLS).append(" more");
+		}
+		throw new IllegalArgumentException(message.toString());
+	}
+
+	static void report(List<String> malformedCells) {
+		for(int index = 0; index < Math.min(LOGGED_CELLS, malformedCells.size()); index++) {
+			LOGGER.warning("Malformed cell " + malformedCells.get(index));
+		}
+		if(malformedCells.size() > LOGGED_CELLS) {
+			LOGGER.warning((malformedCells.size() - LOGGED_CELLS) + " more malformed cells");
+		}
+	}
+
+}
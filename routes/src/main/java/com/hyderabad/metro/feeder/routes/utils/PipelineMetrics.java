@@ -0,0 +1,131 @@
+package com.hyderabad.metro.feeder.routes.utils;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.hyderabad.metro.feeder.routes.beans.Route;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+//Timers of every pipeline stage and gauges of the last graph, route set and cache use, see /actuator/prometheus
+@Service
+public class PipelineMetrics {
+
+	public final static String STAGE_TIMER = "routes.pipeline.stage";
+
+	//The Spring Boot registry, the global registry when the services run without Spring Boot
+	@Autowired(required = false)
+	private MeterRegistry meterRegistry;
+
+	private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+	private final Map<String, CacheStatistics> caches = new ConcurrentHashMap<>();
+
+	private Counter generatedRoutes;
+
+	//Sizes of the last graph and route set
+	private volatile long graphNodes;
+
+	private volatile long graphEdges;
+
+	private volatile long routeCount;
+
+	private volatile double averageHops;
+
+	@PostConstruct
+	public void start() {
+		if(this.meterRegistry == null) {
+			this.meterRegistry = Metrics.globalRegistry;
+		}
+		this.generatedRoutes = Counter.builder("routes.generated").description("Routes generated by all runs")
+				.register(this.meterRegistry);
+		this.meterRegistry.gauge("routes.graph.nodes", this, metrics -> metrics.graphNodes);
+		this.meterRegistry.gauge("routes.graph.edges", this, metrics -> metrics.graphEdges);
+		this.meterRegistry.gauge("routes.generated.last", this, metrics -> metrics.routeCount);
+		this.meterRegistry.gauge("routes.route.hops.average", this, metrics -> metrics.averageHops);
+	}
+
+	public <T> T time(String stage, Supplier<T> task) {
+		return this.timer(stage).record(task);
+	}
+
+	public void time(String stage, Runnable task) {
+		this.timer(stage).record(task);
+	}
+
+	//For stages with checked exceptions, stop the sample in a finally block
+	public Timer.Sample startSample() {
+		return Timer.start(this.meterRegistry);
+	}
+
+	public void stopSample(Timer.Sample sample, String stage) {
+		sample.stop(this.timer(stage));
+	}
+
+	public void graphCreated(long nodes, long edges) {
+		this.graphNodes = nodes;
+		this.graphEdges = edges;
+	}
+
+	public void routesGenerated(Collection<Route> routes) {
+		long hops = 0;
+		for(Route route: routes) {
+			hops += route.getStopCount() - 1;
+		}
+		this.generatedRoutes.increment(routes.size());
+		this.routeCount = routes.size();
+		this.averageHops = routes.isEmpty() ? 0.0 : (double) hops / routes.size();
+	}
+
+	public void cacheAccess(String cache, boolean hit) {
+		this.caches.computeIfAbsent(cache, CacheStatistics::new).access(hit);
+	}
+
+	private Timer timer(String stage) {
+		return this.timers.computeIfAbsent(stage, key -> Timer.builder(STAGE_TIMER).tag("stage", key)
+				.description("Duration of one pipeline stage").publishPercentileHistogram()
+				.register(this.meterRegistry));
+	}
+
+	private class CacheStatistics {
+
+		private final Counter hits;
+
+		private final Counter misses;
+
+		private final AtomicLong hitCount = new AtomicLong();
+
+		private final AtomicLong requestCount = new AtomicLong();
+
+		CacheStatistics(String cache) {
+			MeterRegistry registry = PipelineMetrics.this.meterRegistry;
+			this.hits = registry.counter("routes.cache.requests", "cache", cache, "result", "hit");
+			this.misses = registry.counter("routes.cache.requests", "cache", cache, "result", "miss");
+			registry.gauge("routes.cache.hit.ratio", Tags.of("cache", cache), this,
+					statistics -> statistics.requestCount.get() == 0 ? 0.0
+							: (double) statistics.hitCount.get() / statistics.requestCount.get());
+		}
+
+		void access(boolean hit) {
+			(hit ? this.hits : this.misses).increment();
+			if(hit) {
+				this.hitCount.incrementAndGet();
+			}
+			this.requestCount.incrementAndGet();
+		}
+
+	}
+
+}
@@ -0,0 +1,164 @@
+package com.hyderabad.metro.feeder.routes.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultDirectedWeightedGraph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.springframework.stereotype.Service;
+
+import com.hyderabad.metro.feeder.routes.beans.RoadNetwork;
+
+//Reads road networks from edge lists with one "from,to,length[,oneway]" line per road segment, lengths in KMs.
+//Segments are two way unless oneway is true, yes or 1. OSM extracts are converted to this form with their way
+//node IDs. Stops are mapped to road nodes by a "station,node" file.
+@Service
+public class RoadNetworkReader {
+
+	private final static Logger LOGGER = Logger.getLogger(RoadNetworkReader.class.getName());
+
+	public RoadNetwork read(Path edges) throws IOException {
+		List<String> malformedCells = new ArrayList<>();
+		EdgeLines lines = new EdgeLines(edges.getFileName().toString(), malformedCells);
+		CsvNetworkSource.parse(edges, lines);
+		NetworkSources.report(malformedCells);
+		RoadNetwork road = new RoadNetwork(lines.graph, this.digest(edges));
+		LOGGER.info("Road network with " + road.nodeCount() + " nodes and " + road.edgeCount() + " edges read from "
+				+ edges);
+		return road;
+	}
+
+	//Road node of every station, by the station names of the network
+	public Map<String, Long> readStops(Path stops) throws IOException {
+		List<String> malformedCells = new ArrayList<>();
+		StopLines lines = new StopLines(stops.getFileName().toString(), malformedCells);
+		CsvNetworkSource.parse(stops, lines);
+		NetworkSources.report(malformedCells);
+		return lines.stops;
+	}
+
+	private String digest(Path file) throws IOException {
+		try (InputStream is = Files.newInputStream(file)) {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while((read = is.read(buffer)) > 0) {
+				digest.update(buffer, 0, read);
+			}
+			StringBuilder hash = new StringBuilder();
+			for(byte value: digest.digest()) {
+				hash.append(String.format("%02x", value));
+			}
+			return hash.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	//NaN when the field is not a whole number
+	private static double node(CsvNetworkSource.Fields fields, int field) {
+		double node = fields.number(field);
+		return node == Math.rint(node) ? node : Double.NaN;
+	}
+
+	private static class EdgeLines extends CsvNetworkSource.Lines {
+
+		private final Graph<Long, DefaultWeightedEdge> graph =
+				new DefaultDirectedWeightedGraph<Long, DefaultWeightedEdge>(DefaultWeightedEdge.class);
+
+		EdgeLines(String fileName, List<String> malformedCells) {
+			super(fileName, malformedCells);
+		}
+
+		@Override
+		void line(CsvNetworkSource.Fields fields) {
+			if(fields.count() == 0) {
+				return;
+			}
+			double from = RoadNetworkReader.node(fields, 0);
+			//A first row without a node ID is the header
+			if(Double.isNaN(from) && fields.line() == 1) {
+				return;
+			}
+			if(fields.count() < 3) {
+				this.malformed(fields, 0, "expected from,to,length");
+				return;
+			}
+			double to = RoadNetworkReader.node(fields, 1);
+			if(Double.isNaN(from) || Double.isNaN(to)) {
+				this.malformed(fields, Double.isNaN(from) ? 0 : 1, "'" + fields.string(Double.isNaN(from) ? 0 : 1)
+						+ "' is not a node ID");
+				return;
+			}
+			double length = this.number(fields, 2);
+			if(Double.isNaN(length)) {
+				return;
+			}
+			if(length < 0) {
+				this.malformed(fields, 2, length + " is a negative length");
+				return;
+			}
+			String oneway = fields.count() > 3 ? fields.string(3) : "";
+			this.addEdge((long) from, (long) to, length);
+			if(!("true".equalsIgnoreCase(oneway) || "yes".equalsIgnoreCase(oneway) || "1".equals(oneway))) {
+				this.addEdge((long) to, (long) from, length);
+			}
+		}
+
+		//Parallel segments keep the shortest one
+		private void addEdge(long from, long to, double length) {
+			if(from == to) {
+				return;
+			}
+			this.graph.addVertex(from);
+			this.graph.addVertex(to);
+			DefaultWeightedEdge edge = this.graph.getEdge(from, to);
+			if(edge == null) {
+				this.graph.setEdgeWeight(this.graph.addEdge(from, to), length);
+			} else if(length < this.graph.getEdgeWeight(edge)) {
+				this.graph.setEdgeWeight(edge, length);
+			}
+		}
+
+	}
+
+	private static class StopLines extends CsvNetworkSource.Lines {
+
+		private final Map<String, Long> stops = new HashMap<>();
+
+		StopLines(String fileName, List<String> malformedCells) {
+			super(fileName, malformedCells);
+		}
+
+		@Override
+		void line(CsvNetworkSource.Fields fields) {
+			if(fields.count() == 0) {
+				return;
+			}
+			double node = fields.count() < 2 ? Double.NaN : RoadNetworkReader.node(fields, 1);
+			if(Double.isNaN(node)) {
+				//A first row without a node ID is the header
+				if(fields.line() > 1) {
+					this.malformed(fields, Math.min(fields.count() - 1, 1), "expected station,node");
+				}
+				return;
+			}
+			String station = fields.string(0);
+			if(this.stops.put(station, (long) node) != null) {
+				this.malformed(fields, 0, "station '" + station + "' is mapped twice");
+			}
+		}
+
+	}
+
+}
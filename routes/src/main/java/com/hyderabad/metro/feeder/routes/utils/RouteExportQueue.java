@@ -0,0 +1,105 @@
+package com.hyderabad.metro.feeder.routes.utils;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.Route;
+
+//Hands routes to a writer thread through a bounded queue, so export overlaps with route generation.
+//A full queue blocks the producers, which keeps the memory of pending routes bounded.
+public class RouteExportQueue implements Consumer<Route>, AutoCloseable {
+	
+	private final static Logger LOGGER = Logger.getLogger(RouteExportQueue.class.getName());
+	
+	//Marks the end of the routes for the writer thread
+	private final static Route END = new Route(new Node[] {new Node("", false, 0)}, new double[0]);
+	
+	private final BlockingQueue<Route> queue;
+	
+	private final RouteWriter writer;
+	
+	private final Thread exporter;
+	
+	private volatile Exception failure;
+	
+	private int exportedRoutes;
+	
+	public RouteExportQueue(RouteWriter writer, int capacity) {
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.writer = writer;
+		this.exporter = new Thread(this::drain, "route-export");
+		this.exporter.setDaemon(true);
+		this.exporter.start();
+	}
+	
+	//Safe to call from several route generation threads
+	@Override
+	public void accept(Route route) {
+		if(this.failure != null) {
+			throw new IllegalStateException("Route export failed", this.failure);
+		}
+		try {
+			this.queue.put(route);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while queueing a route for export", e);
+		}
+	}
+	
+	//Waits until every queued route is written and closes the writer
+	@Override
+	public void close() throws IOException {
+		try {
+			this.queue.put(END);
+			this.exporter.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while finishing the route export", e);
+		}
+		if(this.failure != null) {
+			throw new IOException("Route export failed", this.failure);
+		}
+		LOGGER.info(this.exportedRoutes + " routes exported");
+	}
+	
+	//Keeps taking routes after a failure, so that producers never block on a queue nobody empties
+	private void drain() {
+		try {
+			for(Route route = this.queue.take(); route != END; route = this.queue.take()) {
+				if(this.failure == null) {
+					this.write(route);
+				}
+			}
+		} catch (InterruptedException e) {
+			this.fail(e);
+		} finally {
+			try {
+				this.writer.close();
+			} catch (IOException e) {
+				this.fail(e);
+			}
+		}
+	}
+	
+	private void write(Route route) {
+		try {
+			this.writer.write(route);
+			this.exportedRoutes++;
+		} catch (IOException | RuntimeException e) {
+			this.fail(e);
+		}
+	}
+	
+	private void fail(Exception e) {
+		LOGGER.log(Level.WARNING, "Route export failed", e);
+		if(this.failure == null) {
+			this.failure = e;
+		}
+	}
+
+}
@@ -0,0 +1,222 @@
+package com.hyderabad.metro.feeder.routes.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.Route;
+
+//Streams any number of routes into one buffered output, closing the writer closes the output
+public abstract class RouteWriter implements Closeable {
+	
+	public enum Format {
+		GRAPHML(".graphml"), GEOJSON(".geojson"), NDJSON_GZIP(".ndjson.gz");
+		
+		public final String extension;
+		
+		Format(String extension) {
+			this.extension = extension;
+		}
+	}
+	
+	private final static int BUFFER_SIZE = 64 * 1024;
+	
+	private final static JsonFactory JSON_FACTORY = new JsonFactory();
+	
+	public static RouteWriter open(Format format, OutputStream output) throws IOException {
+		OutputStream buffered = new BufferedOutputStream(output, BUFFER_SIZE);
+		switch (format) {
+		case GRAPHML:
+			return new GraphMLWriter(buffered);
+		case GEOJSON:
+			return new GeoJsonWriter(buffered);
+		case NDJSON_GZIP:
+			return new NdjsonWriter(new GZIPOutputStream(buffered, BUFFER_SIZE));
+		default:
+			throw new IllegalArgumentException("Unsupported format " + format);
+		}
+	}
+	
+	public abstract void write(Route route) throws IOException;
+	
+	//Same vertex IDs as the per route GraphML files of GraphExporter
+	static String vertexId(Node node) {
+		return node.isMetro ? node.name + " Metro" : node.name + " Bus Stop";
+	}
+	
+	static void writeRouteFields(JsonGenerator generator, Route route) throws IOException {
+		generator.writeStringField("origin", route.getOrigin().name);
+		generator.writeNumberField("length", route.getLength());
+		generator.writeArrayFieldStart("stops");
+		for(int index = 0; index < route.getStopCount(); index++) {
+			Node stop = route.getStop(index);
+			generator.writeStartObject();
+			generator.writeNumberField("id", stop.id);
+			generator.writeStringField("name", stop.name);
+			generator.writeBooleanField("metro", stop.isMetro);
+			generator.writeNumberField("demand", stop.demand);
+			generator.writeEndObject();
+		}
+		generator.writeEndArray();
+		generator.writeArrayFieldStart("legDistances");
+		for(int index = 0; index < route.getStopCount() - 1; index++) {
+			generator.writeNumber(route.getLegDistance(index));
+		}
+		generator.writeEndArray();
+	}
+	
+	//One <graph> element per route in a single GraphML document
+	private static class GraphMLWriter extends RouteWriter {
+		
+		private final OutputStream output;
+		
+		private final XMLStreamWriter writer;
+		
+		private int graphCount;
+		
+		GraphMLWriter(OutputStream output) throws IOException {
+			this.output = output;
+			try {
+				this.writer = XMLOutputFactory.newInstance().createXMLStreamWriter(output, "UTF-8");
+				this.writer.writeStartDocument("UTF-8", "1.0");
+				this.writer.writeStartElement("graphml");
+				this.writer.writeDefaultNamespace("http://graphml.graphdrawing.org/xmlns");
+				this.writeKey("Demand", "node", "Demand", "int");
+				this.writeKey("Metro", "node", "Metro", "boolean");
+				this.writeKey("weight", "edge", "weight", "double");
+			} catch (XMLStreamException e) {
+				throw new IOException("Failed to start the GraphML document", e);
+			}
+		}
+		
+		private void writeKey(String id, String domain, String name, String type) throws XMLStreamException {
+			this.writer.writeEmptyElement("key");
+			this.writer.writeAttribute("id", id);
+			this.writer.writeAttribute("for", domain);
+			this.writer.writeAttribute("attr.name", name);
+			this.writer.writeAttribute("attr.type", type);
+		}
+		
+		private void writeData(String key, String value) throws XMLStreamException {
+			this.writer.writeStartElement("data");
+			this.writer.writeAttribute("key", key);
+			this.writer.writeCharacters(value);
+			this.writer.writeEndElement();
+		}
+		
+		@Override
+		public void write(Route route) throws IOException {
+			//Node IDs are unique per document, so they are prefixed with the graph number
+			String prefix = "g" + (this.graphCount++) + ":";
+			try {
+				this.writer.writeStartElement("graph");
+				this.writer.writeAttribute("id", RouteWriter.vertexId(route.getOrigin()));
+				this.writer.writeAttribute("edgedefault", "directed");
+				for(int index = 0; index < route.getStopCount(); index++) {
+					Node stop = route.getStop(index);
+					this.writer.writeStartElement("node");
+					this.writer.writeAttribute("id", prefix + RouteWriter.vertexId(stop));
+					this.writeData("Demand", stop.demand.toString());
+					this.writeData("Metro", stop.isMetro.toString());
+					this.writer.writeEndElement();
+				}
+				for(int index = 1; index < route.getStopCount(); index++) {
+					this.writer.writeStartElement("edge");
+					this.writer.writeAttribute("source", prefix + RouteWriter.vertexId(route.getStop(index - 1)));
+					this.writer.writeAttribute("target", prefix + RouteWriter.vertexId(route.getStop(index)));
+					this.writeData("weight", Double.toString(route.getLegDistance(index - 1)));
+					this.writer.writeEndElement();
+				}
+				this.writer.writeEndElement();
+			} catch (XMLStreamException e) {
+				throw new IOException("Failed to write the route of " + route.getOrigin().name, e);
+			}
+		}
+		
+		@Override
+		public void close() throws IOException {
+			try {
+				this.writer.writeEndElement();
+				this.writer.writeEndDocument();
+				this.writer.close();
+			} catch (XMLStreamException e) {
+				throw new IOException("Failed to finish the GraphML document", e);
+			} finally {
+				this.output.close();
+			}
+		}
+		
+	}
+	
+	//FeatureCollection with one Feature per route. The network has no coordinates, so geometries are null.
+	private static class GeoJsonWriter extends RouteWriter {
+		
+		private final JsonGenerator generator;
+		
+		GeoJsonWriter(OutputStream output) throws IOException {
+			this.generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8);
+			this.generator.writeStartObject();
+			this.generator.writeStringField("type", "FeatureCollection");
+			this.generator.writeArrayFieldStart("features");
+		}
+		
+		@Override
+		public void write(Route route) throws IOException {
+			this.generator.writeStartObject();
+			this.generator.writeStringField("type", "Feature");
+			this.generator.writeStringField("id", RouteWriter.vertexId(route.getOrigin()));
+			this.generator.writeNullField("geometry");
+			this.generator.writeObjectFieldStart("properties");
+			RouteWriter.writeRouteFields(this.generator, route);
+			this.generator.writeEndObject();
+			this.generator.writeEndObject();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			try {
+				this.generator.writeEndArray();
+				this.generator.writeEndObject();
+			} finally {
+				this.generator.close();
+			}
+		}
+		
+	}
+	
+	//One JSON object per line
+	private static class NdjsonWriter extends RouteWriter {
+		
+		private final JsonGenerator generator;
+		
+		NdjsonWriter(OutputStream output) throws IOException {
+			this.generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8);
+			this.generator.setRootValueSeparator(null);
+		}
+		
+		@Override
+		public void write(Route route) throws IOException {
+			this.generator.writeStartObject();
+			RouteWriter.writeRouteFields(this.generator, route);
+			this.generator.writeEndObject();
+			this.generator.writeRaw('\n');
+		}
+		
+		@Override
+		public void close() throws IOException {
+			this.generator.close();
+		}
+		
+	}
+
+}
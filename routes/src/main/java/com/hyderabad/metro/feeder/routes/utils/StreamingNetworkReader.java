@@ -0,0 +1,473 @@
+package com.hyderabad.metro.feeder.routes.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.ZipFile;
+
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.stereotype.Service;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.config.WorkbookLayout;
+
+//Reads .xlsx networks row by row with the POI event model, so only the snapshot arrays grow with the network.
+//End bounds of WorkbookLayout.DETECT are taken from the header rows and the last rows of the sheets.
+@Service
+public class StreamingNetworkReader implements NetworkSource {
+
+	private final static Logger LOGGER = Logger.getLogger(StreamingNetworkReader.class.getName());
+
+	@Override
+	public String getFormat() {
+		return "xlsx";
+	}
+
+	//Zip files with the content types part of an Office document, older .xls workbooks are not streamed
+	@Override
+	public boolean supports(Path path) throws IOException {
+		if(!Files.isRegularFile(path)) {
+			return false;
+		}
+		try (InputStream is = FileMagic.prepareToCheckMagic(Files.newInputStream(path))) {
+			if(FileMagic.valueOf(is) != FileMagic.OOXML) {
+				return false;
+			}
+		}
+		try (ZipFile zip = new ZipFile(path.toFile())) {
+			return zip.getEntry("[Content_Types].xml") != null;
+		}
+	}
+
+	public NetworkSnapshot read(InputStream input, WorkbookLayout layout) throws IOException {
+		List<String> malformedCells = new ArrayList<>();
+		NetworkSnapshot network = this.read(input, layout, malformedCells);
+		NetworkSources.report(malformedCells);
+		return network;
+	}
+
+	//The zip is copied to a temporary file, as OPCPackage buffers every part of a stream in memory
+	public NetworkSnapshot read(InputStream input, WorkbookLayout layout, List<String> malformedCells)
+			throws IOException {
+		Path file = Files.createTempFile("metro-feeder-network", ".xlsx");
+		try {
+			Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+			return this.read(file, layout, malformedCells);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	//malformedCells receives "<sheet>!<cell>: <problem>" for every cell that could not be read
+	@Override
+	public NetworkSnapshot read(Path file, WorkbookLayout layout, List<String> malformedCells) throws IOException {
+		try (OPCPackage workbook = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+			XSSFReader reader = new XSSFReader(workbook);
+			ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(workbook);
+
+			MatrixHandler matrix = new MatrixHandler(layout, malformedCells);
+			this.parse(reader, strings, layout.odSheetName, matrix);
+			if(matrix.stations == null) {
+				throw new IllegalArgumentException(layout.odSheetName + " has no header row " + (layout.startRow + 1));
+			}
+			matrix.missingRows();
+
+			DemandHandler demand = new DemandHandler(layout, matrix.stations, matrix.stationIndex, malformedCells);
+			this.parse(reader, strings, layout.demandSheetName, demand);
+
+			TravelDemandHandler travelDemand = new TravelDemandHandler(layout, matrix.stations, malformedCells);
+			this.parse(reader, strings, layout.travelDemandSheetName, travelDemand);
+
+			return new NetworkSnapshot(matrix.stations, matrix.distances, demand.demands, travelDemand.travelDemands);
+		} catch (IOException | IllegalArgumentException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException("Failed to stream the network workbook " + file, e);
+		}
+	}
+
+	private void parse(XSSFReader reader, ReadOnlySharedStringsTable strings, String sheetName, RowHandler handler)
+			throws Exception {
+		XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+		while(sheets.hasNext()) {
+			try (InputStream sheet = sheets.next()) {
+				if(sheets.getSheetName().equals(sheetName)) {
+					XMLReader parser = XMLHelper.newXMLReader();
+					parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), strings, handler,
+							new RawValues(), false));
+					parser.parse(new InputSource(sheet));
+					return;
+				}
+			}
+		}
+		throw new IllegalArgumentException("The workbook has no sheet " + sheetName);
+	}
+
+	private static String stripSuffix(String name) {
+		return name.length() < 2 ? name : name.substring(0, name.length() - 2);
+	}
+
+	//Numbers are passed unformatted, so that number formats of the sheet never round distances
+	private static class RawValues extends DataFormatter {
+
+		@Override
+		public String formatRawCellContents(double value, int formatIndex, String formatString) {
+			return Double.toString(value);
+		}
+
+		@Override
+		public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+			return Double.toString(value);
+		}
+
+	}
+
+	//Cells of one sheet with their 0 based coordinates, blank cells are never passed
+	private abstract static class RowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+		private final String sheetName;
+
+		private final List<String> malformedCells;
+
+		private int row;
+
+		private int column;
+
+		RowHandler(String sheetName, List<String> malformedCells) {
+			this.sheetName = sheetName;
+			this.malformedCells = malformedCells;
+		}
+
+		abstract void cell(int row, int column, String value);
+
+		@Override
+		public void startRow(int row) {
+			this.row = row;
+			this.column = -1;
+		}
+
+		@Override
+		public void endRow(int row) {
+		}
+
+		@Override
+		public void cell(String reference, String value, XSSFComment comment) {
+			this.column = reference == null ? this.column + 1 : new CellReference(reference).getCol();
+			if(value != null && !value.trim().isEmpty()) {
+				this.cell(this.row, this.column, value);
+			}
+		}
+
+		//NaN for a malformed cell, which is reported with its coordinates
+		double number(int row, int column, String value) {
+			try {
+				return Double.parseDouble(value.trim());
+			} catch (NumberFormatException e) {
+				this.malformed(row, column, "'" + value + "' is not a number");
+				return Double.NaN;
+			}
+		}
+
+		void malformed(int row, int column, String problem) {
+			this.malformedCells.add(this.sheetName + "!" + new CellReference(row, column).formatAsString() + ": " + problem);
+		}
+
+		//Problems of the sheet as a whole
+		void malformed(String problem) {
+			this.malformedCells.add(this.sheetName + ": " + problem);
+		}
+
+		void truncated(String what) {
+			LOGGER.warning(this.sheetName + " has " + what + " beyond the configured range, they are not read");
+		}
+
+	}
+
+	//Header row names the stations, later rows hold the distances from every column station to the row station
+	private static class MatrixHandler extends RowHandler {
+
+		private final WorkbookLayout layout;
+
+		private final List<String> header = new ArrayList<>();
+
+		private boolean headerEnded;
+
+		private String[] stations;
+
+		private Map<String, Integer> stationIndex;
+
+		private double[] distances;
+
+		//Station of the current row, -1 when the row is skipped
+		private int target = -1;
+
+		//Stations whose row was read, later rows of the same station are skipped
+		private final BitSet targets = new BitSet();
+
+		private boolean duplicateRow;
+
+		private boolean truncatedColumns;
+
+		private boolean truncatedRows;
+
+		MatrixHandler(WorkbookLayout layout, List<String> malformedCells) {
+			super(layout.odSheetName, malformedCells);
+			this.layout = layout;
+		}
+
+		@Override
+		public void startRow(int row) {
+			super.startRow(row);
+			this.target = -1;
+			this.duplicateRow = false;
+		}
+
+		@Override
+		public void endRow(int row) {
+			if(row == this.layout.startRow) {
+				this.endHeader();
+			}
+		}
+
+		@Override
+		void cell(int row, int column, String value) {
+			if(row == this.layout.startRow) {
+				this.headerCell(column, value);
+				return;
+			}
+			if(row < this.layout.startRow || this.stations == null) {
+				return;
+			}
+			if(this.layout.endRow != WorkbookLayout.DETECT && row > this.layout.endRow) {
+				if(!this.truncatedRows && column == this.layout.startColumn) {
+					this.truncatedRows = true;
+					this.truncated("rows");
+				}
+				return;
+			}
+			if(column == this.layout.startColumn) {
+				Integer target = this.stationIndex.get(value);
+				if(target == null) {
+					this.malformed(row, column, "unknown station '" + value + "'");
+				} else if(this.targets.get(target)) {
+					this.malformed(row, column, "second row of station '" + value + "'");
+					this.duplicateRow = true;
+				} else {
+					this.target = target;
+					this.targets.set(target);
+				}
+				return;
+			}
+			int source = column - this.layout.startColumn - 1;
+			if(source < 0 || source >= this.stations.length || this.duplicateRow) {
+				return;
+			}
+			if(this.target < 0) {
+				this.malformed(row, column, "distance of a row without a station");
+				return;
+			}
+			double distance = this.number(row, column, value);
+			this.distances[source * this.stations.length + this.target] = Double.isNaN(distance) ? 0.0 : distance;
+		}
+
+		private void headerCell(int column, String value) {
+			int position = column - this.layout.startColumn - 1;
+			if(position < 0 || this.headerEnded) {
+				return;
+			}
+			boolean detect = this.layout.endColumn == WorkbookLayout.DETECT;
+			if(!detect && column > this.layout.endColumn) {
+				if(!this.truncatedColumns) {
+					this.truncatedColumns = true;
+					this.truncated("station columns");
+				}
+				return;
+			}
+			//Detection stops at the first gap in the header, configured ranges keep empty station names
+			if(detect && position > this.header.size()) {
+				this.headerEnded = true;
+				return;
+			}
+			while(this.header.size() < position) {
+				this.header.add("");
+			}
+			this.header.add(value);
+		}
+
+		private void endHeader() {
+			int size = this.layout.endColumn == WorkbookLayout.DETECT ? this.header.size()
+					: this.layout.endColumn - this.layout.startColumn;
+			this.stations = new String[size];
+			this.stationIndex = new HashMap<>();
+			for(int id = 0; id < size; id++) {
+				this.stations[id] = (id < this.header.size() ? this.header.get(id) : "").intern();
+				this.stationIndex.putIfAbsent(this.stations[id], id);
+			}
+			this.distances = new double[size * size];
+		}
+
+		//Stations without a row would keep distances of 0 to every other station
+		void missingRows() {
+			for(int id = this.targets.nextClearBit(0); id < this.stations.length; id = this.targets.nextClearBit(id + 1)) {
+				this.malformed("no row for station '" + this.stations[id] + "'");
+			}
+		}
+
+	}
+
+	//Station names in the first column and their demand in the second
+	private static class DemandHandler extends RowHandler {
+
+		private final WorkbookLayout layout;
+
+		private final Map<String, Integer> stationIndex;
+
+		private final int[] demands;
+
+		private final boolean[] demandFound;
+
+		private int station = -1;
+
+		DemandHandler(WorkbookLayout layout, String[] stations, Map<String, Integer> stationIndex,
+				List<String> malformedCells) {
+			super(layout.demandSheetName, malformedCells);
+			this.layout = layout;
+			this.stationIndex = stationIndex;
+			this.demands = new int[stations.length];
+			this.demandFound = new boolean[stations.length];
+		}
+
+		@Override
+		public void startRow(int row) {
+			super.startRow(row);
+			this.station = -1;
+		}
+
+		@Override
+		void cell(int row, int column, String value) {
+			if(row < this.layout.demandStartRow
+					|| (this.layout.demandEndRow != WorkbookLayout.DETECT && row > this.layout.demandEndRow)) {
+				return;
+			}
+			if(column == 0) {
+				Integer id = this.stationIndex.get(value);
+				//Only the first row of a station counts, stations missing from the sheet have 0 demand
+				this.station = id == null || this.demandFound[id] ? -1 : id;
+			} else if(column == 1 && this.station >= 0) {
+				double demand = this.number(row, column, value);
+				this.demands[this.station] = Double.isNaN(demand) ? 0 : (int) demand;
+				this.demandFound[this.station] = true;
+			}
+		}
+
+	}
+
+	//Headers are matched to stations by name without the " m" / " b" suffix, cells hold whole trip counts
+	private static class TravelDemandHandler extends RowHandler {
+
+		private final WorkbookLayout layout;
+
+		private final Map<String, Integer> stationByName = new HashMap<>();
+
+		private final int size;
+
+		private final int[] travelDemands;
+
+		//Station of every header column, -1 for unknown stations
+		private int[] destinations = new int[0];
+
+		private boolean headerEnded;
+
+		private int source = -1;
+
+		TravelDemandHandler(WorkbookLayout layout, String[] stations, List<String> malformedCells) {
+			super(layout.travelDemandSheetName, malformedCells);
+			this.layout = layout;
+			this.size = stations.length;
+			for(int id = this.size - 1; id >= 0; id--) {
+				this.stationByName.put(stripSuffix(stations[id]), id);
+			}
+			this.travelDemands = new int[this.size * this.size];
+			Arrays.fill(this.travelDemands, NetworkSnapshot.NO_DEMAND);
+		}
+
+		@Override
+		public void startRow(int row) {
+			super.startRow(row);
+			this.source = -1;
+		}
+
+		@Override
+		void cell(int row, int column, String value) {
+			int index = column - this.layout.travelDemandStartColumn - 1;
+			if(row == this.layout.travelDemandStartRow) {
+				this.headerCell(index, value);
+				return;
+			}
+			if(row < this.layout.travelDemandStartRow || (this.layout.travelDemandEndRow != WorkbookLayout.DETECT
+					&& row > this.layout.travelDemandEndRow)) {
+				return;
+			}
+			if(column == this.layout.travelDemandStartColumn) {
+				Integer source = this.stationByName.get(stripSuffix(value));
+				this.source = source == null ? -1 : source;
+				return;
+			}
+			if(this.source < 0 || index < 0 || index >= this.destinations.length || this.destinations[index] < 0) {
+				return;
+			}
+			double travelDemand = this.number(row, column, value);
+			//Only whole numbers are treated as travel demand
+			if(Double.isNaN(travelDemand)) {
+				return;
+			}
+			if(Math.floor(travelDemand) != travelDemand) {
+				this.malformed(row, column, value + " is not a whole number of trips");
+				return;
+			}
+			this.travelDemands[this.source * this.size + this.destinations[index]] = (int) travelDemand;
+		}
+
+		private void headerCell(int index, String value) {
+			boolean detect = this.layout.travelDemandEndColumn == WorkbookLayout.DETECT;
+			int count = detect ? index + 1 : this.layout.travelDemandEndColumn - this.layout.travelDemandStartColumn;
+			if(index < 0 || this.headerEnded || index >= count) {
+				return;
+			}
+			if(detect && index > this.destinations.length) {
+				this.headerEnded = true;
+				return;
+			}
+			if(this.destinations.length < count) {
+				int previous = this.destinations.length;
+				this.destinations = Arrays.copyOf(this.destinations, count);
+				Arrays.fill(this.destinations, previous, count, -1);
+			}
+			Integer id = this.stationByName.get(stripSuffix(value));
+			this.destinations[index] = id == null ? -1 : id;
+		}
+
+	}
+
+}
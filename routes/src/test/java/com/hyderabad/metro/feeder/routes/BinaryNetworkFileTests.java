@@ -0,0 +1,119 @@
+package com.hyderabad.metro.feeder.routes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.config.WorkbookLayout;
+import com.hyderabad.metro.feeder.routes.services.PlanningProfileService;
+import com.hyderabad.metro.feeder.routes.utils.BinaryNetworkFile;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+
+@SpringBootTest
+class BinaryNetworkFileTests {
+
+	@Autowired
+	private NetworkSnapshotLoader networkSnapshotLoader;
+
+	@Autowired
+	private BinaryNetworkFile binaryNetworkFile;
+
+	@Autowired
+	private PlanningProfileService planningProfileService;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void mappedNetworkMatchesWorkbook() throws Exception {
+		NetworkSnapshot workbook = networkSnapshotLoader.loadWorkbookSnapshot();
+		Path file = directory.resolve("network.bin");
+		binaryNetworkFile.write(workbook, null, file);
+
+		this.assertSameNetwork(workbook, binaryNetworkFile.load(file));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+			output.writeObject(binaryNetworkFile.load(file));
+		}
+		try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			this.assertSameNetwork(workbook, (NetworkSnapshot) input.readObject());
+		}
+	}
+
+	@Test
+	void truncatedFileIsRejected() throws Exception {
+		Path file = directory.resolve("network.bin");
+		binaryNetworkFile.write(networkSnapshotLoader.getSnapshot(), null, file);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 4);
+		}
+
+		assertThrows(IOException.class, () -> binaryNetworkFile.load(file));
+	}
+
+	//Name lengths beyond the station table are rejected like a truncated file, and so are uploads with them
+	@Test
+	void corruptStationTableIsRejected() throws Exception {
+		Path file = directory.resolve("network.bin");
+		binaryNetworkFile.write(networkSnapshotLoader.getSnapshot(), null, file);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] { (byte) 0xFF, (byte) 0xFF }), 16 + 32);
+		}
+
+		IOException corrupt = assertThrows(IOException.class, () -> binaryNetworkFile.load(file));
+		assertTrue(corrupt.getMessage().contains("is truncated or corrupt"));
+		assertThrows(IllegalArgumentException.class, () -> networkSnapshotLoader.loadSnapshot(
+				new ByteArrayInputStream(Files.readAllBytes(file)), planningProfileService.getParameters().workbookLayout));
+	}
+
+	//A file with the right digest that other users could have planted is replaced instead of mapped
+	@Test
+	void sharedFileIsNotMapped() throws Exception {
+		Path file = directory.resolve("network.bin");
+		assumeTrue(Files.getFileAttributeView(directory, PosixFileAttributeView.class) != null);
+		WorkbookLayout layout = planningProfileService.getParameters().workbookLayout;
+		NetworkSnapshot workbook = networkSnapshotLoader.loadBinarySnapshot(file, layout);
+
+		binaryNetworkFile.write(workbook.withScaledDemands(2.0), binaryNetworkFile.readSourceDigest(file), file);
+		Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-rw-rw-"));
+
+		this.assertSameNetwork(workbook, networkSnapshotLoader.loadBinarySnapshot(file, layout));
+		assertFalse(Files.getPosixFilePermissions(file).contains(PosixFilePermission.OTHERS_WRITE));
+	}
+
+	private void assertSameNetwork(NetworkSnapshot expected, NetworkSnapshot actual) {
+		assertEquals(expected.size(), actual.size());
+		for(int source = 0; source < expected.size(); source++) {
+			assertEquals(expected.getStation(source), actual.getStation(source));
+			assertEquals(expected.getDemand(source), actual.getDemand(source));
+			for(int target = 0; target < expected.size(); target++) {
+				assertEquals(expected.getDistance(source, target), actual.getDistance(source, target));
+				assertEquals(expected.getTravelDemand(source, target), actual.getTravelDemand(source, target));
+			}
+		}
+	}
+
+}
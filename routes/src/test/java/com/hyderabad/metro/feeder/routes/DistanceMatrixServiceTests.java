@@ -0,0 +1,239 @@
+package com.hyderabad.metro.feeder.routes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jgrapht.alg.shortestpath.DijkstraShortestPath;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.NetworkVersion;
+import com.hyderabad.metro.feeder.routes.beans.RoadDistanceMatrix;
+import com.hyderabad.metro.feeder.routes.beans.RoadNetwork;
+import com.hyderabad.metro.feeder.routes.services.DistanceMatrixService;
+import com.hyderabad.metro.feeder.routes.services.NetworkRegistry;
+import com.hyderabad.metro.feeder.routes.services.PlanningProfileService;
+import com.hyderabad.metro.feeder.routes.utils.CsvNetworkSource;
+import com.hyderabad.metro.feeder.routes.utils.RoadNetworkReader;
+
+@SpringBootTest
+class DistanceMatrixServiceTests {
+
+	private static final int GRID = 20;
+
+	@Autowired
+	private DistanceMatrixService distanceMatrixService;
+
+	@Autowired
+	private RoadNetworkReader roadNetworkReader;
+
+	@Autowired
+	private NetworkRegistry networkRegistry;
+
+	@Autowired
+	private PlanningProfileService planningProfileService;
+
+	@TempDir
+	Path directory;
+
+	//Configured road network, its stops are the stations S0 to S9 of the uploaded networks
+	@TempDir
+	static Path roadDirectory;
+
+	@DynamicPropertySource
+	static void roadNetwork(DynamicPropertyRegistry registry) {
+		registry.add("routes.road-network.edges", () -> roadDirectory.resolve("grid.csv").toString());
+		registry.add("routes.road-network.stops", () -> roadDirectory.resolve("stops.csv").toString());
+	}
+
+	@BeforeAll
+	static void writeRoadNetwork() throws IOException {
+		writeGrid(roadDirectory);
+		List<String> lines = new ArrayList<>();
+		lines.add("station,node");
+		List<Long> stops = stops(10);
+		for(int id = 0; id < stops.size(); id++) {
+			lines.add("S" + id + "," + stops.get(id));
+		}
+		Files.write(roadDirectory.resolve("stops.csv"), lines);
+	}
+
+	@Test
+	void searchesMatchShortestPaths() throws Exception {
+		Path edges = writeGrid(this.directory);
+		List<Long> stops = stops(30);
+
+		for(String algorithm: Arrays.asList(DistanceMatrixService.DIJKSTRA, DistanceMatrixService.CONTRACTION_HIERARCHIES)) {
+			RoadNetwork road = roadNetworkReader.read(edges);
+			DijkstraShortestPath<Long, DefaultWeightedEdge> expected = new DijkstraShortestPath<>(road.getGraph());
+			double[] distances = distanceMatrixService.distances(road, stops, algorithm);
+			for(int source = 0; source < stops.size(); source++) {
+				for(int target = 0; target < stops.size(); target++) {
+					assertEquals(expected.getPathWeight(stops.get(source), stops.get(target)),
+							distances[source * stops.size() + target], 1e-9, algorithm);
+				}
+			}
+		}
+	}
+
+	//Added stops only search their own rows and columns, the cached pairs are kept
+	@Test
+	void stopsAreAddedIncrementally() throws Exception {
+		Path edges = writeGrid(this.directory);
+		List<Long> stops = stops(30);
+		RoadNetwork road = roadNetworkReader.read(edges);
+
+		distanceMatrixService.distances(road, stops.subList(0, 20), DistanceMatrixService.DIJKSTRA);
+		assertEquals(20, road.getDistanceMatrix().size());
+		double[] incremental = distanceMatrixService.distances(road, stops, DistanceMatrixService.DIJKSTRA);
+		assertEquals(30, road.getDistanceMatrix().size());
+
+		double[] full = distanceMatrixService.distances(roadNetworkReader.read(edges), stops,
+				DistanceMatrixService.DIJKSTRA);
+		for(int index = 0; index < full.length; index++) {
+			assertEquals(full[index], incremental[index], 1e-9);
+		}
+	}
+
+	@Test
+	void networkDistancesAreReplaced() throws Exception {
+		Path edges = this.directory.resolve("edges.csv");
+		Files.write(edges, String.join("\n", "from,to,length,oneway", "1,2,1.5", "2,3,2.0,yes", "3,1,0.5,true", "4,5,1")
+				.getBytes(StandardCharsets.UTF_8));
+		RoadNetwork road = roadNetworkReader.read(edges);
+		Path stopsFile = this.directory.resolve("stops.csv");
+		Files.write(stopsFile, String.join("\n", "station,node", "\" A m\",1", "B b,3", "D b,4")
+				.getBytes(StandardCharsets.UTF_8));
+		Map<String, Long> stopNodes = roadNetworkReader.readStops(stopsFile);
+
+		double[] matrix = new double[16];
+		Arrays.fill(matrix, 9.0);
+		NetworkSnapshot network = new NetworkSnapshot(new String[] { " A m", "B b", "C b", "D b" }, matrix,
+				new int[4], new int[16]);
+		NetworkSnapshot roadNetwork = distanceMatrixService.withRoadDistances(network, road, stopNodes);
+
+		assertEquals(3.5, roadNetwork.getDistance(0, 1), 1e-9);
+		assertEquals(0.5, roadNetwork.getDistance(1, 0), 1e-9);
+		//C b has no road node and keeps its distances, D b cannot reach the others
+		assertEquals(9.0, roadNetwork.getDistance(0, 2));
+		assertEquals(Double.POSITIVE_INFINITY, roadNetwork.getDistance(3, 0));
+		assertEquals(9.0, roadNetwork.getDistance(3, 3));
+		double[] contracted = distanceMatrixService.distances(roadNetworkReader.read(edges), Arrays.asList(1L, 3L, 4L),
+				DistanceMatrixService.CONTRACTION_HIERARCHIES);
+		assertEquals(3.5, contracted[1], 1e-9);
+		assertEquals(Double.POSITIVE_INFINITY, contracted[2]);
+
+		stopNodes.put("C b", 7L);
+		assertThrows(IllegalArgumentException.class, () -> distanceMatrixService.withRoadDistances(network, road,
+				stopNodes));
+	}
+
+	//A new version of an uploaded network with one more station only searches the road distances of that station
+	@Test
+	void uploadedStationsAreAddedIncrementally() throws Exception {
+		NetworkVersion first = networkRegistry.register("road", this.zippedNetwork(4),
+				planningProfileService.getParameters().workbookLayout);
+		RoadDistanceMatrix matrix = distanceMatrixService.getRoadNetwork().getDistanceMatrix();
+		assertEquals(4, matrix.size());
+		RoadNetwork road = roadNetworkReader.read(roadDirectory.resolve("grid.csv"));
+		DijkstraShortestPath<Long, DefaultWeightedEdge> expected = new DijkstraShortestPath<>(road.getGraph());
+		List<Long> stops = stops(5);
+		assertEquals(expected.getPathWeight(stops.get(0), stops.get(1)), first.getNetwork().getDistance(0, 1), 1e-9);
+
+		//A cached pair that was searched again would lose its marker
+		synchronized (matrix) {
+			matrix.setDistance(matrix.indexOf(stops.get(0)), matrix.indexOf(stops.get(1)), 123.0);
+		}
+		NetworkVersion second = networkRegistry.register("road", this.zippedNetwork(5),
+				planningProfileService.getParameters().workbookLayout);
+		assertEquals(2, second.getVersion());
+		assertEquals(5, matrix.size());
+		assertEquals(123.0, second.getNetwork().getDistance(0, 1));
+		for(int id = 0; id < 4; id++) {
+			assertEquals(expected.getPathWeight(stops.get(id), stops.get(4)), second.getNetwork().getDistance(id, 4), 1e-9);
+			assertEquals(expected.getPathWeight(stops.get(4), stops.get(id)), second.getNetwork().getDistance(4, id), 1e-9);
+		}
+	}
+
+	//Zipped CSV export of the stations S0 to S<size - 1>, the distances are replaced by road distances
+	private byte[] zippedNetwork(int size) throws IOException {
+		StringBuilder distances = new StringBuilder();
+		StringBuilder demand = new StringBuilder();
+		for(int id = 0; id < size; id++) {
+			distances.append(",S").append(id);
+		}
+		for(int target = 0; target < size; target++) {
+			distances.append("\nS").append(target);
+			for(int source = 0; source < size; source++) {
+				distances.append(",9.0");
+			}
+			demand.append("S").append(target).append(",10\n");
+		}
+		ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(zipped)) {
+			zip.putNextEntry(new ZipEntry(CsvNetworkSource.DISTANCES));
+			zip.write(distances.append("\n").toString().getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+			zip.putNextEntry(new ZipEntry(CsvNetworkSource.DEMAND));
+			zip.write(demand.toString().getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+		}
+		return zipped.toByteArray();
+	}
+
+	//Grid of streets with random lengths, every fifth street one way
+	private static Path writeGrid(Path directory) throws IOException {
+		Random random = new Random(7);
+		List<String> lines = new ArrayList<>();
+		lines.add("from,to,length,oneway");
+		for(int row = 0; row < GRID; row++) {
+			for(int column = 0; column < GRID; column++) {
+				long node = row * GRID + column;
+				if(column + 1 < GRID) {
+					lines.add(node + "," + (node + 1) + "," + (0.2 + random.nextDouble()) + "," + (row % 5 == 0));
+				}
+				if(row + 1 < GRID) {
+					lines.add(node + "," + (node + GRID) + "," + (0.2 + random.nextDouble()) + "," + (column % 5 == 0));
+				}
+			}
+		}
+		Path edges = directory.resolve("grid.csv");
+		Files.write(edges, lines);
+		return edges;
+	}
+
+	private static List<Long> stops(int count) {
+		Random random = new Random(11);
+		Map<Long, Boolean> stops = new HashMap<>();
+		List<Long> nodes = new ArrayList<>();
+		while(nodes.size() < count) {
+			long node = random.nextInt(GRID * GRID);
+			if(stops.put(node, true) == null) {
+				nodes.add(node);
+			}
+		}
+		return nodes;
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.hyderabad.metro.feeder.routes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.hyderabad.metro.feeder.routes.beans.FleetAllocation;
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.RouteAllocation;
+import com.hyderabad.metro.feeder.routes.beans.RouteMetrics;
+import com.hyderabad.metro.feeder.routes.beans.StationRegistry;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.config.PlanningProfile;
+import com.hyderabad.metro.feeder.routes.services.FleetAllocationService;
+import com.hyderabad.metro.feeder.routes.services.ReplanningService;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+
+@SpringBootTest
+class FleetAllocationServiceTests {
+
+	@Autowired
+	private NetworkSnapshotLoader networkSnapshotLoader;
+
+	@Autowired
+	private ReplanningService replanningService;
+
+	@Autowired
+	private FleetAllocationService fleetAllocationService;
+
+	@Test
+	void bundledNetworkStaysWithinTheFleet() {
+		NetworkSnapshot network = networkSnapshotLoader.getSnapshot();
+		Map<Node, RouteMetrics> routeMetrics = replanningService.plan(network, 
+				NeighbourIndex.of(network, new StationRegistry(network)), PlanningParameters.defaults(), 1)
+				.getRouteMetrics();
+
+		FleetAllocation allocation = fleetAllocationService.allocate(routeMetrics, PlanningParameters.defaults());
+
+		assertEquals(routeMetrics.size(), allocation.getRoutes().size());
+		assertTrue(!allocation.isFeasible() || allocation.getTotalFleetSize() <= 74);
+		this.assertNoCheaperMove(allocation, routeMetrics, PlanningParameters.defaults());
+	}
+
+	@Test
+	void greedyAllocationIsOptimalOnHundredsOfRoutes() {
+		Random random = new Random(7);
+		Map<Node, RouteMetrics> routeMetrics = new LinkedHashMap<>();
+		for(int id = 0; id < 400; id++) {
+			double length = 5 + random.nextDouble() * 20;
+			routeMetrics.put(StationRegistry.createNode(id, "S" + id + " m", 10), 
+					new RouteMetrics(length, 2 + random.nextInt(10), length / 30, 100000 + random.nextInt(400000), 
+							8 + random.nextInt(40)));
+		}
+		PlanningProfile profile = PlanningParameters.defaults().toProfile();
+		profile.setMaxFleetSize(100000);
+		FleetAllocation unlimited = fleetAllocationService.allocate(routeMetrics, PlanningParameters.of(profile));
+		assertTrue(unlimited.isFeasible());
+		assertTrue(unlimited.getBindingConstraints().stream().noneMatch(FleetAllocation.Constraint.MAX_FLEET_SIZE::equals));
+		for(RouteAllocation route: unlimited.getRoutes()) {
+			assertEquals(route.getOptimalFleetSize(), route.getFleetSize());
+		}
+
+		//50 buses less than the cost optimum
+		profile.setMaxFleetSize(unlimited.getTotalFleetSize() - 50);
+		PlanningParameters parameters = PlanningParameters.of(profile);
+		FleetAllocation allocation = fleetAllocationService.allocate(routeMetrics, parameters);
+
+		assertTrue(allocation.isFeasible());
+		assertEquals(parameters.maxFleetSize, allocation.getTotalFleetSize());
+		assertTrue(allocation.getBindingConstraints().contains(FleetAllocation.Constraint.MAX_FLEET_SIZE));
+		assertTrue(unlimited.getTotalCost() <= allocation.getTotalCost());
+		this.assertNoCheaperMove(allocation, routeMetrics, parameters);
+	}
+
+	//Moving one bus between any two routes must not lower the total cost
+	private void assertNoCheaperMove(FleetAllocation allocation, Map<Node, RouteMetrics> routeMetrics, 
+			PlanningParameters parameters) {
+		List<RouteAllocation> routes = allocation.getRoutes();
+		for(RouteAllocation from: routes) {
+			if(from.getFleetSize() <= from.getMinimumFleetSize()) {
+				continue;
+			}
+			double removed = this.costWith(from, from.getFleetSize() - 1, parameters) - from.getCost();
+			for(RouteAllocation to: routes) {
+				if(to == from || to.getFleetSize() == 0) {
+					continue;
+				}
+				double added = this.costWith(to, to.getFleetSize() + 1, parameters) - to.getCost();
+				assertTrue(removed + added >= -1e-6, "Moving a bus from " + from.getOrigin() + " to " + to.getOrigin());
+			}
+		}
+	}
+
+	//Waiting cost per hour follows from the cost and headway of the current fleet size
+	private double costWith(RouteAllocation route, int fleetSize, PlanningParameters parameters) {
+		double waitingCost = (route.getCost() - parameters.unitVehicleCost * route.getFleetSize()) * route.getFleetSize();
+		return parameters.unitVehicleCost * fleetSize + waitingCost / fleetSize;
+	}
+
+}
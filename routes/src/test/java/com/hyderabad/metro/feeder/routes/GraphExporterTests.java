@@ -0,0 +1,107 @@
+package com.hyderabad.metro.feeder.routes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.w3c.dom.Document;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.Route;
+import com.hyderabad.metro.feeder.routes.services.CreateGraph;
+import com.hyderabad.metro.feeder.routes.services.RouteGenerationService;
+import com.hyderabad.metro.feeder.routes.utils.GraphExporter;
+import com.hyderabad.metro.feeder.routes.utils.RouteExportQueue;
+import com.hyderabad.metro.feeder.routes.utils.RouteWriter;
+
+@SpringBootTest
+class GraphExporterTests {
+
+	@Autowired
+	private CreateGraph createGraph;
+
+	@Autowired
+	private RouteGenerationService routeGenerationService;
+
+	@Autowired
+	private GraphExporter graphExporter;
+
+	@TempDir
+	Path directory;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void batchExportWritesEveryRoute() throws Exception {
+		Map<Node, Route> routes = this.generateRoutes();
+		int stopCount = routes.values().stream().mapToInt(Route::getStopCount).sum();
+
+		Path graphml = directory.resolve("routes.graphml");
+		graphExporter.exportRoutes(routes, RouteWriter.Format.GRAPHML, graphml);
+		Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(graphml.toFile());
+		assertEquals(routes.size(), document.getElementsByTagName("graph").getLength());
+		assertEquals(stopCount, document.getElementsByTagName("node").getLength());
+		assertEquals(stopCount - routes.size(), document.getElementsByTagName("edge").getLength());
+
+		Path geojson = directory.resolve("routes.geojson");
+		graphExporter.exportRoutes(routes, RouteWriter.Format.GEOJSON, geojson);
+		JsonNode collection = objectMapper.readTree(geojson.toFile());
+		assertEquals("FeatureCollection", collection.get("type").asText());
+		assertEquals(routes.size(), collection.get("features").size());
+
+		Path ndjson = directory.resolve("routes.ndjson.gz");
+		graphExporter.exportRoutes(routes, RouteWriter.Format.NDJSON_GZIP, ndjson);
+		assertEquals(this.origins(routes), this.readOrigins(ndjson));
+	}
+
+	@Test
+	void concurrentExportMatchesGeneratedRoutes() throws Exception {
+		Path ndjson = directory.resolve("concurrent.ndjson.gz");
+		Map<Node, Route> routes;
+		try (RouteExportQueue exportQueue = graphExporter.startExport(RouteWriter.Format.NDJSON_GZIP, ndjson)) {
+			routes = routeGenerationService.generateRoutes(
+					NeighbourIndex.of(createGraph.createDenseGraph()), 4, exportQueue);
+		}
+
+		assertEquals(this.origins(routes), this.readOrigins(ndjson));
+	}
+
+	private Map<Node, Route> generateRoutes() {
+		return routeGenerationService.generateRoutes(NeighbourIndex.of(createGraph.createDenseGraph()), 1);
+	}
+
+	private Set<String> origins(Map<Node, Route> routes) {
+		Set<String> origins = new HashSet<>();
+		routes.keySet().forEach(origin -> origins.add(origin.name));
+		return origins;
+	}
+
+	private Set<String> readOrigins(Path ndjson) throws Exception {
+		Set<String> origins = new HashSet<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(Files.newInputStream(ndjson)), StandardCharsets.UTF_8))) {
+			for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+				origins.add(objectMapper.readTree(line).get("origin").asText());
+			}
+		}
+		return origins;
+	}
+
+}
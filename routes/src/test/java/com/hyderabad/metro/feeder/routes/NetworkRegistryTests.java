@@ -0,0 +1,213 @@
+package com.hyderabad.metro.feeder.routes;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.StreamUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.NetworkVersion;
+import com.hyderabad.metro.feeder.routes.beans.PlanningJob;
+import com.hyderabad.metro.feeder.routes.beans.StationRegistry;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.services.NetworkRegistry;
+import com.hyderabad.metro.feeder.routes.services.PlanningService;
+import com.hyderabad.metro.feeder.routes.services.ReplanningService;
+import com.hyderabad.metro.feeder.routes.utils.CsvNetworkSource;
+import com.hyderabad.metro.feeder.routes.utils.ExcelUtility;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+
+@SpringBootTest(properties = { "routes.networks.max-entries=3", "routes.network.max-extracted-bytes=1048576" })
+@AutoConfigureMockMvc
+class NetworkRegistryTests {
+
+	@Autowired
+	private NetworkRegistry networkRegistry;
+
+	@Autowired
+	private NetworkSnapshotLoader networkSnapshotLoader;
+
+	@Autowired
+	private ReplanningService replanningService;
+
+	@Autowired
+	private PlanningService planningService;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void versionsCountUpPerTenant() {
+		NetworkSnapshot network = networkSnapshotLoader.getSnapshot();
+
+		NetworkVersion first = networkRegistry.register("versions", network);
+		assertEquals(1, first.getVersion());
+		assertSame(first, networkRegistry.register("versions", network));
+
+		NetworkVersion second = networkRegistry.register("versions", network.withScaledDemands(2.0));
+		assertEquals(2, second.getVersion());
+		assertSame(second, networkRegistry.get("versions"));
+		assertSame(first, networkRegistry.get("versions", 1));
+		assertEquals(first.getDigest(), networkRegistry.register("other", network).getDigest());
+	}
+
+	@Test
+	void leastRecentlyUsedVersionIsEvicted() {
+		NetworkSnapshot network = networkSnapshotLoader.getSnapshot();
+		networkRegistry.register("lru-a", network);
+		networkRegistry.register("lru-b", network);
+		networkRegistry.register("lru-c", network);
+		networkRegistry.get("lru-a");
+
+		networkRegistry.register("lru-d", network);
+		assertNull(networkRegistry.get("lru-b"));
+		assertNotNull(networkRegistry.get("lru-a"));
+		assertNotNull(networkRegistry.get("lru-c"));
+		assertNotNull(networkRegistry.get("lru-d"));
+	}
+
+	//Plans keep their network, so they are dropped together with it
+	@Test
+	void evictedVersionReleasesItsPlans() throws Exception {
+		NetworkSnapshot network = networkSnapshotLoader.getSnapshot();
+		PlanningParameters parameters = PlanningParameters.defaults();
+		NetworkVersion evicted = networkRegistry.register("released", network.withScaledDemands(4.0));
+		NetworkVersion removed = networkRegistry.register("removed", network.withScaledDemands(5.0));
+		PlanningJob evictedJob = planningService.submit(evicted, parameters);
+		PlanningJob removedJob = planningService.submit(removed, parameters);
+		for(PlanningJob job: new PlanningJob[] { evictedJob, removedJob }) {
+			assertEquals("DONE", this.await(job.getId()).get("status").asText());
+			assertNotNull(planningService.allocateFleet(job.getId(), null));
+		}
+
+		networkRegistry.remove("removed");
+		assertNull(planningService.allocateFleet(removedJob.getId(), null));
+		assertNotNull(planningService.allocateFleet(evictedJob.getId(), null));
+
+		for(int tenant = 0; tenant < 3; tenant++) {
+			networkRegistry.register("releasing-" + tenant, network.withScaledDemands(6.0 + tenant));
+		}
+		assertNull(networkRegistry.get("released"));
+		assertNull(planningService.allocateFleet(evictedJob.getId(), null));
+	}
+
+	//Plans of two cities run at the same time give the same routes as when they run alone
+	@Test
+	void tenantsArePlannedConcurrently() throws Exception {
+		PlanningParameters parameters = PlanningParameters.defaults();
+		NetworkSnapshot[] networks = { networkRegistry.register("city-a", networkSnapshotLoader.getSnapshot()).getNetwork(),
+				networkRegistry.register("city-b", networkSnapshotLoader.getSnapshot().withScaledDemands(3.0)).getNetwork() };
+		double[] expected = new double[networks.length];
+		for(int index = 0; index < networks.length; index++) {
+			expected[index] = this.totalLength(networks[index], parameters);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Double>> lengths = new ArrayList<>();
+			for(int run = 0; run < 16; run++) {
+				NetworkSnapshot network = networks[run % networks.length];
+				lengths.add(executor.submit(() -> this.totalLength(network, parameters)));
+			}
+			for(int run = 0; run < lengths.size(); run++) {
+				assertEquals(expected[run % networks.length], lengths.get(run).get(), 1e-9);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void registeredNetworkIsPlanned() throws Exception {
+		byte[] workbook;
+		try (InputStream is = new ClassPathResource(ExcelUtility.WORKBOOK_PATH).getInputStream()) {
+			workbook = StreamUtils.copyToByteArray(is);
+		}
+		//Uploads are read to the end of their sheets, including the station the configured ranges leave out
+		MockMultipartFile network = new MockMultipartFile("network", "Matrix.xlsx", null, workbook);
+		mockMvc.perform(multipart("/networks/uploaded").file(network))
+		.andExpect(status().isCreated())
+		.andExpect(jsonPath("$.version").value(1))
+		.andExpect(jsonPath("$.stationCount").value(141));
+
+		JsonNode submitted = objectMapper.readTree(mockMvc.perform(post("/plans").param("tenant", "uploaded"))
+				.andReturn().getResponse().getContentAsString());
+		JsonNode done = this.await(submitted.get("id").asText());
+		assertEquals("DONE", done.get("status").asText());
+		assertEquals(141, done.get("result").get("stationCount").asInt());
+
+		mockMvc.perform(post("/plans").param("tenant", "unknown")).andExpect(status().isNotFound());
+		mockMvc.perform(multipart("/networks/not a tenant").file(network)).andExpect(status().isBadRequest());
+	}
+
+	//A small upload that extracts beyond the limit is rejected before it is parsed
+	@Test
+	void oversizedZipIsRejected() throws Exception {
+		ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(zipped)) {
+			zip.putNextEntry(new ZipEntry(CsvNetworkSource.DISTANCES));
+			zip.write(",A m,B b\n".getBytes(StandardCharsets.UTF_8));
+			byte[] row = "A m,0,1\n".getBytes(StandardCharsets.UTF_8);
+			for(int count = 0; count < 200000; count++) {
+				zip.write(row);
+			}
+			zip.closeEntry();
+		}
+		MockMultipartFile network = new MockMultipartFile("network", "network.zip", null, zipped.toByteArray());
+		mockMvc.perform(multipart("/networks/zipped").file(network))
+		.andExpect(status().isBadRequest())
+		.andExpect(status().reason(containsString("extracts to more than 1048576 bytes")));
+	}
+
+	private double totalLength(NetworkSnapshot network, PlanningParameters parameters) {
+		NeighbourIndex neighbourIndex = NeighbourIndex.of(network, new StationRegistry(network));
+		return replanningService.plan(network, neighbourIndex, parameters, 1).getRoutes().values().stream()
+				.mapToDouble(route -> route.getLength()).sum();
+	}
+
+	private JsonNode await(String id) throws Exception {
+		for(int attempt = 0; attempt < 600; attempt++) {
+			JsonNode job = objectMapper.readTree(mockMvc.perform(get("/plans/" + id)).andReturn().getResponse()
+					.getContentAsString());
+			String status = job.get("status").asText();
+			if(status.equals("DONE") || status.equals("FAILED")) {
+				return job;
+			}
+			Thread.sleep(100);
+		}
+		throw new AssertionError("Planning job " + id + " did not finish");
+	}
+
+}
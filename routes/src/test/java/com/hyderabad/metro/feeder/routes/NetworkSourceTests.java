@@ -0,0 +1,171 @@
+package com.hyderabad.metro.feeder.routes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.config.PlanningProfile;
+import com.hyderabad.metro.feeder.routes.config.WorkbookLayout;
+import com.hyderabad.metro.feeder.routes.utils.BinaryNetworkFile;
+import com.hyderabad.metro.feeder.routes.utils.CsvNetworkSource;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSources;
+
+@SpringBootTest
+class NetworkSourceTests {
+
+	@Autowired
+	private NetworkSources networkSources;
+
+	@Autowired
+	private CsvNetworkSource csvNetworkSource;
+
+	@Autowired
+	private BinaryNetworkFile binaryNetworkFile;
+
+	@Autowired
+	private NetworkSnapshotLoader networkSnapshotLoader;
+
+	private final WorkbookLayout layout = new WorkbookLayout(new PlanningProfile.Workbook());
+
+	@Test
+	void everyFormatReadsTheSameNetwork(@TempDir Path directory) throws Exception {
+		NetworkSnapshot expected = networkSnapshotLoader.getSnapshot();
+
+		Path csv = Files.createDirectory(directory.resolve("csv"));
+		this.writeCsv(expected, csv);
+		assertEquals("csv", networkSources.find(csv).getFormat());
+		this.assertSameNetwork(expected, networkSources.read(csv, this.layout));
+
+		//Zipped exports are read from uploads
+		ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(zipped)) {
+			for(String name: Arrays.asList(CsvNetworkSource.DISTANCES, CsvNetworkSource.DEMAND,
+					CsvNetworkSource.TRAVEL_DEMAND)) {
+				zip.putNextEntry(new ZipEntry("export/" + name));
+				zip.write(Files.readAllBytes(csv.resolve(name)));
+				zip.closeEntry();
+			}
+		}
+		this.assertSameNetwork(expected,
+				networkSnapshotLoader.loadSnapshot(new ByteArrayInputStream(zipped.toByteArray()), this.layout));
+
+		Path binary = directory.resolve("network.bin");
+		binaryNetworkFile.write(expected, null, binary);
+		assertEquals("binary", networkSources.find(binary).getFormat());
+		this.assertSameNetwork(expected, networkSources.read(binary, this.layout));
+
+		Path workbook = Paths.get(NetworkSourceTests.class.getResource("/templates/Matrix.xlsx").toURI());
+		assertEquals("xlsx", networkSources.find(workbook).getFormat());
+		this.assertSameNetwork(expected, networkSources.read(workbook, this.layout));
+
+		assertNull(networkSources.find(csv.resolve(CsvNetworkSource.DEMAND)));
+	}
+
+	@Test
+	void malformedValuesAreReported(@TempDir Path directory) throws Exception {
+		this.write(directory.resolve(CsvNetworkSource.DISTANCES), ",A m,\"B, b\",C b", "A m,0,2.5,4e0",
+				"\"B, b\",2.5,abc,1.5", "D m,1,2,3", "C b,4,1.5,0");
+		this.write(directory.resolve(CsvNetworkSource.DEMAND), "station,demand", "A m,10", "\"B, b\",", "C b,3.0");
+
+		List<String> malformedCells = new ArrayList<>();
+		NetworkSnapshot network = csvNetworkSource.read(directory, this.layout, malformedCells);
+
+		assertEquals(3, network.size());
+		assertEquals("B, b", network.getStation(1));
+		assertEquals(4.0, network.getDistance(2, 0));
+		assertEquals(2.5, network.getDistance(0, 1));
+		assertEquals(0.0, network.getDistance(1, 1));
+		assertEquals(0, network.getDemand(1));
+		assertEquals(3, network.getDemand(2));
+		assertEquals(NetworkSnapshot.NO_DEMAND, network.getTravelDemand(0, 1));
+		assertEquals(Arrays.asList("distances.csv line 3 field 3: 'abc' is not a number",
+				"distances.csv line 4 field 1: unknown station 'D m'"), malformedCells);
+	}
+
+	//Like a deleted row of the Matrix sheet, a station without a row is reported rather than left at 0
+	@Test
+	void missingRowsAreReported(@TempDir Path directory) throws Exception {
+		this.write(directory.resolve(CsvNetworkSource.DISTANCES), ",A m,B b,C b", "A m,0,2.5,4", "B b,2.5,0,1.5", 
+				"A m,9,9,9");
+		this.write(directory.resolve(CsvNetworkSource.DEMAND), "A m,10");
+
+		List<String> malformedCells = new ArrayList<>();
+		NetworkSnapshot network = csvNetworkSource.read(directory, this.layout, malformedCells);
+
+		assertEquals(2.5, network.getDistance(1, 0));
+		assertEquals(Arrays.asList("distances.csv line 4 field 1: second row of station 'A m'",
+				"distances.csv: no row for station 'C b'"), malformedCells);
+	}
+
+	//Windows line ends, a byte order mark and quoted names, as spreadsheet exports write them. One bundled name
+	//starts with a space that is only kept when quoted.
+	private void writeCsv(NetworkSnapshot network, Path directory) throws IOException {
+		int size = network.size();
+		List<String> distances = new ArrayList<>();
+		List<String> travelDemands = new ArrayList<>();
+		StringBuilder header = new StringBuilder("﻿");
+		for(int id = 0; id < size; id++) {
+			header.append(',').append(this.quote(network.getStation(id)));
+		}
+		distances.add(header.toString());
+		travelDemands.add(header.toString());
+		for(int target = 0; target < size; target++) {
+			StringBuilder distanceRow = new StringBuilder(this.quote(network.getStation(target)));
+			StringBuilder travelDemandRow = new StringBuilder(this.quote(network.getStation(target)));
+			for(int source = 0; source < size; source++) {
+				distanceRow.append(',').append(network.getDistance(source, target));
+				int travelDemand = network.getTravelDemand(target, source);
+				travelDemandRow.append(',').append(travelDemand == NetworkSnapshot.NO_DEMAND ? "" : travelDemand);
+			}
+			distances.add(distanceRow.toString());
+			travelDemands.add(travelDemandRow.toString());
+		}
+		List<String> demands = new ArrayList<>();
+		for(int id = 0; id < size; id++) {
+			demands.add(this.quote(network.getStation(id)) + "," + network.getDemand(id));
+		}
+		this.write(directory.resolve(CsvNetworkSource.DISTANCES), distances.toArray(new String[0]));
+		this.write(directory.resolve(CsvNetworkSource.DEMAND), demands.toArray(new String[0]));
+		this.write(directory.resolve(CsvNetworkSource.TRAVEL_DEMAND), travelDemands.toArray(new String[0]));
+	}
+
+	private String quote(String station) {
+		return '"' + station.replace("\"", "\"\"") + '"';
+	}
+
+	private void write(Path file, String... lines) throws IOException {
+		Files.write(file, (String.join("\r\n", lines) + "\r\n").getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void assertSameNetwork(NetworkSnapshot expected, NetworkSnapshot actual) {
+		assertEquals(expected.size(), actual.size());
+		for(int source = 0; source < expected.size(); source++) {
+			assertEquals(expected.getStation(source), actual.getStation(source));
+			assertEquals(expected.getDemand(source), actual.getDemand(source));
+			for(int target = 0; target < expected.size(); target++) {
+				assertEquals(expected.getDistance(source, target), actual.getDistance(source, target));
+				assertEquals(expected.getTravelDemand(source, target), actual.getTravelDemand(source, target));
+			}
+		}
+	}
+
+}
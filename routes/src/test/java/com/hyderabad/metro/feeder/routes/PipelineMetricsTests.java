@@ -0,0 +1,65 @@
+package com.hyderabad.metro.feeder.routes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.hyderabad.metro.feeder.routes.beans.DenseGraph;
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.services.CreateGraph;
+import com.hyderabad.metro.feeder.routes.services.FleetAdjustmentService;
+import com.hyderabad.metro.feeder.routes.services.RouteGenerationService;
+import com.hyderabad.metro.feeder.routes.utils.PipelineMetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class PipelineMetricsTests {
+
+	@Autowired
+	private CreateGraph createGraph;
+
+	@Autowired
+	private RouteGenerationService routeGenerationService;
+
+	@Autowired
+	private FleetAdjustmentService fleetAdjustmentService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void everyStageIsTimed() throws Exception {
+		DenseGraph graph = createGraph.createDenseGraph();
+		fleetAdjustmentService.computeFromMetrics(fleetAdjustmentService.routeMetricsOfRoutes(
+				routeGenerationService.generateRoutes(NeighbourIndex.of(graph), 1)));
+
+		for(String stage: new String[] {"graph.dense", "routes.generate", "fleet.metrics", "fleet.headway", 
+				"fleet.size", "fleet.headway.adjustment", "fleet.size.adjustment"}) {
+			assertTrue(meterRegistry.get(PipelineMetrics.STAGE_TIMER).tag("stage", stage).timer().count() > 0, stage);
+		}
+		int size = graph.vertexSet().size();
+		assertEquals(size, meterRegistry.get("routes.graph.nodes").gauge().value());
+		assertEquals((double) size * (size - 1), meterRegistry.get("routes.graph.edges").gauge().value());
+		assertTrue(meterRegistry.get("routes.route.hops.average").gauge().value() > 0);
+
+		String scrape = mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		assertTrue(scrape.contains("routes_pipeline_stage_seconds_count{stage=\"routes.generate\",}"));
+		assertTrue(scrape.contains("routes_cache_hit_ratio{cache=\"snapshot\",}"));
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.hyderabad.metro.feeder.routes;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PlanningControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void resubmittedNetworkIsServedFromCache() throws Exception {
+		JsonNode submitted = this.read(mockMvc.perform(post("/plans")).andReturn().getResponse().getContentAsString());
+		JsonNode done = this.await(submitted.get("id").asText());
+
+		assertEquals("DONE", done.get("status").asText());
+		assertFalse(done.get("result").get("routes").isEmpty());
+
+		mockMvc.perform(post("/plans"))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.id").value(submitted.get("id").asText()))
+		.andExpect(jsonPath("$.status").value("DONE"));
+	}
+
+	@Test
+	void malformedWorkbookFails() throws Exception {
+		MockMultipartFile network = new MockMultipartFile("network", "Matrix.xlsx", null, "not a workbook".getBytes());
+		JsonNode submitted = this.read(mockMvc.perform(multipart("/plans").file(network))
+				.andExpect(status().isAccepted()).andReturn().getResponse().getContentAsString());
+
+		assertEquals("FAILED", this.await(submitted.get("id").asText()).get("status").asText());
+	}
+
+	@Test
+	void profileOverrideIsPlannedSeparately() throws Exception {
+		String defaultId = this.read(mockMvc.perform(post("/plans")).andReturn().getResponse().getContentAsString())
+				.get("id").asText();
+		JsonNode submitted = this.read(mockMvc.perform(post("/plans").param("profile", "{\"maxDistance\": 10}"))
+				.andReturn().getResponse().getContentAsString());
+		assertNotEquals(defaultId, submitted.get("id").asText());
+
+		JsonNode done = this.await(submitted.get("id").asText());
+		assertEquals("DONE", done.get("status").asText());
+		for(JsonNode route: done.get("result").get("routes")) {
+			assertTrue(route.get("length").asDouble() <= 10);
+		}
+
+		//The override does not change the profile of later jobs
+		mockMvc.perform(get("/profile")).andExpect(jsonPath("$.maxDistance").value(25.0));
+	}
+
+	@Test
+	void invalidProfileIsRejected() throws Exception {
+		mockMvc.perform(post("/plans").param("profile", "{\"minDistance\": 30}")).andExpect(status().isBadRequest());
+		mockMvc.perform(post("/plans").param("profile", "{\"maxDistance\":")).andExpect(status().isBadRequest());
+		mockMvc.perform(put("/profile").contentType(MediaType.APPLICATION_JSON).content("{\"busCapacity\": 0}"))
+		.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/profile")).andExpect(jsonPath("$.busCapacity").value(50));
+	}
+
+	@Test
+	void unknownProfileFieldIsRejected() throws Exception {
+		mockMvc.perform(post("/plans").param("profile", "{\"maxDistanse\": 10}"))
+		.andExpect(status().isBadRequest())
+		.andExpect(status().reason(containsString("maxDistanse")));
+		mockMvc.perform(post("/plans").param("profile", "{\"workbook\": {\"endRoww\": 10}}"))
+		.andExpect(status().isBadRequest())
+		.andExpect(status().reason(containsString("workbook.endRoww")));
+		mockMvc.perform(put("/profile").contentType(MediaType.APPLICATION_JSON).content("{\"busCapasity\": 40}"))
+		.andExpect(status().isBadRequest())
+		.andExpect(status().reason(containsString("busCapasity")));
+
+		//The profile as it is served is accepted again
+		String profile = mockMvc.perform(get("/profile")).andReturn().getResponse().getContentAsString();
+		mockMvc.perform(put("/profile").contentType(MediaType.APPLICATION_JSON).content(profile))
+		.andExpect(status().isOk());
+	}
+
+	@Test
+	void unknownJobIsNotFound() throws Exception {
+		mockMvc.perform(get("/plans/unknown")).andExpect(status().isNotFound());
+	}
+
+	private JsonNode await(String id) throws Exception {
+		for(int attempt = 0; attempt < 600; attempt++) {
+			JsonNode job = this.read(mockMvc.perform(get("/plans/" + id)).andReturn().getResponse().getContentAsString());
+			String status = job.get("status").asText();
+			if(status.equals("DONE") || status.equals("FAILED")) {
+				return job;
+			}
+			Thread.sleep(100);
+		}
+		throw new AssertionError("Planning job " + id + " did not finish");
+	}
+
+	private JsonNode read(String content) throws Exception {
+		return objectMapper.readTree(content);
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.hyderabad.metro.feeder.routes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.hyderabad.metro.feeder.routes.beans.PlanningJob;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.config.PlanningProfile;
+import com.hyderabad.metro.feeder.routes.services.PlanningProfileService;
+import com.hyderabad.metro.feeder.routes.services.PlanningService;
+
+@SpringBootTest(properties = { "routes.planning.max-jobs=3", "routes.planning.max-plans=1" })
+class PlanningServiceTests {
+
+	@Autowired
+	private PlanningService planningService;
+
+	@Autowired
+	private PlanningProfileService planningProfileService;
+
+	@Test
+	void leastRecentlyUsedPlanIsDropped() throws Exception {
+		PlanningParameters parameters = planningProfileService.getParameters();
+		PlanningJob first = this.await(planningService.submit((byte[]) null, parameters));
+		assertNotNull(planningService.replan(first.getId(), Collections.emptyMap()));
+
+		//The replan and the second job each take the only plan slot
+		PlanningJob second = this.await(planningService.submit((byte[]) null, this.withMaxDistance(parameters, 10)));
+		assertNull(planningService.replan(first.getId(), Collections.emptyMap()));
+		assertNull(planningService.allocateFleet(first.getId(), null));
+		assertNotNull(planningService.allocateFleet(second.getId(), null));
+
+		//Resubmitting the job runs it again
+		PlanningJob rerun = this.await(planningService.submit((byte[]) null, parameters));
+		assertEquals(first.getId(), rerun.getId());
+		assertNotNull(planningService.allocateFleet(first.getId(), null));
+	}
+
+	@Test
+	void jobsAreBounded() throws Exception {
+		PlanningParameters parameters = planningProfileService.getParameters();
+		PlanningJob first = this.await(planningService.submit((byte[]) null, this.withMaxDistance(parameters, 11)));
+		for(int maxDistance = 12; maxDistance < 15; maxDistance++) {
+			this.await(planningService.submit((byte[]) null, this.withMaxDistance(parameters, maxDistance)));
+		}
+		assertNull(planningService.getJob(first.getId()));
+
+		//The last job keeps its plan and is served again
+		assertEquals(PlanningJob.Status.DONE, 
+				planningService.submit((byte[]) null, this.withMaxDistance(parameters, 14)).getStatus());
+	}
+
+	private PlanningParameters withMaxDistance(PlanningParameters parameters, double maxDistance) {
+		PlanningProfile profile = parameters.toProfile();
+		profile.setMaxDistance(maxDistance);
+		return PlanningParameters.of(profile);
+	}
+
+	private PlanningJob await(PlanningJob job) throws Exception {
+		for(int attempt = 0; attempt < 600; attempt++) {
+			PlanningJob current = planningService.getJob(job.getId());
+			if(current.getStatus() == PlanningJob.Status.DONE || current.getStatus() == PlanningJob.Status.FAILED) {
+				assertEquals(PlanningJob.Status.DONE, current.getStatus());
+				return current;
+			}
+			Thread.sleep(100);
+		}
+		throw new AssertionError("Planning job " + job.getId() + " did not finish");
+	}
+
+}
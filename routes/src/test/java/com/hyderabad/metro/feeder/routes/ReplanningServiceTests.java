@@ -0,0 +1,87 @@
+package com.hyderabad.metro.feeder.routes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.beans.NetworkPlan;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.StationRegistry;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.services.ReplanningService;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+
+@SpringBootTest
+class ReplanningServiceTests {
+
+	@Autowired
+	private NetworkSnapshotLoader networkSnapshotLoader;
+
+	@Autowired
+	private ReplanningService replanningService;
+
+	@Test
+	void replanMatchesFullPlan() {
+		NetworkSnapshot network = networkSnapshotLoader.getSnapshot();
+		NetworkPlan plan = this.fullPlan(network);
+		Random random = new Random(7);
+
+		//Deltas large enough to cross the 0 demand and origin thresholds
+		for(int attempt = 0; attempt < 30; attempt++) {
+			Map<Integer, Integer> demandDeltas = new HashMap<>();
+			for(int change = 0; change < 1 + random.nextInt(4); change++) {
+				demandDeltas.put(random.nextInt(network.size()), random.nextInt(21) - 10);
+			}
+
+			NetworkPlan replan = replanningService.replan(plan, demandDeltas);
+			NetworkPlan expected = this.fullPlan(replan.getNetwork());
+
+			assertEquals(new ArrayList<>(expected.getRoutes().keySet()), new ArrayList<>(replan.getRoutes().keySet()));
+			for(Node origin: expected.getRoutes().keySet()) {
+				assertArrayEquals(expected.getRoutes().get(origin).getStopIds(), replan.getRoutes().get(origin).getStopIds());
+				assertEquals(expected.getRoutes().get(origin), replan.getRoutes().get(origin));
+			}
+			assertEquals(expected.getFleetSizes(), replan.getFleetSizes());
+			plan = replan;
+		}
+	}
+
+	@Test
+	void unchangedEligibilityRecomputesNothing() {
+		NetworkSnapshot network = networkSnapshotLoader.getSnapshot();
+		NetworkPlan plan = this.fullPlan(network);
+
+		//A bus stop that keeps a non zero demand stays a candidate of every route
+		List<Integer> stops = new ArrayList<>();
+		for(int id = 0; id < network.size(); id++) {
+			if(network.getStation(id).endsWith(" b") && network.getDemand(id) > 0) {
+				stops.add(id);
+			}
+		}
+		Map<Integer, Integer> demandDeltas = new HashMap<>();
+		demandDeltas.put(stops.get(0), 3);
+
+		NetworkPlan replan = replanningService.replan(plan, demandDeltas);
+
+		assertEquals(0, replan.getChanges().getRecomputedRoutes());
+		assertTrue(replan.getChanges().isEmpty());
+	}
+
+	private NetworkPlan fullPlan(NetworkSnapshot network) {
+		return replanningService.plan(network, NeighbourIndex.of(network, new StationRegistry(network)), 
+				PlanningParameters.defaults(), 1);
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.hyderabad.metro.feeder.routes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import org.jgrapht.Graph;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.hyderabad.metro.feeder.routes.beans.Edge;
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.Route;
+import com.hyderabad.metro.feeder.routes.beans.StationRegistry;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.config.PlanningProfile;
+import com.hyderabad.metro.feeder.routes.services.CreateGraph;
+import com.hyderabad.metro.feeder.routes.services.RouteGenerationService;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+
+@SpringBootTest
+class RouteGenerationServiceTests {
+
+	@Autowired
+	private CreateGraph createGraph;
+
+	@Autowired
+	private RouteGenerationService routeGenerationService;
+
+	@Autowired
+	private NetworkSnapshotLoader networkSnapshotLoader;
+
+	@Test
+	void parallelGenerationMatchesSequential() {
+		Graph<Node, Edge> graph = createGraph.createGraph();
+
+		Map<Node, Graph<Node, Edge>> sequential = routeGenerationService.routeGenerationAlgorithm(graph, 1);
+		Map<Node, Graph<Node, Edge>> parallel = routeGenerationService.routeGenerationAlgorithm(graph, 4);
+
+		assertFalse(sequential.isEmpty());
+		assertEquals(new ArrayList<>(sequential.keySet()), new ArrayList<>(parallel.keySet()));
+		for(Node origin: sequential.keySet()) {
+			assertEquals(sequential.get(origin).edgeSet(), parallel.get(origin).edgeSet());
+		}
+	}
+
+	@Test
+	void denseBackendMatchesMultigraph() {
+		Map<Node, Graph<Node, Edge>> multigraphRoutes = 
+				routeGenerationService.routeGenerationAlgorithm(createGraph.createGraph());
+		Map<Node, Graph<Node, Edge>> denseRoutes = 
+				routeGenerationService.routeGenerationAlgorithm(createGraph.createDenseGraph());
+
+		assertEquals(multigraphRoutes.keySet(), denseRoutes.keySet());
+		for(Node origin: multigraphRoutes.keySet()) {
+			assertEquals(multigraphRoutes.get(origin).edgeSet(), denseRoutes.get(origin).edgeSet());
+		}
+	}
+
+	//Edges outside the route limits are never picked, so dropping them does not change any route
+	@Test
+	void sparseGraphMatchesCompleteGraph() {
+		NetworkSnapshot network = networkSnapshotLoader.getSnapshot();
+		PlanningParameters parameters = this.sparse(0);
+
+		NeighbourIndex sparseIndex = createGraph.createNeighbourIndex(network, parameters);
+		assertTrue(sparseIndex.edgeCount() < network.size() * (network.size() - 1));
+
+		Map<Node, Route> completeRoutes = routeGenerationService.generateRoutes(
+				NeighbourIndex.of(network, new StationRegistry(network)), parameters, 1, route -> {});
+		Map<Node, Route> sparseRoutes = routeGenerationService.generateRoutes(sparseIndex, parameters, 1, route -> {});
+
+		assertEquals(new ArrayList<>(completeRoutes.keySet()), new ArrayList<>(sparseRoutes.keySet()));
+		for(Node origin: completeRoutes.keySet()) {
+			assertEquals(completeRoutes.get(origin).toGraph().edgeSet(), sparseRoutes.get(origin).toGraph().edgeSet());
+		}
+		assertEquals(sparseIndex.edgeCount(), createGraph.createSparseGraph(network, parameters).edgeSet().size());
+	}
+
+	@Test
+	void nearestNeighboursAreKept() {
+		NetworkSnapshot network = networkSnapshotLoader.getSnapshot();
+		PlanningParameters parameters = this.sparse(5);
+		NeighbourIndex complete = NeighbourIndex.of(network, new StationRegistry(network));
+		NeighbourIndex nearest = createGraph.createNeighbourIndex(network, parameters);
+
+		assertTrue(nearest.edgeCount() <= network.size() * 5);
+		for(int station = 0; station < network.size(); station++) {
+			//The first neighbours of the complete index that are within the route limits
+			int position = nearest.getStart(station);
+			for(int candidate = complete.getStart(station); candidate < complete.getEnd(station) 
+					&& position < nearest.getEnd(station); candidate++) {
+				double distance = complete.getDistance(candidate);
+				if(distance > parameters.minDistance && distance <= parameters.maxDistance) {
+					assertEquals(complete.getNeighbour(candidate), nearest.getNeighbour(position));
+					assertEquals(distance, nearest.getDistance(position));
+					position++;
+				}
+			}
+			assertEquals(nearest.getEnd(station), position);
+		}
+	}
+
+	private PlanningParameters sparse(int neighbours) {
+		PlanningProfile profile = new PlanningProfile();
+		profile.setSparseGraph(true);
+		profile.setNeighbours(neighbours);
+		return PlanningParameters.of(profile);
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.hyderabad.metro.feeder.routes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.beans.NetworkPlan;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.Node;
+import com.hyderabad.metro.feeder.routes.beans.Route;
+import com.hyderabad.metro.feeder.routes.beans.StationRegistry;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.config.PlanningProfile;
+import com.hyderabad.metro.feeder.routes.services.ReplanningService;
+import com.hyderabad.metro.feeder.routes.services.RouteImprovementService;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+
+@SpringBootTest
+class RouteImprovementServiceTests {
+
+	@Autowired
+	private NetworkSnapshotLoader networkSnapshotLoader;
+
+	@Autowired
+	private ReplanningService replanningService;
+
+	@Autowired
+	private RouteImprovementService routeImprovementService;
+
+	@Test
+	void improvedRoutesKeepTheirStopsAndLimits() {
+		NetworkSnapshot network = networkSnapshotLoader.getSnapshot();
+		PlanningParameters parameters = this.improving(4);
+
+		NetworkPlan plan = replanningService.plan(network, NeighbourIndex.of(network, new StationRegistry(network)), 
+				parameters, 4);
+
+		for(Map.Entry<Node, Route> entry: plan.getRoutes().entrySet()) {
+			Route generated = plan.getGeneratedRoutes().get(entry.getKey());
+			this.assertValid(network, generated, entry.getValue(), parameters);
+		}
+	}
+
+	@Test
+	void shuffledRouteIsShortened() {
+		//Stops on a grid with Euclidean distances, visited in a random order
+		Random random = new Random(3);
+		int size = 14;
+		double[] x = new double[size];
+		double[] y = new double[size];
+		String[] stations = new String[size];
+		for(int id = 0; id < size; id++) {
+			x[id] = 2 * (id % 4) + random.nextDouble();
+			y[id] = 2 * (id / 4) + random.nextDouble();
+			stations[id] = "S" + id + (id == 0 ? " m" : " b");
+		}
+		double[] distances = new double[size * size];
+		for(int source = 0; source < size; source++) {
+			for(int target = 0; target < size; target++) {
+				distances[source * size + target] = Math.hypot(x[source] - x[target], y[source] - y[target]);
+			}
+		}
+		int[] demands = new int[size];
+		Arrays.fill(demands, 10);
+		int[] travelDemands = new int[size * size];
+		Arrays.fill(travelDemands, NetworkSnapshot.NO_DEMAND);
+		NetworkSnapshot network = new NetworkSnapshot(stations, distances, demands, travelDemands);
+		StationRegistry stationRegistry = new StationRegistry(network);
+
+		Node[] stops = new Node[size];
+		double[] legDistances = new double[size - 1];
+		int[] order = {0, 7, 2, 11, 5, 13, 1, 9, 4, 12, 3, 8, 6, 10};
+		for(int position = 0; position < size; position++) {
+			stops[position] = stationRegistry.getNode(order[position]);
+			if(position > 0) {
+				legDistances[position - 1] = network.getDistance(order[position - 1], order[position]);
+			}
+		}
+		Route route = new Route(stops, legDistances);
+
+		PlanningProfile profile = this.improving(1).toProfile();
+		profile.setMinDistance(0);
+		profile.setMaxDistance(100);
+		profile.setImprovementBudgetMillis(1000);
+		PlanningParameters parameters = PlanningParameters.of(profile);
+		Route improved = routeImprovementService.improve(network, route, parameters);
+
+		this.assertValid(network, route, improved, parameters);
+		assertTrue(improved.getLength() < 0.6 * route.getLength(), improved.toString());
+	}
+
+	private void assertValid(NetworkSnapshot network, Route generated, Route improved, PlanningParameters parameters) {
+		assertEquals(generated.getOrigin(), improved.getOrigin());
+		int[] generatedStops = generated.getStopIds();
+		int[] improvedStops = improved.getStopIds();
+		Arrays.sort(generatedStops);
+		Arrays.sort(improvedStops);
+		assertTrue(Arrays.equals(generatedStops, improvedStops));
+		assertTrue(improved.getLength() <= generated.getLength());
+		assertTrue(improved.getLength() <= Math.max(generated.getLength(), parameters.maxDistance));
+		for(int index = 0; index < improved.getStopCount() - 1; index++) {
+			double distance = network.getDistance(improved.getStopId(index), improved.getStopId(index + 1));
+			assertEquals(distance, improved.getLegDistance(index));
+			assertTrue(distance > parameters.minDistance);
+		}
+	}
+
+	private PlanningParameters improving(int starts) {
+		PlanningProfile profile = PlanningParameters.defaults().toProfile();
+		profile.setRouteImprovement(true);
+		profile.setImprovementStarts(starts);
+		return PlanningParameters.of(profile);
+	}
+
+}
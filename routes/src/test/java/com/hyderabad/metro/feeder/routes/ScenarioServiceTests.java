@@ -0,0 +1,154 @@
+package com.hyderabad.metro.feeder.routes;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hyderabad.metro.feeder.routes.beans.NeighbourIndex;
+import com.hyderabad.metro.feeder.routes.beans.NetworkPlan;
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.beans.PlanResult;
+import com.hyderabad.metro.feeder.routes.beans.PlanningJob;
+import com.hyderabad.metro.feeder.routes.beans.Scenario;
+import com.hyderabad.metro.feeder.routes.beans.ScenarioResult;
+import com.hyderabad.metro.feeder.routes.beans.StationRegistry;
+import com.hyderabad.metro.feeder.routes.config.PlanningParameters;
+import com.hyderabad.metro.feeder.routes.config.PlanningProfile;
+import com.hyderabad.metro.feeder.routes.services.PlanningService;
+import com.hyderabad.metro.feeder.routes.services.ReplanningService;
+import com.hyderabad.metro.feeder.routes.services.ScenarioService;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ScenarioServiceTests {
+
+	@Autowired
+	private NetworkSnapshotLoader networkSnapshotLoader;
+
+	@Autowired
+	private ReplanningService replanningService;
+
+	@Autowired
+	private ScenarioService scenarioService;
+
+	@Autowired
+	private PlanningService planningService;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void scenariosMatchFullPlans() {
+		NetworkSnapshot network = networkSnapshotLoader.getSnapshot();
+		PlanningProfile profile = PlanningParameters.defaults().toProfile();
+		profile.setSpeedOfTheBus(20);
+		PlanningParameters slower = PlanningParameters.of(profile);
+
+		List<ScenarioResult> results = scenarioService.evaluate(network, Arrays.asList(
+				new Scenario("default", PlanningParameters.defaults(), 1.0), 
+				new Scenario("slower", slower, 1.0), 
+				new Scenario("busier", PlanningParameters.defaults(), 1.5)), 4);
+
+		assertEquals(this.totalFleetSize(network, PlanningParameters.defaults()), results.get(0).getTotalFleetSize());
+		assertEquals(this.totalFleetSize(network, slower), results.get(1).getTotalFleetSize());
+		assertEquals(this.totalFleetSize(network.withScaledDemands(1.5), PlanningParameters.defaults()), 
+				results.get(2).getTotalFleetSize());
+		assertEquals("busier", results.get(2).getName());
+	}
+
+	//Sparse scenarios use the edges of planning jobs of the same profile, each neighbour count its own
+	@Test
+	void sparseScenariosMatchPlanningJobs() throws Exception {
+		NetworkSnapshot network = networkSnapshotLoader.getSnapshot();
+		PlanningParameters nearest = this.withNeighbours(2);
+		PlanningParameters wider = this.withNeighbours(4);
+
+		List<ScenarioResult> results = scenarioService.evaluate(network, Arrays.asList(
+				new Scenario("nearest", nearest, 1.0), new Scenario("wider", wider, 1.0)), 2);
+
+		for(int index = 0; index < results.size(); index++) {
+			PlanResult plan = this.plan(index == 0 ? nearest : wider);
+			assertEquals(plan.getRoutes().size(), results.get(index).getRouteCount());
+			assertEquals(plan.getTotalFleetSize(), results.get(index).getTotalFleetSize());
+			assertEquals(plan.getRoutes().stream().mapToDouble(route -> route.getLength()).sum(), 
+					results.get(index).getTotalRouteLength(), 1e-9);
+		}
+	}
+
+	@Test
+	void sweepEvaluatesEveryCombination() throws Exception {
+		String request = "{\"sweep\": {\"speedOfTheBus\": [20, 30], \"demandMultiplier\": [1, 1.5]}}";
+		JsonNode results = objectMapper.readTree(mockMvc.perform(post("/scenarios")
+				.contentType(MediaType.APPLICATION_JSON).content(request))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+
+		assertEquals(4, results.size());
+		assertEquals("speedOfTheBus=20,demandMultiplier=1", results.get(0).get("name").asText());
+		assertEquals("speedOfTheBus=30,demandMultiplier=1.5", results.get(3).get("name").asText());
+		assertEquals(results.get(0).get("routeCount"), results.get(2).get("routeCount"));
+		assertTrue(results.get(2).get("maxRouteLength").asDouble() <= 25);
+		assertEquals(this.totalFleetSize(networkSnapshotLoader.getSnapshot(), PlanningParameters.defaults()), 
+				results.get(2).get("totalFleetSize").asInt());
+
+		mockMvc.perform(post("/scenarios").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"sweep\": {\"busCapacity\": [0]}}"))
+		.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void unknownSweepFieldIsRejected() throws Exception {
+		mockMvc.perform(post("/scenarios").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"sweep\": {\"busCapasity\": [40, 60]}}"))
+		.andExpect(status().isBadRequest())
+		.andExpect(status().reason(containsString("busCapasity")));
+		mockMvc.perform(post("/scenarios").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"scenarios\": [{\"profile\": {\"maxDistanse\": 10}}]}"))
+		.andExpect(status().isBadRequest())
+		.andExpect(status().reason(containsString("maxDistanse")));
+	}
+
+	private PlanningParameters withNeighbours(int neighbours) {
+		PlanningProfile profile = PlanningParameters.defaults().toProfile();
+		profile.setSparseGraph(true);
+		profile.setNeighbours(neighbours);
+		return PlanningParameters.of(profile);
+	}
+
+	private PlanResult plan(PlanningParameters parameters) throws Exception {
+		PlanningJob job = planningService.submit((byte[]) null, parameters);
+		for(int attempt = 0; attempt < 600; attempt++) {
+			PlanningJob current = planningService.getJob(job.getId());
+			if(current.getStatus() == PlanningJob.Status.DONE || current.getStatus() == PlanningJob.Status.FAILED) {
+				assertEquals(PlanningJob.Status.DONE, current.getStatus());
+				return current.getResult();
+			}
+			Thread.sleep(100);
+		}
+		throw new AssertionError("Planning job " + job.getId() + " did not finish");
+	}
+
+	private int totalFleetSize(NetworkSnapshot network, PlanningParameters parameters) {
+		NetworkPlan plan = replanningService.plan(network, NeighbourIndex.of(network, new StationRegistry(network)), 
+				parameters, 1);
+		return plan.getFleetSizes().values().stream().mapToInt(Integer::intValue).sum();
+	}
+
+}
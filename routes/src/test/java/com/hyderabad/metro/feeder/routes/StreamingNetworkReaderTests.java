@@ -0,0 +1,183 @@
+package com.hyderabad.metro.feeder.routes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+
+import com.hyderabad.metro.feeder.routes.beans.NetworkSnapshot;
+import com.hyderabad.metro.feeder.routes.config.PlanningProfile;
+import com.hyderabad.metro.feeder.routes.config.WorkbookLayout;
+import com.hyderabad.metro.feeder.routes.utils.ExcelUtility;
+import com.hyderabad.metro.feeder.routes.utils.NetworkSnapshotLoader;
+import com.hyderabad.metro.feeder.routes.utils.StreamingNetworkReader;
+
+@SpringBootTest
+class StreamingNetworkReaderTests {
+
+	@Autowired
+	private StreamingNetworkReader streamingNetworkReader;
+
+	@Autowired
+	private NetworkSnapshotLoader networkSnapshotLoader;
+
+	@Autowired
+	private ExcelUtility excelUtility;
+
+	@Test
+	void streamedNetworkMatchesWorkbook() throws Exception {
+		for(WorkbookLayout layout: Arrays.asList(new WorkbookLayout(new PlanningProfile.Workbook()), this.detected())) {
+			NetworkSnapshot streamed;
+			try (InputStream is = new ClassPathResource(ExcelUtility.WORKBOOK_PATH).getInputStream()) {
+				streamed = streamingNetworkReader.read(is, layout);
+			}
+			NetworkSnapshot expected;
+			try (Workbook workbook = excelUtility.openWorkbook()) {
+				expected = networkSnapshotLoader.readSnapshot(workbook, layout);
+			}
+			this.assertSameNetwork(expected, streamed);
+		}
+	}
+
+	//The configured ranges leave out the last station of the bundled workbook
+	@Test
+	void boundsAreDetectedFromTheHeader() throws Exception {
+		try (InputStream is = new ClassPathResource(ExcelUtility.WORKBOOK_PATH).getInputStream()) {
+			assertEquals(141, streamingNetworkReader.read(is, this.detected()).size());
+		}
+	}
+
+	@Test
+	void malformedCellsAreReported() throws Exception {
+		byte[] workbook;
+		try (XSSFWorkbook created = new XSSFWorkbook(); ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+			Sheet matrix = created.createSheet("Matrix");
+			this.row(matrix, 0, "", "A m", "B b", "C b");
+			this.row(matrix, 1, "A m", 0.0, 2.5, 4.0);
+			this.row(matrix, 2, "B b", 2.5, "abc", 1.5);
+			this.row(matrix, 3, "C b", 4.0, 1.5, 0.0);
+			Sheet demand = created.createSheet("Demand at each node");
+			this.row(demand, 0, "A m", 10.0);
+			this.row(demand, 1, "B b", "many");
+			this.row(demand, 2, "C b", 3.0);
+			Sheet travelDemand = created.createSheet("Travel Demand Matrix");
+			this.row(travelDemand, 0, "", "A m", "B b", "C b");
+			this.row(travelDemand, 1, "A m", " ", 4.0, 2.5);
+			created.write(output);
+			workbook = output.toByteArray();
+		}
+
+		List<String> malformedCells = new ArrayList<>();
+		NetworkSnapshot network = streamingNetworkReader.read(new ByteArrayInputStream(workbook), this.detected(),
+				malformedCells);
+		List<String> expected = Arrays.asList("Matrix!C3: 'abc' is not a number",
+				"Demand at each node!B2: 'many' is not a number",
+				"Travel Demand Matrix!D2: 2.5 is not a whole number of trips");
+
+		assertEquals(3, network.size());
+		assertEquals(2.5, network.getDistance(1, 0));
+		assertEquals(0.0, network.getDistance(1, 1));
+		assertEquals(4.0, network.getDistance(0, 2));
+		assertEquals(3, network.getDemand(2));
+		assertEquals(4, network.getTravelDemand(0, 1));
+		assertEquals(NetworkSnapshot.NO_DEMAND, network.getTravelDemand(0, 2));
+		assertEquals(expected, malformedCells);
+
+		//Opened as a whole they are reported the same, uploads with them are rejected
+		malformedCells.clear();
+		try (Workbook opened = new XSSFWorkbook(new ByteArrayInputStream(workbook))) {
+			networkSnapshotLoader.readSnapshot(opened, this.detected(), malformedCells);
+		}
+		assertEquals(expected, malformedCells);
+		IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class, 
+				() -> networkSnapshotLoader.loadSnapshot(new ByteArrayInputStream(workbook), this.detected()));
+		assertTrue(rejected.getMessage().contains("3 malformed cells: " + String.join("; ", expected)));
+	}
+
+	//Stations without a row would have no distances, so a deleted row is reported like a malformed cell
+	@Test
+	void missingRowsAreReported() throws Exception {
+		byte[] workbook;
+		try (XSSFWorkbook created = new XSSFWorkbook(); ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+			Sheet matrix = created.createSheet("Matrix");
+			this.row(matrix, 0, "", "A m", "B b", "C b");
+			this.row(matrix, 1, "A m", 0.0, 2.5, 4.0);
+			this.row(matrix, 2, "B b", 2.5, 0.0, 1.5);
+			this.row(matrix, 3, "A m", 9.0, 9.0, 9.0);
+			Sheet demand = created.createSheet("Demand at each node");
+			this.row(demand, 0, "A m", 10.0);
+			Sheet travelDemand = created.createSheet("Travel Demand Matrix");
+			this.row(travelDemand, 0, "", "A m", "B b", "C b");
+			created.write(output);
+			workbook = output.toByteArray();
+		}
+
+		List<String> malformedCells = new ArrayList<>();
+		NetworkSnapshot network = streamingNetworkReader.read(new ByteArrayInputStream(workbook), this.detected(),
+				malformedCells);
+		List<String> expected = Arrays.asList("Matrix!A4: second row of station 'A m'", 
+				"Matrix: no row for station 'C b'");
+
+		assertEquals(3, network.size());
+		assertEquals(2.5, network.getDistance(1, 0));
+		assertEquals(expected, malformedCells);
+
+		malformedCells.clear();
+		try (Workbook opened = new XSSFWorkbook(new ByteArrayInputStream(workbook))) {
+			networkSnapshotLoader.readSnapshot(opened, this.detected(), malformedCells);
+		}
+		assertEquals(expected, malformedCells);
+		IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class, 
+				() -> networkSnapshotLoader.loadSnapshot(new ByteArrayInputStream(workbook), this.detected()));
+		assertTrue(rejected.getMessage().contains("2 malformed cells: " + String.join("; ", expected)));
+	}
+
+	private WorkbookLayout detected() {
+		PlanningProfile.Workbook workbook = new PlanningProfile.Workbook();
+		workbook.setEndRow(WorkbookLayout.DETECT);
+		workbook.setEndColumn(WorkbookLayout.DETECT);
+		workbook.setDemandEndRow(WorkbookLayout.DETECT);
+		workbook.setTravelDemandEndRow(WorkbookLayout.DETECT);
+		workbook.setTravelDemandEndColumn(WorkbookLayout.DETECT);
+		return new WorkbookLayout(workbook);
+	}
+
+	private void row(Sheet sheet, int index, Object... values) {
+		Row row = sheet.createRow(index);
+		for(int column = 0; column < values.length; column++) {
+			if(values[column] instanceof Double) {
+				row.createCell(column).setCellValue((Double) values[column]);
+			} else if(!"".equals(values[column])) {
+				row.createCell(column).setCellValue((String) values[column]);
+			}
+		}
+	}
+
+	private void assertSameNetwork(NetworkSnapshot expected, NetworkSnapshot actual) {
+		assertEquals(expected.size(), actual.size());
+		for(int source = 0; source < expected.size(); source++) {
+			assertEquals(expected.getStation(source), actual.getStation(source));
+			assertEquals(expected.getDemand(source), actual.getDemand(source));
+			for(int target = 0; target < expected.size(); target++) {
+				assertEquals(expected.getDistance(source, target), actual.getDistance(source, target));
+				assertEquals(expected.getTravelDemand(source, target), actual.getTravelDemand(source, target));
+			}
+		}
+	}
+
+}